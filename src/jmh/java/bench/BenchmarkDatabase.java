@@ -0,0 +1,60 @@
+package bench;
+
+import dao.UserDao;
+import model.User;
+import org.hibernate.SessionFactory;
+import util.HibernateUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Бенчмарки DAO работают с локально запущенным PostgreSQL (Docker не нужен), таблица users
+// пересоздаётся и заполняется в начале каждого прогона. Параметры подключения передаются форку JMH:
+// mvn -Pjmh package -DskipTests
+// java -jar target/benchmarks.jar -jvmArgsAppend "-Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bench"
+public final class BenchmarkDatabase {
+
+    public static final String URL = System.getProperty("bench.jdbc.url",
+            "jdbc:postgresql://localhost:5432/bench?reWriteBatchedInserts=true");
+    public static final String USER = System.getProperty("bench.jdbc.user", "postgres");
+    public static final String PASSWORD = System.getProperty("bench.jdbc.password", "postgres");
+
+    private static final int SEED_CHUNK = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    public static SessionFactory open() {
+        return HibernateUtil.initForTest(URL, USER, PASSWORD);
+    }
+
+    public static void truncate(SessionFactory sessionFactory) {
+        try (var session = sessionFactory.openSession()) {
+            var tx = session.beginTransaction();
+            session.createNativeMutationQuery("truncate table users").executeUpdate();
+            tx.commit();
+        }
+    }
+
+    public static void seed(UserDao userDao, int count) {
+        List<User> chunk = new ArrayList<>(SEED_CHUNK);
+        for (int i = 0; i < count; i++) {
+            chunk.add(newUser(i));
+            if (chunk.size() == SEED_CHUNK) {
+                userDao.addUsers(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            userDao.addUsers(chunk);
+        }
+    }
+
+    public static User newUser(long i) {
+        return new User("Пользователь " + i, email(i), 18 + (int) (i % 60));
+    }
+
+    public static String email(long i) {
+        return "user" + i + "@bench.local";
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import dao.UserDao;
+import dao.UserFilter;
+import dao.impl.UserDaoImpl;
+import dao.snapshot.ColumnarUserSnapshot;
+import dao.snapshot.UserColumns;
+import model.User;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Агрегаты по уже загруженным данным: список сущностей против колоночного среза.
+// Загрузка из базы в замер не входит.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ColumnarScanBenchmark {
+
+    private static final int BUCKET_WIDTH = 10;
+    private static final UserFilter FILTER = UserFilter.all().withAge(25, 40);
+
+    @Param({"100000", "1000000"})
+    private int tableSize;
+
+    private SessionFactory sessionFactory;
+    private List<User> users;
+    private UserColumns columns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = BenchmarkDatabase.open();
+        BenchmarkDatabase.truncate(sessionFactory);
+        UserDao userDao = new UserDaoImpl(sessionFactory);
+        BenchmarkDatabase.seed(userDao, tableSize);
+        users = userDao.getAllUsers();
+        ColumnarUserSnapshot snapshot = new ColumnarUserSnapshot(userDao, 10_000, ForkJoinPool.commonPool());
+        snapshot.rebuild();
+        columns = snapshot.columns();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public long[] entityAgeHistogram() {
+        long[] counts = new long[100 / BUCKET_WIDTH + 1];
+        for (User user : users) {
+            counts[user.getAge() / BUCKET_WIDTH]++;
+        }
+        return counts;
+    }
+
+    @Benchmark
+    public Object columnarAgeHistogram() {
+        return columns.ageHistogram(BUCKET_WIDTH);
+    }
+
+    @Benchmark
+    public long entityCountFiltered() {
+        return users.stream().filter(user -> user.getAge() >= 25 && user.getAge() <= 40).count();
+    }
+
+    @Benchmark
+    public long columnarCountFiltered() {
+        return columns.count(FILTER);
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import dao.UserDao;
+import dao.impl.CachingUserDao;
+import dao.impl.UserDaoImpl;
+import model.User;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmailLookupBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int tableSize;
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+    private UserDao cachingUserDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = BenchmarkDatabase.open();
+        BenchmarkDatabase.truncate(sessionFactory);
+        userDao = new UserDaoImpl(sessionFactory);
+        BenchmarkDatabase.seed(userDao, tableSize);
+        cachingUserDao = new CachingUserDao(userDao, tableSize, Duration.ofMinutes(10), Duration.ofSeconds(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Optional<User> naturalIdLookup() {
+        return userDao.getUserByEmail(randomEmail());
+    }
+
+    @Benchmark
+    public Optional<User> cachedNaturalIdLookup() {
+        return cachingUserDao.getUserByEmail(randomEmail());
+    }
+
+    @Benchmark
+    public Optional<User> scanAndFilter() {
+        String email = randomEmail();
+        return userDao.getAllUsers().stream()
+                .filter(user -> user.getEmail().equalsIgnoreCase(email))
+                .findFirst();
+    }
+
+    private String randomEmail() {
+        return BenchmarkDatabase.email(ThreadLocalRandom.current().nextInt(tableSize));
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import dao.UserDao;
+import dao.impl.UserDaoImpl;
+import model.User;
+import model.UserSummary;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class GetAllUsersBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int tableSize;
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = BenchmarkDatabase.open();
+        BenchmarkDatabase.truncate(sessionFactory);
+        userDao = new UserDaoImpl(sessionFactory);
+        BenchmarkDatabase.seed(userDao, tableSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public void getAllUsers(Blackhole blackhole) {
+        List<User> users = userDao.getAllUsers();
+        users.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void streamAllUsers(Blackhole blackhole) {
+        try (Stream<User> users = userDao.streamAllUsers()) {
+            users.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void streamUserSummaries(Blackhole blackhole) {
+        try (Stream<UserSummary> summaries = userDao.streamUserSummaries()) {
+            summaries.forEach(blackhole::consume);
+        }
+    }
+}
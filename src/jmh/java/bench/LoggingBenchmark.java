@@ -0,0 +1,80 @@
+package bench;
+
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.builder.api.AppenderComponentBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Стоимость логирования одной операции DAO: синхронный файловый аппендер (как консоль в log4j2.xml)
+// против асинхронного из log4j2-production.xml; старый стиль (toString сущности на INFO) против нового.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoggingBenchmark {
+
+    private static final String PATTERN = "%d{HH:mm:ss.SSS} [%t] %-5level %logger{36} - %msg%n";
+
+    @Param({"sync", "async"})
+    private String mode;
+
+    private Path logFile;
+    private Logger logger;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("users-bench", ".log");
+        boolean async = "async".equals(mode);
+
+        ConfigurationBuilder<BuiltConfiguration> builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+        builder.setStatusLevel(org.apache.logging.log4j.Level.ERROR);
+        AppenderComponentBuilder file = builder.newAppender("File", "RandomAccessFile")
+                .addAttribute("fileName", logFile.toString())
+                .addAttribute("immediateFlush", !async)
+                .add(builder.newLayout("PatternLayout").addAttribute("pattern", PATTERN));
+        builder.add(file);
+        if (async) {
+            builder.add(builder.newAppender("Async", "Async")
+                    .addAttribute("bufferSize", 16384)
+                    .addAttribute("includeLocation", false)
+                    .addComponent(builder.newAppenderRef("File")));
+        }
+        builder.add(builder.newRootLogger(org.apache.logging.log4j.Level.INFO).add(builder.newAppenderRef(async ? "Async" : "File")));
+        Configurator.reconfigure(builder.build());
+
+        logger = LogManager.getLogger("dao.impl.UserDaoImpl");
+        user = new User("Иван Петров", "ivan.petrov@bench.local", 35);
+        user.setId(123_456L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        LogManager.shutdown();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public void entityToStringAtInfo() {
+        logger.info("Пользователь добавлен: {}", user);
+    }
+
+    @Benchmark
+    public void idAtInfoEntityAtDebug() {
+        logger.info("Пользователь добавлен, id {}", user.getId());
+        logger.debug("Добавлен пользователь: {}", user);
+    }
+}
@@ -0,0 +1,35 @@
+package bench;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import util.HibernateUtil;
+
+import java.util.concurrent.TimeUnit;
+
+// Холодный старт до первого запроса: каждая попытка - новый JVM-форк, который строит
+// SessionFactory и читает одну строку. Схема должна уже существовать (migrate или любой
+// DAO-бенчмарк до этого):
+// java -jar target/benchmarks.jar StartupBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(value = 10)
+public class StartupBenchmark {
+
+    @Param({"update", "validate", "none"})
+    private String schemaMode;
+
+    @Param({"true", "false"})
+    private boolean jdbcMetadata;
+
+    @Benchmark
+    public Object coldStartToFirstQuery() {
+        try (SessionFactory sessionFactory = HibernateUtil.buildSessionFactory(BenchmarkDatabase.URL,
+                BenchmarkDatabase.USER, BenchmarkDatabase.PASSWORD, schemaMode, jdbcMetadata);
+             var session = sessionFactory.openSession()) {
+            return session.createNativeQuery("select id from users limit 1", Long.class).uniqueResult();
+        }
+    }
+}
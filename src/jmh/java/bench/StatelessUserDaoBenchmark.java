@@ -0,0 +1,113 @@
+package bench;
+
+import dao.UserDao;
+import dao.impl.StatelessUserDaoImpl;
+import dao.impl.UserDaoImpl;
+import model.User;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Сравнение UserDaoImpl (stateful) и StatelessUserDaoImpl на одних и тех же данных:
+// java -jar target/benchmarks.jar StatelessUserDaoBenchmark -prof gc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class StatelessUserDaoBenchmark {
+
+    private static final int BULK_SIZE = 1000;
+
+    @Param({"stateful", "stateless"})
+    private String mode;
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+    private long[] ids;
+    private final AtomicLong inserted = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = BenchmarkDatabase.open();
+        BenchmarkDatabase.truncate(sessionFactory);
+        userDao = "stateless".equals(mode) ? new StatelessUserDaoImpl(sessionFactory) : new UserDaoImpl(sessionFactory);
+        BenchmarkDatabase.seed(userDao, tableSize);
+        try (var users = userDao.streamAllUsers()) {
+            ids = users.mapToLong(User::getId).toArray();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteState {
+        private long id;
+
+        @Setup(Level.Invocation)
+        public void insert(StatelessUserDaoBenchmark benchmark) {
+            User user = benchmark.newUser("delete");
+            benchmark.userDao.addUser(user);
+            id = user.getId();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public int addUsers() {
+        List<User> users = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            users.add(newUser("bulk"));
+        }
+        return userDao.addUsers(users).inserted();
+    }
+
+    @Benchmark
+    public Optional<User> getUserById() {
+        return userDao.getUserById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public Optional<User> getUserByEmail() {
+        return userDao.getUserByEmail(BenchmarkDatabase.email(ThreadLocalRandom.current().nextInt(tableSize)));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void getAllUsers(Blackhole blackhole) {
+        userDao.getAllUsers().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void streamAllUsers(Blackhole blackhole) {
+        try (Stream<User> users = userDao.streamAllUsers()) {
+            users.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public int deleteUserById(DeleteState state) {
+        return userDao.deleteUserById(state.id);
+    }
+
+    private User newUser(String prefix) {
+        long n = inserted.incrementAndGet();
+        return new User("Новый " + n, prefix + n + "@bench.local", 30);
+    }
+}
@@ -0,0 +1,111 @@
+package bench;
+
+import dao.UserDao;
+import dao.impl.UserDaoImpl;
+import model.User;
+import model.UserUpdate;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDaoBenchmark {
+
+    private static final int BULK_SIZE = 1000;
+
+    @Param({"10000"})
+    private int tableSize;
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+    private long[] ids;
+    private final AtomicLong inserted = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = BenchmarkDatabase.open();
+        BenchmarkDatabase.truncate(sessionFactory);
+        userDao = new UserDaoImpl(sessionFactory);
+        BenchmarkDatabase.seed(userDao, tableSize);
+        try (var users = userDao.streamAllUsers()) {
+            ids = users.mapToLong(User::getId).toArray();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @State(Scope.Thread)
+    public static class DeleteState {
+        private long id;
+
+        @Setup(Level.Invocation)
+        public void insert(UserDaoBenchmark benchmark) {
+            User user = benchmark.newUser("delete");
+            benchmark.userDao.addUser(user);
+            id = user.getId();
+        }
+    }
+
+    @Benchmark
+    public User addUser() {
+        User user = newUser("single");
+        userDao.addUser(user);
+        return user;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public int addUsers() {
+        List<User> users = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            users.add(newUser("bulk"));
+        }
+        return userDao.addUsers(users).inserted();
+    }
+
+    @Benchmark
+    public Optional<User> getUserById() {
+        return userDao.getUserById(randomId());
+    }
+
+    @Benchmark
+    public User readModifyUpdate() {
+        User user = userDao.getUserById(randomId()).orElseThrow();
+        user.setAge(18 + ThreadLocalRandom.current().nextInt(60));
+        userDao.updateUser(user);
+        return user;
+    }
+
+    @Benchmark
+    public int updateUserFields() {
+        return userDao.updateUserFields(randomId(), UserUpdate.age(18 + ThreadLocalRandom.current().nextInt(60)));
+    }
+
+    @Benchmark
+    public int deleteUserById(DeleteState state) {
+        return userDao.deleteUserById(state.id);
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private User newUser(String prefix) {
+        long n = inserted.incrementAndGet();
+        return new User("Новый " + n, prefix + n + "@bench.local", 30);
+    }
+}
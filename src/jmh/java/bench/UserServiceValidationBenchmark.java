@@ -0,0 +1,79 @@
+package bench;
+
+import dao.BulkInsertResult;
+import dao.UserDao;
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import service.UserService;
+import service.impl.UserServiceImpl;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Измеряет только валидацию сервиса: DAO подменён заглушкой без обращения к базе.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserServiceValidationBenchmark {
+
+    private static final int BULK_SIZE = 1000;
+
+    private UserService userService;
+    private User validUser;
+    private User blankNameUser;
+    private List<User> mixedBatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userService = new UserServiceImpl(noOpDao());
+        validUser = new User("Иван", "ivan@bench.local", 25);
+        blankNameUser = new User("  ", "blank@bench.local", 25);
+        mixedBatch = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            mixedBatch.add(i % 10 == 0
+                    ? new User("", "invalid" + i + "@bench.local", 30)
+                    : BenchmarkDatabase.newUser(i));
+        }
+    }
+
+    @Benchmark
+    public User addUserValid() {
+        userService.addUser(validUser);
+        return validUser;
+    }
+
+    @Benchmark
+    public Object addUserInvalid() {
+        try {
+            userService.addUser(blankNameUser);
+            return blankNameUser;
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public BulkInsertResult addUsersMixed() {
+        return userService.addUsers(mixedBatch);
+    }
+
+    private static UserDao noOpDao() {
+        return (UserDao) Proxy.newProxyInstance(UserDao.class.getClassLoader(), new Class<?>[]{UserDao.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("addUsers")) {
+                        return new BulkInsertResult(((java.util.Collection<?>) args[0]).size(), List.of());
+                    }
+                    Class<?> type = method.getReturnType();
+                    if (type == int.class) return 0;
+                    if (type == boolean.class) return false;
+                    if (type == long.class) return 0L;
+                    return null;
+                });
+    }
+}
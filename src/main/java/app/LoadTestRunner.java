@@ -0,0 +1,116 @@
+package app;
+
+import app.load.LoadOptions;
+import app.load.LoadReport;
+import app.load.LoadTest;
+import app.load.OperationMix;
+import dao.UserDao;
+import dao.impl.StatelessUserDaoImpl;
+import dao.impl.UserDaoImpl;
+import exceptions.app.InvalidInputException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import service.impl.UserServiceImpl;
+import util.HibernateUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Нагрузочный прогон UserServiceImpl/UserDaoImpl на локальном PostgreSQL:
+// java -cp ... app.LoadTestRunner --jdbc-url jdbc:postgresql://localhost:5432/loadtest --clients 500
+//     --duration 3600 --qps 2000 --mix read=70,insert=10,update=15,delete=5 --zipf 1.1 --label v1.4
+// --dao session (по умолчанию) или stateless выбирает UserDaoImpl или StatelessUserDaoImpl.
+// Схема приводится к маппингу при старте (hbm2ddl update). Соединений не больше pool.max_size
+// из hibernate.cfg.xml: клиенты сверх него ждут соединение, и это ожидание входит в задержку.
+public class LoadTestRunner {
+
+    private static final Logger logger = LogManager.getLogger(LoadTestRunner.class);
+
+    public static void main(String[] args) {
+        String url = "jdbc:postgresql://localhost:5432/loadtest?reWriteBatchedInserts=true";
+        String username = "postgres";
+        String password = "postgres";
+        boolean stateless = false;
+        boolean cleanup = false;
+        Path reportFile = null;
+        LoadOptions options = LoadOptions.defaults();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--jdbc-url" -> url = value(args, ++i);
+                    case "--user" -> username = value(args, ++i);
+                    case "--password" -> password = value(args, ++i);
+                    case "--dao" -> stateless = statelessDao(value(args, ++i));
+                    case "--clients" -> options = options.withClients(Integer.parseInt(value(args, ++i)));
+                    case "--duration" -> options = options.withDuration(seconds(value(args, ++i)));
+                    case "--warmup" -> options = options.withWarmup(seconds(value(args, ++i)));
+                    case "--qps" -> options = options.withTargetQps(Double.parseDouble(value(args, ++i)));
+                    case "--mix" -> options = options.withMix(OperationMix.parse(value(args, ++i)));
+                    case "--keys" -> options = options.withKeys(Integer.parseInt(value(args, ++i)));
+                    case "--zipf" -> options = options.withZipfExponent(Double.parseDouble(value(args, ++i)));
+                    case "--platform-threads" -> options = options.withVirtualThreads(false);
+                    case "--interval" -> options = options.withReportInterval(seconds(value(args, ++i)));
+                    case "--label" -> options = options.withLabel(value(args, ++i));
+                    case "--report" -> reportFile = Path.of(value(args, ++i));
+                    case "--cleanup" -> cleanup = true;
+                    default -> throw new InvalidInputException("Неизвестный параметр: " + args[i]);
+                }
+            }
+        } catch (InvalidInputException | IllegalArgumentException e) {
+            System.out.println("Ошибка ввода: " + e.getMessage());
+            return;
+        }
+        if (reportFile == null) {
+            reportFile = Path.of("load-report-"
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        }
+
+        try (SessionFactory sessionFactory = HibernateUtil.buildSessionFactory(url, username, password, "update",
+                false)) {
+            UserDao userDao = stateless ? new StatelessUserDaoImpl(sessionFactory) : new UserDaoImpl(sessionFactory);
+            LoadTest loadTest = new LoadTest(new UserServiceImpl(userDao), options);
+            try {
+                LoadReport report = loadTest.run();
+                Files.writeString(reportFile, report.toJson(), StandardCharsets.UTF_8);
+                System.out.print(report.summary());
+                System.out.println("Отчёт: " + reportFile.toAbsolutePath());
+            } finally {
+                // И после прерванного прогона, чтобы не оставлять данные в базе.
+                if (cleanup) {
+                    loadTest.cleanup();
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Не удалось записать отчёт: " + e.getMessage());
+            logger.error("Ошибка записи отчёта нагрузки", e);
+        } catch (RuntimeException e) {
+            System.out.println("Нагрузка прервана: " + e.getMessage());
+            logger.error("Ошибка нагрузочного прогона", e);
+        }
+    }
+
+    private static boolean statelessDao(String value) {
+        return switch (value) {
+            case "session" -> false;
+            case "stateless" -> true;
+            default -> throw new InvalidInputException("Неизвестный DAO: " + value + " (session или stateless)");
+        };
+    }
+
+    private static Duration seconds(String value) {
+        return Duration.ofMillis(Math.round(Double.parseDouble(value) * 1000));
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new InvalidInputException("Не указано значение параметра " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
@@ -1,25 +1,83 @@
 package app;
 
+import dao.AgeBucket;
+import dao.UserDao;
+import dao.impl.CachingUserDao;
+import dao.impl.MetricsUserDao;
+import dao.impl.ReplicaRoutingUserDao;
+import dao.impl.SequenceIdAllocator;
+import dao.impl.ShardRebalancer;
+import dao.impl.ShardedUserDao;
+import dao.impl.StatelessUserDaoImpl;
 import dao.impl.UserDaoImpl;
+import dao.impl.WriteBehindUserDao;
+import dao.snapshot.ColumnarUserSnapshot;
+import dao.snapshot.UserColumns;
 import model.User;
+import model.UserUpdate;
+import service.BulkheadOptions;
+import service.EmailFilterOptions;
+import service.ExportOptions;
+import service.ExportReport;
+import service.ImportOptions;
+import service.ImportReport;
 import service.UserService;
+import service.impl.BulkheadUserService;
+import service.impl.BulkheadUserService.OperationClass;
+import service.impl.EmailPrecheckUserService;
+import service.impl.MetricsUserService;
+import service.impl.UserExporterImpl;
+import service.impl.UserImporterImpl;
 import service.impl.UserServiceImpl;
+import util.HibernateUtil;
+import util.metrics.HibernateMetrics;
+import util.metrics.MetricsRegistry;
+import exceptions.app.DeadlineExceededException;
 import exceptions.app.InvalidInputException;
+import exceptions.app.ServiceOverloadedException;
+import exceptions.app.UserImportException;
 import exceptions.dao.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Scanner;
+import java.util.stream.Stream;
 
 public class Main {
 
     private static final Logger logger = LogManager.getLogger(Main.class);
     private static final Scanner scanner = new Scanner(System.in);
-    private static final UserService userService = new UserServiceImpl(new UserDaoImpl());
+    private static final boolean metricsEnabled = Boolean.getBoolean("users.metrics.enabled");
+
+    // Сервис и SessionFactory создаются при первом обращении, команда migrate их не строит.
+    private static final class Services {
+        static final UserService USER_SERVICE = createUserService();
+    }
 
     public static void main(String[] args) {
+        if (args.length > 0) {
+            switch (args[0]) {
+                case "import" -> runImport(args);
+                case "export" -> runExport(args);
+                case "migrate" -> HibernateUtil.migrate();
+                case "rebalance" -> runRebalance(args);
+                case "report" -> runReport(args);
+                default -> System.out.println("Неизвестная команда: " + args[0]
+                        + " (доступны import, export, migrate, rebalance, report)");
+            }
+            HibernateUtil.shutdown();
+            return;
+        }
         boolean running = true;
 
         while (running) {
@@ -32,6 +90,8 @@ public class Main {
                     case 3 -> getAllUsers();
                     case 4 -> updateUser();
                     case 5 -> deleteUser();
+                    case 6 -> getUserByEmail();
+                    case 7 -> printMetrics();
                     case 0 -> running = false;
                     default -> throw new InvalidInputException("Выбрана несуществующая опция");
                 }
@@ -41,12 +101,277 @@ public class Main {
             } catch (NumberFormatException e) {
                 System.out.println("Введите только числа для выбора опции");
                 logger.warn("Неверный формат ввода", e);
+            } catch (ServiceOverloadedException | DeadlineExceededException e) {
+                System.out.println("Сервис занят, повторите позже: " + e.getMessage());
+                logger.warn("Запрос отклонён переборкой", e);
             }
         }
 
+        HibernateUtil.shutdown();
         System.out.println("Программа завершена");
     }
 
+    private static UserService userService() {
+        return Services.USER_SERVICE;
+    }
+
+    private static UserService createUserService() {
+        UserService service = new UserServiceImpl(createUserDao(),
+                Integer.getInteger("users.update.max_attempts", 5),
+                Duration.ofMillis(Long.getLong("users.update.backoff_ms", 10)));
+        if (Boolean.getBoolean("users.email_filter.enabled")) {
+            service = createEmailPrecheck(service);
+        }
+        if (Boolean.getBoolean("users.bulkhead.enabled")) {
+            service = createBulkhead(service);
+        }
+        if (metricsEnabled) {
+            MetricsRegistry registry = MetricsRegistry.getDefault();
+            List<SessionFactory> shards = HibernateUtil.getShardSessionFactories();
+            if (shards.isEmpty()) {
+                HibernateMetrics.register(registry, HibernateUtil.getSessionFactory());
+            }
+            for (int i = 0; i < shards.size(); i++) {
+                HibernateMetrics.register(registry, shards.get(i), "shard" + i);
+            }
+            registry.registerJmx("users:type=Metrics");
+            service = new MetricsUserService(service, registry);
+        }
+        return service;
+    }
+
+    // Фильтр заполняется в фоне, чтобы не задерживать запуск; до этого email проверяются в базе.
+    private static UserService createEmailPrecheck(UserService service) {
+        EmailFilterOptions options = EmailFilterOptions.defaults()
+                .withExpectedEmails(Long.getLong("users.email_filter.expected", 1_000_000))
+                .withFalsePositiveRate(Double.parseDouble(System.getProperty("users.email_filter.fpp", "0.01")))
+                .withMaxMemoryBytes(Long.getLong("users.email_filter.max_memory_mb", 16) * 1024 * 1024);
+        EmailPrecheckUserService precheck = new EmailPrecheckUserService(service, options);
+        Thread.ofVirtual().name("email-filter-warmup").start(() -> {
+            try {
+                precheck.warmUp();
+            } catch (RuntimeException e) {
+                logger.error("Не удалось заполнить фильтр email, проверки идут в базу", e);
+            }
+        });
+        if (metricsEnabled) {
+            MetricsRegistry.getDefault().registerGauges("emailFilter", () -> {
+                EmailPrecheckUserService.EmailFilterStats stats = precheck.getStats();
+                return Map.of("ready", stats.ready(), "memoryBytes", stats.memoryBytes(),
+                        "estimatedFpp", stats.estimatedFalsePositiveRate(), "definitelyNew", stats.definitelyNew(),
+                        "maybe", stats.maybe(), "duplicatesRejected", stats.duplicatesRejected(),
+                        "falsePositives", stats.falsePositives());
+            });
+        }
+        return precheck;
+    }
+
+    // users.bulkhead.<lookup|query|scan|write>.limit/.queue/.max_wait_ms, users.bulkhead.adaptive
+    private static UserService createBulkhead(UserService service) {
+        Map<OperationClass, Integer> defaultLimits = Map.of(OperationClass.LOOKUP, 32, OperationClass.QUERY, 8,
+                OperationClass.SCAN, 2, OperationClass.WRITE, 16);
+        boolean adaptive = Boolean.getBoolean("users.bulkhead.adaptive");
+        Map<OperationClass, BulkheadOptions> options = new EnumMap<>(OperationClass.class);
+        for (OperationClass operationClass : OperationClass.values()) {
+            String prefix = "users.bulkhead." + operationClass.name().toLowerCase(Locale.ROOT);
+            int limit = Integer.getInteger(prefix + ".limit", defaultLimits.get(operationClass));
+            options.put(operationClass, BulkheadOptions.of(limit, Integer.getInteger(prefix + ".queue", limit),
+                    Duration.ofMillis(Long.getLong(prefix + ".max_wait_ms", 100))).withAdaptive(adaptive));
+        }
+        BulkheadUserService bulkhead = new BulkheadUserService(service, options);
+        if (metricsEnabled) {
+            MetricsRegistry.getDefault().registerGauges("bulkhead", () -> {
+                Map<String, Object> gauges = new LinkedHashMap<>();
+                bulkhead.getStats().forEach((operationClass, stats) -> {
+                    String prefix = operationClass.name().toLowerCase(Locale.ROOT) + ".";
+                    gauges.put(prefix + "limit", stats.limit());
+                    gauges.put(prefix + "inFlight", stats.inFlight());
+                    gauges.put(prefix + "queued", stats.queued());
+                    gauges.put(prefix + "rejected", stats.rejected());
+                    gauges.put(prefix + "timedOut", stats.timedOut());
+                    gauges.put(prefix + "deadlineExceeded", stats.deadlineExceeded());
+                });
+                return gauges;
+            });
+        }
+        return bulkhead;
+    }
+
+    private static UserDao createUserDao() {
+        boolean stateless = "stateless".equals(System.getProperty("users.dao.mode"));
+        List<SessionFactory> shards = HibernateUtil.getShardSessionFactories();
+        if (!shards.isEmpty()) {
+            return decorate(createShardedUserDao(shards, stateless));
+        }
+        UserDao userDao = stateless ? new StatelessUserDaoImpl() : new UserDaoImpl();
+        Optional<SessionFactory> replica = HibernateUtil.getReplicaSessionFactory();
+        if (replica.isPresent()) {
+            UserDao replicaDao = stateless
+                    ? new StatelessUserDaoImpl(replica.get())
+                    : UserDaoImpl.readOnly(replica.get());
+            ReplicaRoutingUserDao routing = new ReplicaRoutingUserDao(userDao, replicaDao,
+                    Duration.ofMillis(Long.getLong("users.replica.staleness_ms", 1_000)),
+                    Duration.ofMillis(Long.getLong("users.replica.retry_ms", 5_000)));
+            if (metricsEnabled) {
+                MetricsRegistry.getDefault().registerGauges("replica", () -> {
+                    ReplicaRoutingUserDao.RoutingStats stats = routing.getStats();
+                    return Map.of("replicaReads", stats.replicaReads(), "primaryReads", stats.primaryReads(),
+                            "fallbacks", stats.fallbacks(), "available", stats.replicaAvailable());
+                });
+            }
+            userDao = routing;
+        }
+        return decorate(userDao);
+    }
+
+    // Реплики в шардированном режиме не поддерживаются: каждый шард читается напрямую.
+    private static UserDao createShardedUserDao(List<SessionFactory> shards, boolean stateless) {
+        List<UserDao> shardDaos = shards.stream()
+                .map(factory -> stateless ? (UserDao) new StatelessUserDaoImpl(factory) : new UserDaoImpl(factory))
+                .toList();
+        ShardedUserDao sharded = new ShardedUserDao(shardDaos, new SequenceIdAllocator(shards.get(0)));
+        HibernateUtil.addShutdownAction(sharded::close);
+        return sharded;
+    }
+
+    private static UserDao decorate(UserDao userDao) {
+        if (metricsEnabled) {
+            userDao = new MetricsUserDao(userDao, MetricsRegistry.getDefault());
+        }
+        if (Boolean.getBoolean("users.write_behind.enabled")) {
+            WriteBehindUserDao writeBehind = WriteBehindUserDao.start(userDao,
+                    Integer.getInteger("users.write_behind.max_pending", 10_000),
+                    Integer.getInteger("users.write_behind.batch_size", 500),
+                    Duration.ofMillis(Long.getLong("users.write_behind.flush_interval_ms", 200)),
+                    MetricsRegistry.getDefault());
+            HibernateUtil.addShutdownAction(writeBehind::close);
+            if (metricsEnabled) {
+                MetricsRegistry.getDefault().registerGauges("writeBehind", () -> {
+                    WriteBehindUserDao.WriteBehindStats stats = writeBehind.getStats();
+                    return Map.of("updates", stats.updates(), "coalesced", stats.coalesced(),
+                            "flushedRows", stats.flushedRows(), "failedRows", stats.failedRows(),
+                            "pending", stats.pending(), "coalesceRatio", stats.coalesceRatio());
+                });
+            }
+            userDao = writeBehind;
+        }
+        if (Boolean.getBoolean("users.cache.enabled")) {
+            userDao = new CachingUserDao(userDao,
+                    Integer.getInteger("users.cache.max_size", 10_000),
+                    Duration.ofMillis(Long.getLong("users.cache.ttl_ms", 60_000)),
+                    Duration.ofMillis(Long.getLong("users.cache.negative_ttl_ms", 5_000)));
+        }
+        return userDao;
+    }
+
+    // import <файл.csv|файл.ndjson> [--batch N] [--workers N] [--resume]
+    private static void runImport(String[] args) {
+        try {
+            if (args.length < 2) {
+                throw new InvalidInputException("Использование: import <файл> [--batch N] [--workers N] [--resume]");
+            }
+            ImportOptions options = ImportOptions.defaults();
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--batch" -> options = options.withBatchSize(Integer.parseInt(optionValue(args, ++i)));
+                    case "--workers" -> options = options.withWorkers(Integer.parseInt(optionValue(args, ++i)));
+                    case "--resume" -> options = options.withResume(true);
+                    default -> throw new InvalidInputException("Неизвестный параметр: " + args[i]);
+                }
+            }
+            ImportReport report = new UserImporterImpl(userService()).importFile(Path.of(args[1]), options);
+            System.out.printf("Импорт завершён: прочитано %d, добавлено %d, отклонено %d, пропущено %d за %s (%.0f строк/с)%n",
+                    report.read(), report.inserted(), report.rejected(), report.skipped(),
+                    report.elapsed(), report.rowsPerSecond());
+            if (report.rejectsFile() != null) {
+                System.out.println("Отклонённые строки: " + report.rejectsFile());
+            }
+        } catch (InvalidInputException | IllegalArgumentException e) {
+            System.out.println("Ошибка ввода: " + e.getMessage());
+        } catch (UserImportException e) {
+            System.out.println("Ошибка импорта: " + e.getMessage() + ", повторите запуск с --resume");
+            logger.error("Ошибка импорта", e);
+        }
+    }
+
+    // export <файл.csv|файл.ndjson>[.gz] [--gzip] [--max-file-mb N]
+    private static void runExport(String[] args) {
+        try {
+            if (args.length < 2) {
+                throw new InvalidInputException("Использование: export <файл> [--gzip] [--max-file-mb N]");
+            }
+            ExportOptions options = ExportOptions.defaults();
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--gzip" -> options = options.withGzip(true);
+                    case "--max-file-mb" ->
+                            options = options.withMaxFileBytes(Long.parseLong(optionValue(args, ++i)) << 20);
+                    default -> throw new InvalidInputException("Неизвестный параметр: " + args[i]);
+                }
+            }
+            ExportReport report = new UserExporterImpl(userService()).exportTo(Path.of(args[1]), options);
+            System.out.printf("Выгрузка завершена: %d строк, %d байт за %s (%.1f МБ/с)%n",
+                    report.rows(), report.bytes(), report.elapsed(), report.megabytesPerSecond());
+            report.files().forEach(file -> System.out.println("  " + file));
+        } catch (InvalidInputException | IllegalArgumentException e) {
+            System.out.println("Ошибка ввода: " + e.getMessage());
+        } catch (UserReadException e) {
+            System.out.println("Ошибка выгрузки: " + e.getMessage());
+            logger.error("Ошибка выгрузки", e);
+        }
+    }
+
+    // rebalance <прежнее число шардов>: переносит пользователей после добавления шардов в users.shards
+    private static void runRebalance(String[] args) {
+        try {
+            if (args.length < 2) {
+                throw new InvalidInputException("Использование: rebalance <прежнее число шардов>");
+            }
+            List<SessionFactory> shards = HibernateUtil.getShardSessionFactories();
+            if (shards.isEmpty()) {
+                throw new InvalidInputException("Шарды не заданы: укажите -Dusers.shards=url1,url2,...");
+            }
+            ShardRebalancer.RebalanceReport report = new ShardRebalancer(shards).rebalance(Integer.parseInt(args[1]));
+            System.out.printf("Перенос завершён: просмотрено %d, перенесено %d за %d мс%n",
+                    report.scanned(), report.moved(), report.elapsed().toMillis());
+        } catch (InvalidInputException | IllegalArgumentException e) {
+            System.out.println("Ошибка ввода: " + e.getMessage());
+        } catch (UserUpdateException e) {
+            System.out.println("Перенос прерван: " + e.getMessage());
+            logger.error("Ошибка перебалансировки шардов", e);
+        }
+    }
+
+    // report [ширина корзины возраста]: гистограмма возрастов по колоночному срезу таблицы
+    private static void runReport(String[] args) {
+        try {
+            int bucketWidth = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+            long start = System.nanoTime();
+            ColumnarUserSnapshot snapshot = new ColumnarUserSnapshot(createUserDao());
+            snapshot.rebuild();
+            UserColumns columns = snapshot.columns();
+            long loaded = System.nanoTime();
+            List<AgeBucket> histogram = columns.ageHistogram(bucketWidth);
+            System.out.printf("Загружено %d пользователей за %d мс, срез занимает ~%d КБ, гистограмма за %d мкс%n",
+                    columns.size(), (loaded - start) / 1_000_000, columns.memoryBytes() >> 10,
+                    (System.nanoTime() - loaded) / 1_000);
+            histogram.forEach(bucket -> System.out.printf("  %3d-%-3d %d%n",
+                    bucket.fromAge(), bucket.toAge() - 1, bucket.count()));
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ошибка ввода: " + e.getMessage());
+        } catch (UserReadException e) {
+            System.out.println("Ошибка чтения пользователей: " + e.getMessage());
+            logger.error("Ошибка построения отчёта", e);
+        }
+    }
+
+    private static String optionValue(String[] args, int index) {
+        if (index >= args.length) {
+            throw new InvalidInputException("Не указано значение параметра " + args[index - 1]);
+        }
+        return args[index];
+    }
+
     private static void printMenu() {
         System.out.println("\nПользовательский интерфейс");
         System.out.println("1. Создать пользователя");
@@ -54,6 +379,8 @@ public class Main {
         System.out.println("3. Показать всех пользователей");
         System.out.println("4. Обновить пользователя");
         System.out.println("5. Удалить пользователя");
+        System.out.println("6. Найти пользователя по email");
+        System.out.println("7. Показать метрики");
         System.out.println("0. Выход");
         System.out.print("Выберите опцию: ");
     }
@@ -68,7 +395,7 @@ public class Main {
             int age = Integer.parseInt(scanner.nextLine());
 
             User user = new User(name, email, age);
-            userService.addUser(user);
+            userService().addUser(user);
 
             System.out.println("Пользователь успешно добавлен");
             logger.info("Создан пользователь: {}", user);
@@ -86,7 +413,7 @@ public class Main {
             System.out.print("Введите ID пользователя: ");
             Long id = Long.parseLong(scanner.nextLine());
 
-            User user = userService.getUserById(id);
+            User user = userService().getUserById(id);
             System.out.println(user);
 
         } catch (NumberFormatException e) {
@@ -101,13 +428,36 @@ public class Main {
         }
     }
 
-    private static void getAllUsers() {
+    private static void printMetrics() {
+        if (!metricsEnabled) {
+            System.out.println("Метрики выключены, запустите с -Dusers.metrics.enabled=true");
+            return;
+        }
+        System.out.print(MetricsRegistry.getDefault().textSnapshot());
+    }
+
+    private static void getUserByEmail() {
         try {
-            List<User> users = userService.getAllUsers();
-            if (users.isEmpty()) {
+            System.out.print("Введите email: ");
+            String email = scanner.nextLine();
+            userService().getUserByEmail(email).ifPresentOrElse(
+                    System.out::println,
+                    () -> System.out.println("Пользователь с email " + email + " не найден"));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        } catch (UserReadException e) {
+            System.out.println("Ошибка при чтении пользователя: " + e.getMessage());
+            logger.error("Ошибка при чтении пользователя", e);
+        }
+    }
+
+    private static void getAllUsers() {
+        try (Stream<User> users = userService().streamAllUsers()) {
+            Iterator<User> iterator = users.iterator();
+            if (!iterator.hasNext()) {
                 System.out.println("Нет пользователей в базе");
             } else {
-                users.forEach(System.out::println);
+                iterator.forEachRemaining(System.out::println);
             }
         } catch (UserReadException e) {
             System.out.println("Ошибка при чтении пользователей: " + e.getMessage());
@@ -120,27 +470,34 @@ public class Main {
             System.out.print("Введите ID пользователя для обновления: ");
             Long id = Long.parseLong(scanner.nextLine());
 
-            User user = userService.getUserById(id);
+            User user = userService().getUserById(id);
 
             System.out.print("Новое имя (" + user.getName() + "): ");
             String name = scanner.nextLine();
-            if (!name.isBlank()) user.setName(name);
 
             System.out.print("Новый email (" + user.getEmail() + "): ");
             String email = scanner.nextLine();
-            if (!email.isBlank()) user.setEmail(email);
 
             System.out.print("Новый возраст (" + user.getAge() + "): ");
             String ageInput = scanner.nextLine();
-            if (!ageInput.isBlank()) user.setAge(Integer.parseInt(ageInput));
 
-            userService.updateUser(user);
-            System.out.println("Пользователь успешно обновлён: " + user);
-            logger.info("Обновлён пользователь: {}", user);
+            UserUpdate changes = new UserUpdate(
+                    name.isBlank() ? null : name,
+                    email.isBlank() ? null : email,
+                    ageInput.isBlank() ? null : Integer.parseInt(ageInput));
+            if (changes.isEmpty()) {
+                System.out.println("Изменений нет");
+                return;
+            }
+            userService().updateUserFields(id, changes);
+            System.out.println("Пользователь успешно обновлён");
+            logger.info("Обновлён пользователь с id {}: {}", id, changes);
 
         } catch (NumberFormatException e) {
             System.out.println("Возраст должен быть числом");
             logger.warn("Неверный формат возраста", e);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Ошибка ввода: " + e.getMessage());
         } catch (UserNotFoundException e) {
             System.out.println("Пользователь с таким ID не найден");
             logger.warn("Попытка обновления несуществующего пользователя", e);
@@ -155,7 +512,7 @@ public class Main {
             System.out.print("Введите ID пользователя для удаления: ");
             Long id = Long.parseLong(scanner.nextLine());
 
-            userService.deleteUserById(id);
+            userService().deleteUserById(id);
             System.out.println("Пользователь успешно удалён");
             logger.info("Удалён пользователь с ID {}", id);
         } catch (NumberFormatException e) {
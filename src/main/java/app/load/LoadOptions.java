@@ -0,0 +1,90 @@
+package app.load;
+
+import java.time.Duration;
+
+// targetQps = 0 - замкнутый цикл: каждый клиент отправляет следующий запрос сразу после ответа.
+// Иначе открытый цикл с общим темпом targetQps, разделённым между клиентами поровну.
+public record LoadOptions(int clients, Duration duration, Duration warmup, double targetQps, OperationMix mix,
+                          int keys, double zipfExponent, boolean virtualThreads, Duration reportInterval,
+                          String label) {
+
+    public LoadOptions {
+        if (clients <= 0) {
+            throw new IllegalArgumentException("Число клиентов должно быть больше 0");
+        }
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Длительность замера должна быть больше 0");
+        }
+        if (warmup.isNegative()) {
+            throw new IllegalArgumentException("Прогрев не может быть отрицательным");
+        }
+        if (targetQps < 0) {
+            throw new IllegalArgumentException("Целевой QPS не может быть отрицательным");
+        }
+        if (keys <= 0) {
+            throw new IllegalArgumentException("Количество ключей должно быть больше 0");
+        }
+        if (reportInterval.isNegative() || reportInterval.isZero()) {
+            throw new IllegalArgumentException("Интервал отчёта должен быть больше 0");
+        }
+    }
+
+    public static LoadOptions defaults() {
+        return new LoadOptions(50, Duration.ofMinutes(1), Duration.ofSeconds(10), 0, OperationMix.defaults(),
+                10_000, 1.0, true, Duration.ofSeconds(1), "");
+    }
+
+    public boolean openLoop() {
+        return targetQps > 0;
+    }
+
+    public LoadOptions withClients(int clients) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withDuration(Duration duration) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withWarmup(Duration warmup) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withTargetQps(double targetQps) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withMix(OperationMix mix) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withKeys(int keys) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withZipfExponent(double zipfExponent) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withVirtualThreads(boolean virtualThreads) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withReportInterval(Duration reportInterval) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+
+    public LoadOptions withLabel(String label) {
+        return new LoadOptions(clients, duration, warmup, targetQps, mix, keys, zipfExponent, virtualThreads,
+                reportInterval, label);
+    }
+}
@@ -0,0 +1,182 @@
+package app.load;
+
+import app.load.OperationMix.Operation;
+import util.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Итог прогона. latency - задержка от запланированного момента отправки (с поправкой на
+// coordinated omission), serviceTime - от фактической отправки до ответа; в замкнутом цикле
+// они совпадают. toJson() пишет отчёт для сравнения прогонов между версиями.
+public record LoadReport(String label, Instant startedAt, LoadOptions options, Duration measured,
+                         Map<Operation, OperationResult> operations, Map<String, Long> errors,
+                         List<TimelinePoint> timeline) {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999", "p9999"};
+
+    public record OperationResult(long count, long errors, LatencyHistogram.Snapshot latency,
+                                  LatencyHistogram.Snapshot serviceTime) {
+
+        public double errorRate() {
+            return count == 0 ? 0 : (double) errors / count;
+        }
+    }
+
+    public record TimelinePoint(double second, long operations, long errors, double throughput, double p99Millis) {
+    }
+
+    public LoadReport {
+        operations = Map.copyOf(operations);
+        errors = Map.copyOf(errors);
+        timeline = List.copyOf(timeline);
+    }
+
+    public long totalOperations() {
+        return operations.values().stream().mapToLong(OperationResult::count).sum();
+    }
+
+    public long totalErrors() {
+        return operations.values().stream().mapToLong(OperationResult::errors).sum();
+    }
+
+    public double throughput() {
+        double seconds = measured.toNanos() / 1e9;
+        return seconds == 0 ? 0 : totalOperations() / seconds;
+    }
+
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Операций: %d, ошибок: %d, %.1f оп/с за %d с%n",
+                totalOperations(), totalErrors(), throughput(), measured.toSeconds()));
+        for (Operation operation : Operation.values()) {
+            OperationResult result = operations.get(operation);
+            if (result == null || result.count() == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.ROOT, "  %-6s %s, ошибок %.2f%%%n", operation.key(), result.latency(),
+                    result.errorRate() * 100));
+        }
+        return sb.toString();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\n");
+        field(json, 1, "label", label).append(",\n");
+        field(json, 1, "startedAt", startedAt.toString()).append(",\n");
+        indent(json, 1).append("\"environment\": {");
+        json.append("\"java\": ").append(quote(System.getProperty("java.version")));
+        json.append(", \"processors\": ").append(Runtime.getRuntime().availableProcessors());
+        json.append(", \"maxHeapMb\": ").append(Runtime.getRuntime().maxMemory() >> 20).append("},\n");
+        indent(json, 1).append("\"config\": {");
+        json.append("\"clients\": ").append(options.clients());
+        json.append(", \"durationSeconds\": ").append(options.duration().toSeconds());
+        json.append(", \"warmupSeconds\": ").append(options.warmup().toSeconds());
+        json.append(", \"mode\": ").append(quote(options.openLoop() ? "open" : "closed"));
+        json.append(", \"targetQps\": ").append(number(options.targetQps()));
+        json.append(", \"mix\": ").append(quote(options.mix().toString()));
+        json.append(", \"keys\": ").append(options.keys());
+        json.append(", \"zipfExponent\": ").append(number(options.zipfExponent()));
+        json.append(", \"virtualThreads\": ").append(options.virtualThreads()).append("},\n");
+        indent(json, 1).append("\"totals\": {");
+        json.append("\"operations\": ").append(totalOperations());
+        json.append(", \"errors\": ").append(totalErrors());
+        json.append(", \"measuredSeconds\": ").append(number(measured.toNanos() / 1e9));
+        json.append(", \"throughput\": ").append(number(throughput())).append("},\n");
+        indent(json, 1).append("\"operations\": {");
+        boolean first = true;
+        for (Operation operation : Operation.values()) {
+            OperationResult result = operations.get(operation);
+            if (result == null) {
+                continue;
+            }
+            json.append(first ? "\n" : ",\n");
+            first = false;
+            indent(json, 2).append(quote(operation.key())).append(": {");
+            json.append("\"count\": ").append(result.count());
+            json.append(", \"errors\": ").append(result.errors());
+            json.append(", \"errorRate\": ").append(number(result.errorRate()));
+            json.append(", \"throughput\": ").append(number(result.count() / Math.max(1e-9, measured.toNanos() / 1e9)));
+            json.append(",\n");
+            indent(json, 3).append("\"latencyMs\": ");
+            latency(json, result.latency()).append(",\n");
+            indent(json, 3).append("\"serviceTimeMs\": ");
+            latency(json, result.serviceTime()).append('}');
+        }
+        json.append(first ? "},\n" : "\n  },\n");
+        indent(json, 1).append("\"errorsByType\": {");
+        first = true;
+        for (Map.Entry<String, Long> entry : errors.entrySet()) {
+            json.append(first ? "" : ", ").append(quote(entry.getKey())).append(": ").append(entry.getValue());
+            first = false;
+        }
+        json.append("},\n");
+        indent(json, 1).append("\"timeline\": [");
+        for (int i = 0; i < timeline.size(); i++) {
+            TimelinePoint point = timeline.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            indent(json, 2).append("{\"second\": ").append(number(point.second()));
+            json.append(", \"operations\": ").append(point.operations());
+            json.append(", \"errors\": ").append(point.errors());
+            json.append(", \"throughput\": ").append(number(point.throughput()));
+            json.append(", \"p99Ms\": ").append(number(point.p99Millis())).append('}');
+        }
+        json.append(timeline.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static StringBuilder latency(StringBuilder json, LatencyHistogram.Snapshot snapshot) {
+        json.append("{\"mean\": ").append(number(snapshot.getMeanNanos() / 1e6));
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            json.append(", ").append(quote(PERCENTILE_NAMES[i])).append(": ")
+                    .append(number(snapshot.percentileMillis(PERCENTILES[i])));
+        }
+        return json.append(", \"max\": ").append(number(snapshot.getMaxNanos() / 1e6)).append('}');
+    }
+
+    private static StringBuilder field(StringBuilder json, int level, String name, String value) {
+        return indent(json, level).append(quote(name)).append(": ").append(quote(value));
+    }
+
+    private static StringBuilder indent(StringBuilder json, int level) {
+        return json.append("  ".repeat(level));
+    }
+
+    private static String number(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,267 @@
+package app.load;
+
+import app.load.LoadReport.OperationResult;
+import app.load.LoadReport.TimelinePoint;
+import app.load.OperationMix.Operation;
+import model.User;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import service.UserService;
+import util.metrics.LatencyHistogram;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
+
+// Прогон нагрузки через UserService. Перед стартом создаётся keys пользователей - ключи для
+// чтений и обновлений, их выбор подчиняется распределению Ципфа (перемешанному, чтобы горячими
+// были не самые старые id). Удаляются только пользователи, вставленные самим прогоном;
+// если таких пока нет, вместо удаления выполняется вставка.
+//
+// В открытом цикле у каждого клиента своё расписание отправок. Если ответ задержался,
+// следующие запросы уходят сразу, а задержка считается от запланированного момента:
+// время в очереди за медленным запросом попадает в гистограмму (поправка на coordinated
+// omission). Запросы, запланированные на прогрев, в результаты не входят.
+public class LoadTest {
+
+    private static final Logger logger = LogManager.getLogger(LoadTest.class);
+    private static final int SEED_BATCH = 1000;
+
+    private final UserService userService;
+    private final LoadOptions options;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong inserted = new AtomicLong();
+    private final ConcurrentLinkedQueue<Long> deletable = new ConcurrentLinkedQueue<>();
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final Map<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final AtomicReference<Interval> interval = new AtomicReference<>(new Interval());
+    private final List<TimelinePoint> timeline = Collections.synchronizedList(new ArrayList<>());
+    private long[] keys;
+    private ZipfDistribution zipf;
+
+    public LoadTest(UserService userService, LoadOptions options) {
+        this.userService = userService;
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new OperationStats());
+        }
+    }
+
+    public LoadReport run() {
+        Instant startedAt = Instant.now();
+        seed();
+        long start = System.nanoTime();
+        long measureFrom = start + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        long tick = options.reportInterval().toNanos();
+        logger.info("Нагрузка: {} клиентов, {}, смесь {}, прогрев {} с, замер {} с", options.clients(),
+                options.openLoop() ? "открытый цикл " + options.targetQps() + " оп/с" : "замкнутый цикл",
+                options.mix(), options.warmup().toSeconds(), options.duration().toSeconds());
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "load-timeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> sample(measureFrom, tick), measureFrom + tick - System.nanoTime(), tick,
+                TimeUnit.NANOSECONDS);
+        try (ExecutorService clients = options.virtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(options.clients())) {
+            for (int i = 0; i < options.clients(); i++) {
+                int client = i;
+                clients.submit(() -> runClient(client, start, measureFrom, end));
+            }
+        } finally {
+            sampler.shutdownNow();
+        }
+
+        Map<Operation, OperationResult> results = new EnumMap<>(Operation.class);
+        stats.forEach((operation, operationStats) -> {
+            if (options.mix().shares().containsKey(operation) || operationStats.count.sum() > 0) {
+                results.put(operation, operationStats.result());
+            }
+        });
+        Map<String, Long> errors = new TreeMap<>();
+        errorsByType.forEach((type, count) -> errors.put(type, count.sum()));
+        return new LoadReport(options.label(), startedAt, options, options.duration(), results, errors,
+                new ArrayList<>(timeline));
+    }
+
+    // Удаляет ключи и пользователей, вставленных прогоном; ошибки только логируются.
+    public void cleanup() {
+        List<Long> ids = new ArrayList<>(deletable);
+        for (long key : keys == null ? new long[0] : keys) {
+            ids.add(key);
+        }
+        for (Long id : ids) {
+            try {
+                userService.deleteUserById(id);
+            } catch (RuntimeException e) {
+                logger.warn("Не удалось удалить пользователя {} после нагрузки", id, e);
+            }
+        }
+        deletable.clear();
+        logger.info("Удалено пользователей нагрузки: {}", ids.size());
+    }
+
+    private void seed() {
+        long start = System.nanoTime();
+        List<Long> ids = new ArrayList<>(options.keys());
+        List<User> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < options.keys(); i++) {
+            batch.add(newUser(ThreadLocalRandom.current()));
+            if (batch.size() == SEED_BATCH || i == options.keys() - 1) {
+                userService.addUsers(batch);
+                batch.stream().map(User::getId).filter(Objects::nonNull).forEach(ids::add);
+                batch.clear();
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("Не удалось создать ни одного ключа для нагрузки");
+        }
+        Collections.shuffle(ids);
+        keys = ids.stream().mapToLong(Long::longValue).toArray();
+        zipf = new ZipfDistribution(keys.length, options.zipfExponent());
+        logger.info("Создано {} ключей за {} мс", keys.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void runClient(int client, long start, long measureFrom, long end) {
+        RandomGenerator random = ThreadLocalRandom.current();
+        long period = options.openLoop() ? (long) (1e9 * options.clients() / options.targetQps()) : 0;
+        long next = start + period * client / options.clients();
+        while (!Thread.currentThread().isInterrupted()) {
+            long intended;
+            if (period > 0) {
+                if (next >= end) {
+                    return;
+                }
+                long now;
+                while ((now = System.nanoTime()) < next) {
+                    LockSupport.parkNanos(next - now);
+                }
+                intended = next;
+                next += period;
+            } else {
+                intended = System.nanoTime();
+                if (intended >= end) {
+                    return;
+                }
+            }
+            long sent = System.nanoTime();
+            Operation operation = options.mix().next(random);
+            RuntimeException failure = null;
+            try {
+                operation = execute(operation, random);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            long done = System.nanoTime();
+            if (intended >= measureFrom) {
+                record(operation, done - intended, done - sent, failure);
+            }
+        }
+    }
+
+    private Operation execute(Operation operation, RandomGenerator random) {
+        switch (operation) {
+            case READ -> userService.getUserById(nextKey(random));
+            case UPDATE -> userService.updateUserFields(nextKey(random), UserUpdate.age(18 + random.nextInt(60)));
+            case INSERT -> insert(random);
+            case DELETE -> {
+                Long id = deletable.poll();
+                if (id == null) {
+                    insert(random);
+                    return Operation.INSERT;
+                }
+                userService.deleteUserById(id);
+            }
+        }
+        return operation;
+    }
+
+    private void insert(RandomGenerator random) {
+        User user = newUser(random);
+        userService.addUser(user);
+        deletable.add(user.getId());
+    }
+
+    private User newUser(RandomGenerator random) {
+        long n = inserted.incrementAndGet();
+        return new User("Нагрузка " + n, "load-" + runId + "-" + n + "@load.local", 18 + random.nextInt(60));
+    }
+
+    private long nextKey(RandomGenerator random) {
+        return keys[zipf.sample(random)];
+    }
+
+    private void record(Operation operation, long latencyNanos, long serviceNanos, RuntimeException failure) {
+        stats.get(operation).record(latencyNanos, serviceNanos, failure != null);
+        interval.get().record(latencyNanos, failure != null);
+        if (failure != null) {
+            errorsByType.computeIfAbsent(failure.getClass().getSimpleName(), type -> new LongAdder()).increment();
+        }
+    }
+
+    private void sample(long measureFrom, long tick) {
+        Interval finished = interval.getAndSet(new Interval());
+        long operations = finished.operations.sum();
+        TimelinePoint point = new TimelinePoint((System.nanoTime() - measureFrom) / 1e9, operations,
+                finished.errors.sum(), operations / (tick / 1e9), finished.latency.snapshot().percentileMillis(99));
+        timeline.add(point);
+        logger.info("{} с: {} оп/с, ошибок {}, p99 {} мс", Math.round(point.second()), Math.round(point.throughput()),
+                point.errors(), point.p99Millis());
+    }
+
+    private static final class OperationStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+        private void record(long latencyNanos, long serviceNanos, boolean failed) {
+            count.increment();
+            if (failed) {
+                errors.increment();
+            }
+            latency.record(latencyNanos);
+            serviceTime.record(serviceNanos);
+        }
+
+        private OperationResult result() {
+            return new OperationResult(count.sum(), errors.sum(), latency.snapshot(), serviceTime.snapshot());
+        }
+    }
+
+    private static final class Interval {
+        private final LongAdder operations = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private void record(long latencyNanos, boolean failed) {
+            operations.increment();
+            if (failed) {
+                errors.increment();
+            }
+            latency.record(latencyNanos);
+        }
+    }
+}
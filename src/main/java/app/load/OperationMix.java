@@ -0,0 +1,97 @@
+package app.load;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+// Доли операций нагрузки: "read=70,insert=10,update=15,delete=5". Веса нормируются,
+// неуказанные операции не выполняются.
+public final class OperationMix {
+
+    public enum Operation {
+        READ, INSERT, UPDATE, DELETE;
+
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Operation, Double> shares;
+    private final Operation[] operations;
+    private final double[] cumulative;
+
+    private OperationMix(Map<Operation, Double> weights) {
+        double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Сумма долей операций должна быть больше 0");
+        }
+        this.shares = new EnumMap<>(Operation.class);
+        this.operations = new Operation[weights.size()];
+        this.cumulative = new double[weights.size()];
+        double sum = 0;
+        int i = 0;
+        for (Map.Entry<Operation, Double> entry : weights.entrySet()) {
+            shares.put(entry.getKey(), entry.getValue() / total);
+            sum += entry.getValue() / total;
+            operations[i] = entry.getKey();
+            cumulative[i++] = sum;
+        }
+        cumulative[cumulative.length - 1] = 1.0;
+    }
+
+    public static OperationMix defaults() {
+        return parse("read=70,insert=10,update=15,delete=5");
+    }
+
+    public static OperationMix parse(String spec) {
+        Map<Operation, Double> weights = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Ожидается операция=доля, получено: " + part);
+            }
+            Operation operation;
+            try {
+                operation = Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Неизвестная операция: " + pair[0].trim()
+                        + " (read, insert, update, delete)");
+            }
+            double weight = Double.parseDouble(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Доля операции не может быть отрицательной: " + part);
+            }
+            if (weight > 0) {
+                weights.merge(operation, weight, Double::sum);
+            }
+        }
+        return new OperationMix(weights);
+    }
+
+    public Operation next(RandomGenerator random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (value < cumulative[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    public Map<Operation, Double> shares() {
+        return Map.copyOf(shares);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        shares.forEach((operation, share) -> {
+            if (!sb.isEmpty()) {
+                sb.append(',');
+            }
+            sb.append(operation.key()).append('=').append(String.format(Locale.ROOT, "%.3f", share));
+        });
+        return sb.toString();
+    }
+}
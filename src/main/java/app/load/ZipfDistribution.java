@@ -0,0 +1,49 @@
+package app.load;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+// Распределение Ципфа по рангам 0..n-1: P(k) ~ 1 / (k + 1)^exponent. Экспонента 0 - равномерное,
+// около 1 - типичный "горячий" набор ключей. Выборка - двоичный поиск по заранее посчитанной
+// функции распределения (n значений double).
+public final class ZipfDistribution {
+
+    private final int size;
+    private final double[] cdf;
+
+    public ZipfDistribution(int size, double exponent) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Количество ключей должно быть больше 0");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Экспонента Ципфа не может быть отрицательной");
+        }
+        this.size = size;
+        if (exponent == 0) {
+            this.cdf = null;
+            return;
+        }
+        this.cdf = new double[size];
+        double sum = 0;
+        for (int k = 0; k < size; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cdf[k] /= sum;
+        }
+        cdf[size - 1] = 1.0;
+    }
+
+    public int sample(RandomGenerator random) {
+        if (cdf == null) {
+            return random.nextInt(size);
+        }
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return index >= 0 ? index : Math.min(-index - 1, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+}
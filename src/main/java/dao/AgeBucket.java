@@ -0,0 +1,5 @@
+package dao;
+
+// Возрасты от fromAge включительно до toAge не включительно.
+public record AgeBucket(int fromAge, int toAge, long count) {
+}
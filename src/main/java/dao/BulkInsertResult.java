@@ -0,0 +1,27 @@
+package dao;
+
+import model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public record BulkInsertResult(int inserted, List<Rejected> rejected) {
+
+    public record Rejected(User user, String reason) {
+    }
+
+    public BulkInsertResult {
+        rejected = List.copyOf(rejected);
+    }
+
+    public static BulkInsertResult empty() {
+        return new BulkInsertResult(0, List.of());
+    }
+
+    public BulkInsertResult plus(BulkInsertResult other) {
+        List<Rejected> all = new ArrayList<>(rejected.size() + other.rejected.size());
+        all.addAll(rejected);
+        all.addAll(other.rejected);
+        return new BulkInsertResult(inserted + other.inserted, all);
+    }
+}
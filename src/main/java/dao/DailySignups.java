@@ -0,0 +1,6 @@
+package dao;
+
+import java.time.LocalDate;
+
+public record DailySignups(LocalDate day, long count) {
+}
@@ -0,0 +1,21 @@
+package dao;
+
+public record Page(int number, int size) {
+
+    public Page {
+        if (number < 0) {
+            throw new IllegalArgumentException("Номер страницы не может быть отрицательным");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть больше 0");
+        }
+    }
+
+    public static Page of(int number, int size) {
+        return new Page(number, size);
+    }
+
+    public int offset() {
+        return Math.multiplyExact(number, size);
+    }
+}
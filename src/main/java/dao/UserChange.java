@@ -0,0 +1,14 @@
+package dao;
+
+import model.User;
+
+import java.time.LocalDateTime;
+
+// Одно изменение из ленты: user - состояние строки после вставки или обновления,
+// для удаления null. sequence - позиция изменения в ленте, она же водяной знак.
+public record UserChange(long sequence, long userId, User user, LocalDateTime changedAt) {
+
+    public boolean isDeleted() {
+        return user == null;
+    }
+}
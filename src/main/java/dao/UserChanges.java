@@ -0,0 +1,16 @@
+package dao;
+
+import java.util.List;
+
+// Страница ленты изменений по возрастанию sequence. nextWatermark передаётся в следующий
+// вызов getChangesSince; если изменений нет, он равен переданному водяному знаку.
+public record UserChanges(List<UserChange> changes, long nextWatermark) {
+
+    public UserChanges {
+        changes = List.copyOf(changes);
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+}
@@ -1,14 +1,38 @@
 package dao;
 
 import model.User;
+import model.UserSummary;
+import model.UserUpdate;
 
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserDao {
     void addUser(User user);
+    BulkInsertResult addUsers(Collection<User> users);
     Optional<User> getUserById(Long id);
+    Optional<User> getUserByEmail(String email);
     List<User> getAllUsers();
+    Stream<User> streamAllUsers();
+    List<User> getUsersAfter(Long lastId, int limit);
+    Optional<UserSummary> getUserSummaryById(Long id);
+    List<UserSummary> getUserSummariesAfter(Long lastId, int limit);
+    Stream<UserSummary> streamUserSummaries();
+    List<User> findUsers(UserFilter filter, Page page);
+    long countUsers(UserFilter filter);
+    List<AgeBucket> ageHistogram(int bucketWidth);
+    List<DailySignups> signupsPerDay(LocalDate from, LocalDate to);
     void updateUser(User user);
-    void deleteUserById(Long id);
+    void updateUsers(Collection<User> users);
+    int updateUserFields(Long id, UserUpdate changes);
+    int deleteUserById(Long id);
+    long exportUsers(UserExportFormat format, OutputStream out);
+    // Лент изменений столько, сколько независимых последовательностей change_seq: одна
+    // у одиночной базы, по одной на шард. Водяной знак у каждой ленты свой.
+    int changeFeedCount();
+    UserChanges getChangesSince(int feed, long watermark, int limit);
 }
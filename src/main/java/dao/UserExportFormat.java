@@ -0,0 +1,40 @@
+package dao;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum UserExportFormat {
+    CSV(".csv", "id,name,email,age,created_at\n"),
+    NDJSON(".ndjson", "");
+
+    private final String extension;
+    private final byte[] header;
+
+    UserExportFormat(String extension, String header) {
+        this.extension = extension;
+        this.header = header.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public byte[] header() {
+        return header.clone();
+    }
+
+    public static UserExportFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Неизвестный формат файла: " + name + " (ожидается .csv, .ndjson или .jsonl)");
+    }
+}
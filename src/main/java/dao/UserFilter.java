@@ -0,0 +1,25 @@
+package dao;
+
+import java.time.LocalDateTime;
+
+// Пустые поля не участвуют в фильтре. Границы возраста включительно,
+// createdFrom включительно, createdTo - нет.
+public record UserFilter(Integer minAge, Integer maxAge, LocalDateTime createdFrom, LocalDateTime createdTo,
+                         String namePrefix) {
+
+    public static UserFilter all() {
+        return new UserFilter(null, null, null, null, null);
+    }
+
+    public UserFilter withAge(Integer minAge, Integer maxAge) {
+        return new UserFilter(minAge, maxAge, createdFrom, createdTo, namePrefix);
+    }
+
+    public UserFilter withCreated(LocalDateTime createdFrom, LocalDateTime createdTo) {
+        return new UserFilter(minAge, maxAge, createdFrom, createdTo, namePrefix);
+    }
+
+    public UserFilter withNamePrefix(String namePrefix) {
+        return new UserFilter(minAge, maxAge, createdFrom, createdTo, namePrefix);
+    }
+}
@@ -0,0 +1,163 @@
+package dao.impl;
+
+import dao.BulkInsertResult;
+import dao.UserDao;
+import model.User;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import util.cache.BoundedTtlCache;
+import util.cache.CacheStats;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+public class CachingUserDao extends ForwardingUserDao {
+
+    private static final Logger logger = LogManager.getLogger(CachingUserDao.class);
+    private static final int STAMP_STRIPES = 64;
+
+    private final BoundedTtlCache<Long, Optional<User>> cache;
+    private final BoundedTtlCache<String, Long> emailToId;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    // Счётчики записей по полосам id: загрузка, во время которой прошла запись,
+    // не оставляет в кэше устаревшее значение.
+    private final AtomicLongArray writeStamps = new AtomicLongArray(STAMP_STRIPES);
+
+    public CachingUserDao(UserDao delegate, int maxSize, Duration ttl, Duration negativeTtl) {
+        this(delegate, maxSize, ttl, negativeTtl, System::nanoTime);
+    }
+
+    CachingUserDao(UserDao delegate, int maxSize, Duration ttl, Duration negativeTtl, LongSupplier nanoClock) {
+        super(delegate);
+        this.cache = new BoundedTtlCache<>(maxSize, nanoClock);
+        this.emailToId = new BoundedTtlCache<>(maxSize, nanoClock);
+        this.ttlNanos = ttl.toNanos();
+        this.negativeTtlNanos = negativeTtl.toNanos();
+        logger.info("Кэш пользователей включён: maxSize={}, ttl={}, negativeTtl={}", maxSize, ttl, negativeTtl);
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        Optional<User> cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached.map(User::copy);
+        }
+        int stripe = stripe(id);
+        long stamp = writeStamps.get(stripe);
+        Optional<User> loaded = delegate.getUserById(id);
+        if (loaded.isPresent()) {
+            cache.put(id, loaded.map(User::copy), ttlNanos);
+        } else if (negativeTtlNanos > 0) {
+            cache.put(id, Optional.empty(), negativeTtlNanos);
+        }
+        if (writeStamps.get(stripe) != stamp) {
+            cache.invalidate(id);
+        }
+        return loaded;
+    }
+
+    // Кэшируется только соответствие email -> id; сам пользователь берётся через кэш по id
+    // и сверяется с запрошенным email, так что смена email не требует отдельной инвалидации.
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        Long id = emailToId.getIfPresent(normalized);
+        if (id != null) {
+            Optional<User> user = getUserById(id);
+            if (user.isPresent() && normalized.equals(user.get().getEmail())) {
+                return user;
+            }
+            emailToId.invalidate(normalized);
+        }
+        Optional<User> loaded = delegate.getUserByEmail(normalized);
+        loaded.ifPresent(user -> emailToId.put(normalized, user.getId(), ttlNanos));
+        return loaded;
+    }
+
+    @Override
+    public void addUser(User user) {
+        try {
+            delegate.addUser(user);
+        } finally {
+            invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        try {
+            return delegate.addUsers(users);
+        } finally {
+            users.forEach(user -> invalidate(user.getId()));
+        }
+    }
+
+    @Override
+    public void updateUser(User user) {
+        try {
+            delegate.updateUser(user);
+        } finally {
+            invalidate(user.getId());
+        }
+    }
+
+    @Override
+    public void updateUsers(Collection<User> users) {
+        try {
+            delegate.updateUsers(users);
+        } finally {
+            users.forEach(user -> invalidate(user.getId()));
+        }
+    }
+
+    @Override
+    public int updateUserFields(Long id, UserUpdate changes) {
+        try {
+            return delegate.updateUserFields(id, changes);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        try {
+            return delegate.deleteUserById(id);
+        } finally {
+            invalidate(id);
+        }
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public CacheStats getEmailStats() {
+        return emailToId.stats();
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < STAMP_STRIPES; i++) {
+            writeStamps.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+        emailToId.invalidateAll();
+    }
+
+    private void invalidate(Long id) {
+        if (id == null) {
+            return;
+        }
+        writeStamps.incrementAndGet(stripe(id));
+        cache.invalidate(id);
+    }
+
+    private static int stripe(Long id) {
+        return (int) (id ^ (id >>> 32)) & (STAMP_STRIPES - 1);
+    }
+}
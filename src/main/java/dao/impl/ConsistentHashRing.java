@@ -0,0 +1,55 @@
+package dao.impl;
+
+import java.util.Arrays;
+
+// Консистентное хеширование id по шардам: у каждого шарда VIRTUAL_NODES точек на кольце,
+// id принадлежит первой точке не меньше его хеша. При добавлении шарда переезжает около
+// 1/(N+1) id, и только на новый шард. Точки зависят лишь от номера шарда, поэтому кольцо
+// одинаково во всех процессах и в ShardRebalancer.
+final class ConsistentHashRing {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private final int shardCount;
+    private final long[] points;
+    private final int[] owners;
+
+    ConsistentHashRing(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Количество шардов должно быть больше 0");
+        }
+        this.shardCount = shardCount;
+        long[][] nodes = new long[shardCount * VIRTUAL_NODES][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES; node++) {
+                nodes[shard * VIRTUAL_NODES + node] = new long[]{mix(((long) shard << 32) | node), shard};
+            }
+        }
+        Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[nodes.length];
+        this.owners = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            points[i] = nodes[i][0];
+            owners[i] = (int) nodes[i][1];
+        }
+    }
+
+    int shardFor(long id) {
+        int index = Arrays.binarySearch(points, mix(id));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    int shardCount() {
+        return shardCount;
+    }
+
+    // Финализатор murmur3: соседние id расходятся по всему кольцу.
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+}
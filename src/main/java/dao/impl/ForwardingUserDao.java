@@ -0,0 +1,134 @@
+package dao.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserDao;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public abstract class ForwardingUserDao implements UserDao {
+
+    protected final UserDao delegate;
+
+    protected ForwardingUserDao(UserDao delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void addUser(User user) {
+        delegate.addUser(user);
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        return delegate.addUsers(users);
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return delegate.getUserById(id);
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return delegate.getUserByEmail(email);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public Stream<User> streamAllUsers() {
+        return delegate.streamAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        return delegate.getUsersAfter(lastId, limit);
+    }
+
+    @Override
+    public Optional<UserSummary> getUserSummaryById(Long id) {
+        return delegate.getUserSummaryById(id);
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return delegate.getUserSummariesAfter(lastId, limit);
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        return delegate.streamUserSummaries();
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        return delegate.findUsers(filter, page);
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return delegate.countUsers(filter);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        return delegate.ageHistogram(bucketWidth);
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        return delegate.signupsPerDay(from, to);
+    }
+
+    @Override
+    public void updateUser(User user) {
+        delegate.updateUser(user);
+    }
+
+    @Override
+    public void updateUsers(Collection<User> users) {
+        delegate.updateUsers(users);
+    }
+
+    @Override
+    public int updateUserFields(Long id, UserUpdate changes) {
+        return delegate.updateUserFields(id, changes);
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        return delegate.deleteUserById(id);
+    }
+
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        return delegate.exportUsers(format, out);
+    }
+
+    @Override
+    public int changeFeedCount() {
+        return delegate.changeFeedCount();
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        return delegate.getChangesSince(feed, watermark, limit);
+    }
+}
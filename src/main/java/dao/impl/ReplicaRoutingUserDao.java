@@ -0,0 +1,266 @@
+package dao.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserDao;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserReadException;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+// Записи идут в основную базу (delegate), чтение - в реплику. Чтобы видеть свои записи,
+// чтение по id, недавно изменённому этим процессом, и все остальные чтения после любой
+// недавней записи остаются на основной базе в течение окна staleness. Ошибка реплики
+// переводит чтение на основную базу и отключает реплику на retryAfter.
+public class ReplicaRoutingUserDao extends ForwardingUserDao {
+
+    private static final Logger logger = LogManager.getLogger(ReplicaRoutingUserDao.class);
+    private static final int WRITE_STRIPES = 64;
+
+    public record RoutingStats(long replicaReads, long primaryReads, long fallbacks, boolean replicaAvailable) {
+    }
+
+    private final UserDao replica;
+    private final long stalenessNanos;
+    private final long retryAfterNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLongArray lastWriteByStripe = new AtomicLongArray(WRITE_STRIPES);
+    private volatile long lastWrite;
+    private volatile long replicaDownUntil;
+    private volatile boolean replicaDown;
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReplicaRoutingUserDao(UserDao primary, UserDao replica, Duration staleness, Duration retryAfter) {
+        this(primary, replica, staleness, retryAfter, System::nanoTime);
+    }
+
+    ReplicaRoutingUserDao(UserDao primary, UserDao replica, Duration staleness, Duration retryAfter,
+                          LongSupplier nanoClock) {
+        super(primary);
+        this.replica = replica;
+        this.stalenessNanos = staleness.toNanos();
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.nanoClock = nanoClock;
+        long neverWritten = nanoClock.getAsLong() - stalenessNanos - 1;
+        this.lastWrite = neverWritten;
+        for (int i = 0; i < WRITE_STRIPES; i++) {
+            lastWriteByStripe.set(i, neverWritten);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return read(recentlyWritten(lastWriteByStripe.get(stripe(id))), dao -> dao.getUserById(id));
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return read(recentlyWritten(lastWrite), dao -> dao.getUserByEmail(email));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return read(recentlyWritten(lastWrite), UserDao::getAllUsers);
+    }
+
+    // Откат на основную базу возможен только при открытии потока, не посреди чтения.
+    @Override
+    public Stream<User> streamAllUsers() {
+        return read(recentlyWritten(lastWrite), UserDao::streamAllUsers);
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        return read(recentlyWritten(lastWrite), dao -> dao.getUsersAfter(lastId, limit));
+    }
+
+    @Override
+    public Optional<UserSummary> getUserSummaryById(Long id) {
+        return read(recentlyWritten(lastWriteByStripe.get(stripe(id))), dao -> dao.getUserSummaryById(id));
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return read(recentlyWritten(lastWrite), dao -> dao.getUserSummariesAfter(lastId, limit));
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        return read(recentlyWritten(lastWrite), UserDao::streamUserSummaries);
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        return read(recentlyWritten(lastWrite), dao -> dao.findUsers(filter, page));
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return read(recentlyWritten(lastWrite), dao -> dao.countUsers(filter));
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        return read(recentlyWritten(lastWrite), dao -> dao.ageHistogram(bucketWidth));
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        return read(recentlyWritten(lastWrite), dao -> dao.signupsPerDay(from, to));
+    }
+
+    // Часть строк могла уже уйти в out, поэтому ошибка реплики не повторяется на основной базе.
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        if (recentlyWritten(lastWrite) || !replicaAvailable()) {
+            primaryReads.increment();
+            return delegate.exportUsers(format, out);
+        }
+        replicaReads.increment();
+        try {
+            return replica.exportUsers(format, out);
+        } catch (UserReadException e) {
+            markReplicaDown(e);
+            throw e;
+        }
+    }
+
+    // Окно ожидания коммитов в ленте отсчитывается от времени записи на основной базе;
+    // отставание реплики его съедает, поэтому лента читается только с основной.
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        primaryReads.increment();
+        return delegate.getChangesSince(feed, watermark, limit);
+    }
+
+    @Override
+    public void addUser(User user) {
+        try {
+            delegate.addUser(user);
+        } finally {
+            markWritten(user.getId());
+        }
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        try {
+            return delegate.addUsers(users);
+        } finally {
+            users.forEach(user -> markWritten(user.getId()));
+        }
+    }
+
+    @Override
+    public void updateUser(User user) {
+        try {
+            delegate.updateUser(user);
+        } finally {
+            markWritten(user.getId());
+        }
+    }
+
+    @Override
+    public void updateUsers(Collection<User> users) {
+        try {
+            delegate.updateUsers(users);
+        } finally {
+            users.forEach(user -> markWritten(user.getId()));
+        }
+    }
+
+    @Override
+    public int updateUserFields(Long id, UserUpdate changes) {
+        try {
+            return delegate.updateUserFields(id, changes);
+        } finally {
+            markWritten(id);
+        }
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        try {
+            return delegate.deleteUserById(id);
+        } finally {
+            markWritten(id);
+        }
+    }
+
+    public RoutingStats getStats() {
+        return new RoutingStats(replicaReads.sum(), primaryReads.sum(), fallbacks.sum(), replicaAvailable());
+    }
+
+    private <T> T read(boolean primaryOnly, Function<UserDao, T> operation) {
+        if (primaryOnly || !replicaAvailable()) {
+            primaryReads.increment();
+            return operation.apply(delegate);
+        }
+        try {
+            T result = operation.apply(replica);
+            replicaReads.increment();
+            return result;
+        } catch (UserReadException e) {
+            markReplicaDown(e);
+            fallbacks.increment();
+            primaryReads.increment();
+            return operation.apply(delegate);
+        }
+    }
+
+    private boolean recentlyWritten(long writtenAt) {
+        return nanoClock.getAsLong() - writtenAt <= stalenessNanos;
+    }
+
+    private boolean replicaAvailable() {
+        if (!replicaDown) {
+            return true;
+        }
+        if (nanoClock.getAsLong() - replicaDownUntil < 0) {
+            return false;
+        }
+        replicaDown = false;
+        logger.info("Повторная попытка чтения из реплики");
+        return true;
+    }
+
+    private void markReplicaDown(UserReadException e) {
+        replicaDownUntil = nanoClock.getAsLong() + retryAfterNanos;
+        replicaDown = true;
+        logger.warn("Реплика недоступна, чтение переведено на основную базу на {} мс",
+                retryAfterNanos / 1_000_000, e);
+    }
+
+    private void markWritten(Long id) {
+        long now = nanoClock.getAsLong();
+        lastWrite = now;
+        if (id != null) {
+            lastWriteByStripe.set(stripe(id), now);
+        }
+    }
+
+    private static int stripe(Long id) {
+        return (int) (id ^ (id >>> 32)) & (WRITE_STRIPES - 1);
+    }
+}
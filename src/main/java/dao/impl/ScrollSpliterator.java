@@ -0,0 +1,37 @@
+package dao.impl;
+
+import exceptions.dao.UserReadException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollableResults;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+final class ScrollSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+    private static final Logger logger = LogManager.getLogger(ScrollSpliterator.class);
+
+    private final ScrollableResults<T> results;
+
+    ScrollSpliterator(ScrollableResults<T> results) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+        this.results = results;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        try {
+            if (!results.next()) {
+                return false;
+            }
+            action.accept(results.get());
+            return true;
+        } catch (HibernateException e) {
+            logger.error("Ошибка при чтении потока пользователей", e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package dao.impl;
+
+import exceptions.dao.UserCreationException;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import util.GlobalIdSequence;
+
+import java.util.function.LongSupplier;
+
+// Выдаёт глобальные id блоками из users_global_seq: один nextval на GlobalIdSequence.BLOCK_SIZE
+// вставок. Неиспользованный остаток блока теряется при остановке процесса.
+public class SequenceIdAllocator implements LongSupplier {
+
+    private final SessionFactory sessionFactory;
+    private long next;
+    private long limit;
+
+    public SequenceIdAllocator(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public synchronized long getAsLong() {
+        if (next == limit) {
+            next = nextBlock();
+            limit = next + GlobalIdSequence.BLOCK_SIZE;
+        }
+        return next++;
+    }
+
+    private long nextBlock() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createNativeQuery("select nextval('" + GlobalIdSequence.NAME + "')", Long.class)
+                    .getSingleResult();
+        } catch (HibernateException e) {
+            throw new UserCreationException("Не удалось получить блок глобальных id", e);
+        }
+    }
+}
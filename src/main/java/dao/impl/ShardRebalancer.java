@@ -0,0 +1,110 @@
+package dao.impl;
+
+import exceptions.dao.UserUpdateException;
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Переносит пользователей после добавления шардов: было fromShardCount шардов, стало
+// shards.size(). Старые шарды читаются страницами по id, строки, которые по новому кольцу
+// принадлежат другому шарду, копируются туда с тем же id и версией и удаляются из
+// исходного. Запускается при остановленной записи: строка, изменённая во время переноса,
+// может потерять изменение. Повторный запуск после сбоя безопасен - перед вставкой
+// строки удаляются из целевого шарда.
+public class ShardRebalancer {
+
+    private static final Logger logger = LogManager.getLogger(ShardRebalancer.class);
+    private static final int PAGE_SIZE = 1000;
+    private static final int BATCH_SIZE = 50;
+
+    public record RebalanceReport(long scanned, long moved, Duration elapsed) {
+    }
+
+    private final List<SessionFactory> shards;
+
+    public ShardRebalancer(List<SessionFactory> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    public RebalanceReport rebalance(int fromShardCount) {
+        if (fromShardCount <= 0 || fromShardCount > shards.size()) {
+            throw new IllegalArgumentException("Прежнее количество шардов должно быть от 1 до " + shards.size());
+        }
+        long start = System.nanoTime();
+        ConsistentHashRing ring = new ConsistentHashRing(shards.size());
+        long scanned = 0;
+        long moved = 0;
+        for (int source = 0; source < fromShardCount; source++) {
+            Long lastId = null;
+            List<User> page;
+            while (!(page = page(shards.get(source), lastId)).isEmpty()) {
+                lastId = page.get(page.size() - 1).getId();
+                scanned += page.size();
+                Map<Integer, List<User>> byTarget = new LinkedHashMap<>();
+                for (User user : page) {
+                    int target = ring.shardFor(user.getId());
+                    if (target != source) {
+                        byTarget.computeIfAbsent(target, shard -> new ArrayList<>()).add(user);
+                    }
+                }
+                for (Map.Entry<Integer, List<User>> entry : byTarget.entrySet()) {
+                    move(shards.get(source), shards.get(entry.getKey()), entry.getValue());
+                    moved += entry.getValue().size();
+                }
+            }
+            logger.info("Шард {} обработан: просмотрено {}, перенесено {}", source, scanned, moved);
+        }
+        return new RebalanceReport(scanned, moved, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private List<User> page(SessionFactory shard, Long lastId) {
+        try (StatelessSession session = shard.openStatelessSession()) {
+            String hql = lastId == null ? "from User order by id" : "from User where id > :lastId order by id";
+            var query = session.createQuery(hql, User.class).setMaxResults(PAGE_SIZE);
+            if (lastId != null) {
+                query.setParameter("lastId", lastId);
+            }
+            return query.list();
+        } catch (HibernateException e) {
+            throw new UserUpdateException("Не удалось прочитать пользователей шарда", e);
+        }
+    }
+
+    private void move(SessionFactory source, SessionFactory target, List<User> users) {
+        List<Long> ids = users.stream().map(User::getId).toList();
+        inTransaction(target, session -> {
+            session.setJdbcBatchSize(BATCH_SIZE);
+            deleteByIds(session, ids);
+            users.forEach(session::insert);
+        });
+        inTransaction(source, session -> deleteByIds(session, ids));
+    }
+
+    private static void deleteByIds(StatelessSession session, List<Long> ids) {
+        session.createMutationQuery("delete from User where id in :ids").setParameter("ids", ids).executeUpdate();
+    }
+
+    private static void inTransaction(SessionFactory shard, Consumer<StatelessSession> work) {
+        Transaction tx = null;
+        try (StatelessSession session = shard.openStatelessSession()) {
+            tx = session.beginTransaction();
+            work.accept(session);
+            tx.commit();
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.error("Ошибка при переносе пользователей между шардами", e);
+            throw new UserUpdateException("Не удалось перенести пользователей между шардами", e);
+        }
+    }
+}
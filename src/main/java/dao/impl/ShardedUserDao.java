@@ -0,0 +1,329 @@
+package dao.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserDao;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserCreationException;
+import exceptions.dao.UserReadException;
+import exceptions.dao.UserUpdateException;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+// Пользователи распределены по шардам консистентным хешем id (ConsistentHashRing).
+// Id глобальные и назначаются до вставки из idSource, поэтому шард известен заранее,
+// а перенос при добавлении шарда (ShardRebalancer) сохраняет id. Операции по id идут в
+// один шард; email, списки и агрегаты опрашивают все шарды параллельно и сливают
+// результат. Уникальность email обеспечивается только внутри шарда.
+public class ShardedUserDao implements UserDao, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ShardedUserDao.class);
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+
+    private final List<UserDao> shards;
+    private final ConsistentHashRing ring;
+    private final LongSupplier idSource;
+    private final ExecutorService executor;
+
+    public ShardedUserDao(List<UserDao> shards, LongSupplier idSource) {
+        this.shards = List.copyOf(shards);
+        this.ring = new ConsistentHashRing(this.shards.size());
+        this.idSource = idSource;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.shards.size() * 2, r -> {
+            Thread thread = new Thread(r, "user-shard-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Шардированный DAO запущен: шардов {}", this.shards.size());
+    }
+
+    @Override
+    public void addUser(User user) {
+        boolean assigned = assignId(user);
+        try {
+            shardFor(user.getId()).addUser(user);
+        } catch (RuntimeException e) {
+            if (assigned) {
+                user.setId(null);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        Map<Integer, List<User>> byShard = new LinkedHashMap<>();
+        Set<User> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (User user : users) {
+            if (assignId(user)) {
+                assigned.add(user);
+            }
+            byShard.computeIfAbsent(ring.shardFor(user.getId()), shard -> new ArrayList<>()).add(user);
+        }
+        List<BulkInsertResult> results = scatter(byShard.keySet(),
+                (shard, dao) -> addToShard(shard, dao, byShard.get(shard)), UserCreationException::new);
+        BulkInsertResult total = BulkInsertResult.empty();
+        for (BulkInsertResult result : results) {
+            total = total.plus(result);
+        }
+        for (BulkInsertResult.Rejected rejected : total.rejected()) {
+            if (assigned.contains(rejected.user())) {
+                rejected.user().setId(null);
+            }
+        }
+        return total;
+    }
+
+    // Другие шарды могли уже зафиксировать свои пакеты, поэтому отказ шарда не бросается,
+    // а возвращается отклонением всех его пользователей: назначенные им id сбрасывает addUsers.
+    private BulkInsertResult addToShard(int shard, UserDao dao, List<User> users) {
+        try {
+            return dao.addUsers(users);
+        } catch (RuntimeException e) {
+            logger.error("Шард {} не принял пакет из {} пользователей", shard, users.size(), e);
+            String reason = "Шард " + shard + " недоступен: " + UserDaoImpl.rootMessage(e);
+            List<BulkInsertResult.Rejected> rejected = new ArrayList<>(users.size());
+            for (User user : users) {
+                rejected.add(new BulkInsertResult.Rejected(user, reason));
+            }
+            return new BulkInsertResult(0, rejected);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return shardFor(id).getUserById(id);
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return scatter(dao -> dao.getUserByEmail(email)).stream()
+                .flatMap(Optional::stream)
+                .findFirst();
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return scatter(UserDao::getAllUsers).stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    // Шарды читаются по очереди, каждый поток закрывается после своего шарда.
+    @Override
+    public Stream<User> streamAllUsers() {
+        return shards.stream().flatMap(UserDao::streamAllUsers);
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        return scatter(dao -> dao.getUsersAfter(lastId, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(BY_ID)
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Optional<UserSummary> getUserSummaryById(Long id) {
+        return shardFor(id).getUserSummaryById(id);
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return scatter(dao -> dao.getUserSummariesAfter(lastId, limit)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(UserSummary::id))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        return shards.stream().flatMap(UserDao::streamUserSummaries);
+    }
+
+    // Каждый шард отдаёт первые offset + size строк по id, страница вырезается после слияния,
+    // поэтому глубокие страницы дороже, чем на одной базе.
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        Page head = Page.of(0, Math.addExact(page.offset(), page.size()));
+        return scatter(dao -> dao.findUsers(filter, head)).stream()
+                .flatMap(List::stream)
+                .sorted(BY_ID)
+                .skip(page.offset())
+                .limit(page.size())
+                .toList();
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return scatter(dao -> dao.countUsers(filter)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        Map<Integer, AgeBucket> merged = new TreeMap<>();
+        for (List<AgeBucket> buckets : scatter(dao -> dao.ageHistogram(bucketWidth))) {
+            for (AgeBucket bucket : buckets) {
+                merged.merge(bucket.fromAge(), bucket,
+                        (a, b) -> new AgeBucket(a.fromAge(), a.toAge(), a.count() + b.count()));
+            }
+        }
+        return List.copyOf(merged.values());
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        Map<LocalDate, Long> merged = new TreeMap<>();
+        for (List<DailySignups> days : scatter(dao -> dao.signupsPerDay(from, to))) {
+            for (DailySignups day : days) {
+                merged.merge(day.day(), day.count(), Long::sum);
+            }
+        }
+        return merged.entrySet().stream()
+                .map(entry -> new DailySignups(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    @Override
+    public void updateUser(User user) {
+        if (user.getId() == null) {
+            throw new IllegalArgumentException("Для обновления в шардированном режиме нужен id пользователя");
+        }
+        shardFor(user.getId()).updateUser(user);
+    }
+
+    @Override
+    public void updateUsers(Collection<User> users) {
+        Map<Integer, List<User>> byShard = new LinkedHashMap<>();
+        for (User user : users) {
+            if (user.getId() == null) {
+                throw new IllegalArgumentException("Для обновления в шардированном режиме нужен id пользователя");
+            }
+            byShard.computeIfAbsent(ring.shardFor(user.getId()), shard -> new ArrayList<>()).add(user);
+        }
+        scatter(byShard.keySet(), (shard, dao) -> {
+            dao.updateUsers(byShard.get(shard));
+            return null;
+        }, UserUpdateException::new);
+    }
+
+    @Override
+    public int updateUserFields(Long id, UserUpdate changes) {
+        return shardFor(id).updateUserFields(id, changes);
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        return shardFor(id).deleteUserById(id);
+    }
+
+    // Шарды выгружаются по очереди в один поток вывода.
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        long rows = 0;
+        for (UserDao shard : shards) {
+            rows += shard.exportUsers(format, out);
+        }
+        return rows;
+    }
+
+    // У каждого шарда своя последовательность изменений, один водяной знак на все шарды
+    // не сводится: лента feed - это лента шарда с тем же номером. id в ней глобальные.
+    @Override
+    public int changeFeedCount() {
+        return shards.size();
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        UserChangeQueries.checkFeed(feed, shards.size());
+        return shards.get(feed).getChangesSince(0, watermark, limit);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private UserDao shardFor(Long id) {
+        return shards.get(ring.shardFor(id));
+    }
+
+    private boolean assignId(User user) {
+        if (user.getId() != null) {
+            return false;
+        }
+        user.setId(idSource.getAsLong());
+        return true;
+    }
+
+    private <T> List<T> scatter(Function<UserDao, T> operation) {
+        List<Integer> all = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            all.add(shard);
+        }
+        return scatter(all, (shard, dao) -> operation.apply(dao), UserReadException::new);
+    }
+
+    // Ошибка любого шарда отменяет остальные запросы и пробрасывается как есть.
+    private <T> List<T> scatter(Collection<Integer> targets, BiFunction<Integer, UserDao, T> operation,
+                                BiFunction<String, Throwable, RuntimeException> wrap) {
+        List<Future<T>> futures = new ArrayList<>(targets.size());
+        for (Integer shard : targets) {
+            futures.add(executor.submit(() -> operation.apply(shard, shards.get(shard))));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw wrap.apply("Ожидание ответа шардов прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw wrap.apply("Ошибка запроса к шарду", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+}
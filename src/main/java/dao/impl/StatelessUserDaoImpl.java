@@ -0,0 +1,367 @@
+package dao.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserDao;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserConcurrentModificationException;
+import exceptions.dao.UserCreationException;
+import exceptions.dao.UserDeletionException;
+import exceptions.dao.UserReadException;
+import exceptions.dao.UserUpdateException;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import util.HibernateUtil;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Все операции через StatelessSession: нет контекста персистентности, снимков для
+// dirty checking и каскадов, каждая операция сразу уходит в базу. Исключения те же,
+// что у UserDaoImpl. Отличия: updateUser обновляет все колонки и падает с
+// UserUpdateException, если строки нет (merge в UserDaoImpl вставил бы новую),
+// а @PrePersist не вызывается - created_at берётся из конструктора User.
+public class StatelessUserDaoImpl implements UserDao {
+
+    private static final Logger logger = LogManager.getLogger(StatelessUserDaoImpl.class);
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final SessionFactory sessionFactory;
+    private final int batchSize;
+    private final int fetchSize;
+
+    public StatelessUserDaoImpl() {
+        this(HibernateUtil.getSessionFactory());
+    }
+
+    public StatelessUserDaoImpl(SessionFactory sessionFactory) {
+        this(sessionFactory, UserDaoImpl.intSetting(sessionFactory, AvailableSettings.STATEMENT_BATCH_SIZE, DEFAULT_BATCH_SIZE));
+    }
+
+    public StatelessUserDaoImpl(SessionFactory sessionFactory, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть больше 0");
+        }
+        this.sessionFactory = sessionFactory;
+        this.batchSize = batchSize;
+        this.fetchSize = UserDaoImpl.intSetting(sessionFactory, AvailableSettings.STATEMENT_FETCH_SIZE, DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public void addUser(User user) {
+        Transaction tx = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            tx = session.beginTransaction();
+            session.insert(user);
+            tx.commit();
+            logger.info("Пользователь добавлен, id {}", user.getId());
+            logger.debug("Добавлен пользователь: {}", user);
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.error("Ошибка при добавлении пользователя", e);
+            throw new UserCreationException("Не удалось создать пользователя", e);
+        }
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        int inserted = 0;
+        List<BulkInsertResult.Rejected> rejected = new ArrayList<>();
+        List<User> batch = new ArrayList<>(batchSize);
+        for (User user : users) {
+            batch.add(user);
+            if (batch.size() == batchSize) {
+                inserted += insertBatch(batch, rejected);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            inserted += insertBatch(batch, rejected);
+        }
+        logger.info("Пакетная вставка завершена: добавлено {}, отклонено {}", inserted, rejected.size());
+        return new BulkInsertResult(inserted, rejected);
+    }
+
+    private int insertBatch(List<User> batch, List<BulkInsertResult.Rejected> rejected) {
+        Long[] assignedIds = UserDaoImpl.assignedIds(batch);
+        Transaction tx = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+            tx = session.beginTransaction();
+            for (User user : batch) {
+                session.insert(user);
+            }
+            tx.commit();
+            return batch.size();
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.warn("Пакет из {} пользователей отклонён, повторная вставка по одному: {}",
+                    batch.size(), e.getMessage());
+        }
+        int inserted = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.get(i);
+            UserDaoImpl.resetForRetry(user, assignedIds[i]);
+            Transaction single = null;
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                single = session.beginTransaction();
+                session.insert(user);
+                single.commit();
+                inserted++;
+            } catch (HibernateException e) {
+                if (single != null) single.rollback();
+                UserDaoImpl.resetForRetry(user, assignedIds[i]);
+                rejected.add(new BulkInsertResult.Rejected(user, UserDaoImpl.rootMessage(e)));
+            }
+        }
+        return inserted;
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return Optional.ofNullable(session.get(User.class, id));
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении пользователя с id {}", id, e);
+            throw new UserReadException("Не удалось прочитать пользователя", e);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createQuery("from User where email = :email", User.class)
+                    .setParameter("email", User.normalizeEmail(email))
+                    .uniqueResultOptional();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении пользователя с email {}", email, e);
+            throw new UserReadException("Не удалось прочитать пользователя", e);
+        }
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createQuery("from User", User.class)
+                    .setFetchSize(fetchSize)
+                    .list();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении всех пользователей", e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+
+    @Override
+    public Stream<User> streamAllUsers() {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Transaction tx = session.beginTransaction();
+            ScrollableResults<User> results = session.createQuery("from User", User.class)
+                    .setFetchSize(fetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            return StreamSupport.stream(new ScrollSpliterator<>(results), false)
+                    .onClose(() -> {
+                        try {
+                            results.close();
+                            if (tx.isActive()) tx.commit();
+                        } finally {
+                            session.close();
+                        }
+                    });
+        } catch (HibernateException e) {
+            session.close();
+            logger.error("Ошибка при открытии потока пользователей", e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            String hql = lastId == null ? "from User order by id" : "from User where id > :lastId order by id";
+            var query = session.createQuery(hql, User.class).setMaxResults(limit);
+            if (lastId != null) {
+                query.setParameter("lastId", lastId);
+            }
+            return query.list();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении страницы пользователей после id {}", lastId, e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+
+    @Override
+    public Optional<UserSummary> getUserSummaryById(Long id) {
+        return UserSummaryQueries.byId(sessionFactory, id);
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return UserSummaryQueries.after(sessionFactory, lastId, limit);
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        return UserSummaryQueries.stream(sessionFactory, fetchSize);
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        return UserFilterQueries.find(sessionFactory, filter, page);
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return UserFilterQueries.count(sessionFactory, filter);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        return UserFilterQueries.ageHistogram(sessionFactory, bucketWidth);
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        return UserFilterQueries.signupsPerDay(sessionFactory, from, to);
+    }
+
+    @Override
+    public void updateUser(User user) {
+        UserDaoImpl.requireVersion(user);
+        Transaction tx = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            tx = session.beginTransaction();
+            session.update(user);
+            tx.commit();
+            logger.info("Пользователь обновлён, id {}", user.getId());
+            logger.debug("Обновлён пользователь: {}", user);
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            // Ноль обновлённых строк - либо строки нет, либо версия устарела.
+            if (UserDaoImpl.isVersionConflict(e) && exists(user.getId())) {
+                logger.warn("Конфликт версий при обновлении пользователя с id {}, версия {}",
+                        user.getId(), user.getVersion());
+                throw new UserConcurrentModificationException(
+                        "Пользователь с id " + user.getId() + " изменён другим запросом", e);
+            }
+            logger.error("Ошибка при обновлении пользователя с id {}", user.getId(), e);
+            throw new UserUpdateException("Не удалось обновить пользователя", e);
+        }
+    }
+
+    @Override
+    public void updateUsers(Collection<User> users) {
+        UserBatchUpdates.update(sessionFactory, batchSize, users);
+    }
+
+    private boolean exists(Long id) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.get(User.class, id) != null;
+        } catch (HibernateException e) {
+            logger.error("Ошибка при проверке пользователя с id {}", id, e);
+            return false;
+        }
+    }
+
+    @Override
+    public int updateUserFields(Long id, UserUpdate changes) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        StringBuilder hql = new StringBuilder("update versioned User set ");
+        if (changes.name() != null) hql.append("name = :name, ");
+        if (changes.email() != null) hql.append("email = :email, ");
+        if (changes.age() != null) hql.append("age = :age, ");
+        hql.setLength(hql.length() - 2);
+        hql.append(" where id = :id");
+
+        Transaction tx = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            tx = session.beginTransaction();
+            var query = session.createMutationQuery(hql.toString()).setParameter("id", id);
+            if (changes.name() != null) query.setParameter("name", changes.name());
+            if (changes.email() != null) query.setParameter("email", User.normalizeEmail(changes.email()));
+            if (changes.age() != null) query.setParameter("age", changes.age());
+            int updated = query.executeUpdate();
+            tx.commit();
+            logger.info("Обновлены поля пользователя с id {}", id);
+            logger.debug("Изменения пользователя с id {}: {}", id, changes);
+            return updated;
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.error("Ошибка при обновлении полей пользователя с id {}", id, e);
+            throw new UserUpdateException("Не удалось обновить пользователя", e);
+        }
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        Transaction tx = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            tx = session.beginTransaction();
+            int deleted = session.createMutationQuery("delete from User where id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            tx.commit();
+            if (deleted > 0) {
+                logger.info("Пользователь с id {} удалён", id);
+            } else {
+                logger.warn("Попытка удалить несуществующего пользователя с id {}", id);
+            }
+            return deleted;
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.error("Ошибка при удалении пользователя с id {}", id, e);
+            throw new UserDeletionException("Не удалось удалить пользователя", e);
+        }
+    }
+
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        String sql = UserDaoImpl.copySql(format);
+        Transaction tx = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            tx = session.beginTransaction();
+            long rows = session.doReturningWork(connection -> UserDaoImpl.copyOut(connection, sql, out));
+            tx.commit();
+            logger.info("Выгружено пользователей: {} ({})", rows, format);
+            return rows;
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.error("Ошибка при выгрузке пользователей", e);
+            throw new UserReadException("Не удалось выгрузить пользователей", e);
+        }
+    }
+
+    @Override
+    public int changeFeedCount() {
+        return 1;
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        UserChangeQueries.checkFeed(feed, 1);
+        return UserChangeQueries.since(sessionFactory, watermark, limit);
+    }
+}
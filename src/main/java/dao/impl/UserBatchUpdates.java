@@ -0,0 +1,46 @@
+package dao.impl;
+
+import exceptions.dao.UserConcurrentModificationException;
+import exceptions.dao.UserUpdateException;
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.util.Collection;
+
+// Пакет обновлений полным состоянием через StatelessSession: без select перед
+// каждой строкой, как у merge, и с JDBC-батчингом. Если строки нет или версия
+// устарела, весь пакет откатывается с UserConcurrentModificationException.
+final class UserBatchUpdates {
+
+    private static final Logger logger = LogManager.getLogger(UserBatchUpdates.class);
+
+    private UserBatchUpdates() {
+    }
+
+    static void update(SessionFactory sessionFactory, int batchSize, Collection<User> users) {
+        users.forEach(UserDaoImpl::requireVersion);
+        Transaction tx = null;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(batchSize);
+            tx = session.beginTransaction();
+            for (User user : users) {
+                session.update(user);
+            }
+            tx.commit();
+            logger.info("Пакетно обновлено пользователей: {}", users.size());
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            if (UserDaoImpl.isVersionConflict(e)) {
+                logger.warn("Конфликт версий или отсутствующая строка в пакете из {} пользователей", users.size());
+                throw new UserConcurrentModificationException("Пользователи изменены другим запросом", e);
+            }
+            logger.error("Ошибка при пакетном обновлении {} пользователей", users.size(), e);
+            throw new UserUpdateException("Не удалось обновить пользователей", e);
+        }
+    }
+}
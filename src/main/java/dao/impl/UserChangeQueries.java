@@ -0,0 +1,104 @@
+package dao.impl;
+
+import dao.UserChange;
+import dao.UserChanges;
+import exceptions.dao.UserReadException;
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import util.ChangeTracking;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Лента изменений одним запросом: вставки и обновления из users, удаления из users_tombstones,
+// по возрастанию change_seq (индекс idx_users_change_seq и первичный ключ надгробий).
+// Номер выдаётся при записи строки, а видна она становится при коммите, поэтому отдаются
+// только номера ниже границы CEILING_SQL: каждая пишущая транзакция до первого номера берёт
+// разделяемую advisory-блокировку на текущее значение users_change_seq (ChangeTracking),
+// и граница - наименьшая такая блокировка или следующий ещё не выданный номер. Граница
+// читается отдельным запросом до выборки: в READ COMMITTED у выборки более поздний снимок,
+// и всё, что ниже границы и не в незавершённой транзакции, в нём уже закоммичено.
+// Долгая транзакция задерживает ленту до своего завершения, но её изменения не теряются.
+final class UserChangeQueries {
+
+    private static final Logger logger = LogManager.getLogger(UserChangeQueries.class);
+
+    private static final String CEILING_SQL = "select least("
+            + " (select case when is_called then last_value + 1 else last_value end"
+            + " from " + ChangeTracking.SEQUENCE + "),"
+            + " (select min((classid::bigint << 32) | objid::bigint) from pg_locks"
+            + " where locktype = 'advisory' and objsubid = 1"
+            + " and database = (select oid from pg_database where datname = current_database())))";
+
+    private static final String SQL = "select * from ("
+            + " select u.change_seq, u.id as user_id, false as deleted, u.name, u.email, u.age, u.created_at,"
+            + " u.version, u.updated_at as changed_at from users u"
+            + " where u.change_seq > :watermark and u.change_seq < :ceiling"
+            + " union all"
+            + " select t.change_seq, t.user_id, true, null, null, null, null, null, t.deleted_at"
+            + " from " + ChangeTracking.TOMBSTONES + " t"
+            + " where t.change_seq > :watermark and t.change_seq < :ceiling"
+            + ") changes order by change_seq";
+
+    private UserChangeQueries() {
+    }
+
+    static void checkFeed(int feed, int feeds) {
+        if (feed < 0 || feed >= feeds) {
+            throw new IllegalArgumentException("Ленты изменений " + feed + " нет, всего лент: " + feeds);
+        }
+    }
+
+    static UserChanges since(SessionFactory sessionFactory, long watermark, int limit) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            long ceiling = session.createNativeQuery(CEILING_SQL, Long.class).getSingleResult();
+            List<Object[]> rows = session.createNativeQuery(SQL, Object[].class)
+                    .addScalar("change_seq", Long.class)
+                    .addScalar("user_id", Long.class)
+                    .addScalar("deleted", Boolean.class)
+                    .addScalar("name", String.class)
+                    .addScalar("email", String.class)
+                    .addScalar("age", Integer.class)
+                    .addScalar("created_at", LocalDateTime.class)
+                    .addScalar("version", Long.class)
+                    .addScalar("changed_at", LocalDateTime.class)
+                    .setParameter("watermark", watermark)
+                    .setParameter("ceiling", ceiling)
+                    .setMaxResults(limit)
+                    .list();
+            List<UserChange> changes = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                changes.add(toChange(row));
+            }
+            long next = changes.isEmpty() ? watermark : changes.get(changes.size() - 1).sequence();
+            return new UserChanges(changes, next);
+        } catch (HibernateException e) {
+            logger.error("Ошибка при чтении изменений после {}", watermark, e);
+            throw new UserReadException("Не удалось прочитать изменения пользователей", e);
+        }
+    }
+
+    private static UserChange toChange(Object[] row) {
+        long sequence = (Long) row[0];
+        long userId = (Long) row[1];
+        LocalDateTime changedAt = (LocalDateTime) row[8];
+        if ((Boolean) row[2]) {
+            return new UserChange(sequence, userId, null, changedAt);
+        }
+        User user = new User();
+        user.setId(userId);
+        user.setName((String) row[3]);
+        user.setEmail((String) row[4]);
+        user.setAge((Integer) row[5]);
+        user.setCreatedAt((LocalDateTime) row[6]);
+        user.setVersion((Long) row[7]);
+        user.setUpdatedAt(changedAt);
+        user.setChangeSequence(sequence);
+        return new UserChange(sequence, userId, user, changedAt);
+    }
+}
@@ -1,43 +1,99 @@
 package dao.impl;
 
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
 import dao.UserDao;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserConcurrentModificationException;
 import exceptions.dao.UserCreationException;
 import exceptions.dao.UserDeletionException;
 import exceptions.dao.UserReadException;
 import exceptions.dao.UserUpdateException;
 import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.FlushMode;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.postgresql.PGConnection;
 import util.HibernateUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class UserDaoImpl implements UserDao {
 
     private static final Logger logger = LogManager.getLogger(UserDaoImpl.class);
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
     private final SessionFactory sessionFactory;
+    private final int batchSize;
+    private final int fetchSize;
+    private final boolean readOnly;
 
     public UserDaoImpl() {
-        this.sessionFactory = HibernateUtil.getSessionFactory();
+        this(HibernateUtil.getSessionFactory());
     }
 
     public UserDaoImpl(SessionFactory sessionFactory) {
+        this(sessionFactory, intSetting(sessionFactory, AvailableSettings.STATEMENT_BATCH_SIZE, DEFAULT_BATCH_SIZE));
+    }
+
+    public UserDaoImpl(SessionFactory sessionFactory, int batchSize) {
+        this(sessionFactory, batchSize, false);
+    }
+
+    private UserDaoImpl(SessionFactory sessionFactory, int batchSize, boolean readOnly) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть больше 0");
+        }
         this.sessionFactory = sessionFactory;
+        this.batchSize = batchSize;
+        this.fetchSize = intSetting(sessionFactory, AvailableSettings.STATEMENT_FETCH_SIZE, DEFAULT_FETCH_SIZE);
+        this.readOnly = readOnly;
+    }
+
+    // Для реплики: сессии только для чтения, без снимков для dirty checking и без flush.
+    public static UserDaoImpl readOnly(SessionFactory sessionFactory) {
+        return new UserDaoImpl(sessionFactory,
+                intSetting(sessionFactory, AvailableSettings.STATEMENT_BATCH_SIZE, DEFAULT_BATCH_SIZE), true);
     }
 
     @Override
     public void addUser(User user) {
         Transaction tx = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openSession()) {
             tx = session.beginTransaction();
             session.persist(user);
             tx.commit();
-            logger.info("Пользователь добавлен: {}", user);
+            logger.info("Пользователь добавлен, id {}", user.getId());
+            logger.debug("Добавлен пользователь: {}", user);
         } catch (HibernateException e) {
             if (tx != null) tx.rollback();
             logger.error("Ошибка при добавлении пользователя", e);
@@ -45,9 +101,149 @@ public class UserDaoImpl implements UserDao {
         }
     }
 
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        int inserted = 0;
+        List<BulkInsertResult.Rejected> rejected = new ArrayList<>();
+        List<User> batch = new ArrayList<>(batchSize);
+        for (User user : users) {
+            batch.add(user);
+            if (batch.size() == batchSize) {
+                inserted += insertBatch(batch, rejected);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            inserted += insertBatch(batch, rejected);
+        }
+        logger.info("Пакетная вставка завершена: добавлено {}, отклонено {}", inserted, rejected.size());
+        return new BulkInsertResult(inserted, rejected);
+    }
+
+    private int insertBatch(List<User> batch, List<BulkInsertResult.Rejected> rejected) {
+        Long[] assignedIds = assignedIds(batch);
+        Transaction tx = null;
+        try (Session session = openSession()) {
+            session.setJdbcBatchSize(batchSize);
+            session.setCacheMode(CacheMode.IGNORE);
+            tx = session.beginTransaction();
+            for (User user : batch) {
+                session.persist(user);
+            }
+            session.flush();
+            session.clear();
+            tx.commit();
+            return batch.size();
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.warn("Пакет из {} пользователей отклонён, повторная вставка по одному: {}",
+                    batch.size(), e.getMessage());
+        }
+        int inserted = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            User user = batch.get(i);
+            resetForRetry(user, assignedIds[i]);
+            try {
+                insertOne(user);
+                inserted++;
+            } catch (HibernateException e) {
+                resetForRetry(user, assignedIds[i]);
+                rejected.add(new BulkInsertResult.Rejected(user, rootMessage(e)));
+            }
+        }
+        return inserted;
+    }
+
+    private void insertOne(User user) {
+        Transaction tx = null;
+        try (Session session = openSession()) {
+            tx = session.beginTransaction();
+            session.persist(user);
+            tx.commit();
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            throw e;
+        }
+    }
+
+    // id, назначенные до вставки (ShardedUserDao), сохраняются; сгенерированные в
+    // откаченной транзакции id и версия сбрасываются перед повтором.
+    static Long[] assignedIds(List<User> batch) {
+        return batch.stream().map(User::getId).toArray(Long[]::new);
+    }
+
+    static void resetForRetry(User user, Long assignedId) {
+        user.setId(assignedId);
+        user.setVersion(null);
+    }
+
+    static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage();
+    }
+
+    // Без id или версии merge считает объект новым и делает INSERT вместо UPDATE,
+    // поэтому обновлять можно только прочитанного из базы пользователя.
+    static void requireVersion(User user) {
+        if (user.getId() == null || user.getVersion() == null) {
+            throw new UserUpdateException("Для обновления нужны id и версия пользователя, id "
+                    + user.getId() + ", версия " + user.getVersion(), null);
+        }
+    }
+
+    // Session.merge отдаёт конфликт как OptimisticLockException, StatelessSession и
+    // сброс при commit - как StaleStateException, иногда обёрнутые.
+    static boolean isVersionConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    // COPY отдаёт строки прямо из курсора сервера в поток, минуя сущности и ResultSet.
+    // NDJSON собирается в самой базе; разделитель и кавычка CSV выбраны из управляющих
+    // символов, которых в сериализованном JSON не бывает, поэтому строки выходят как есть.
+    static String copySql(UserExportFormat format) {
+        return switch (format) {
+            case CSV -> "COPY users (id, name, email, age, created_at) TO STDOUT WITH (FORMAT csv)";
+            case NDJSON -> "COPY (SELECT json_build_object('id', id, 'name', name, 'email', email, 'age', age,"
+                    + " 'createdAt', created_at) FROM users) TO STDOUT WITH (FORMAT csv, DELIMITER E'\\x02', QUOTE E'\\x01')";
+        };
+    }
+
+    static long copyOut(Connection connection, String sql, OutputStream out) throws SQLException {
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+        } catch (IOException e) {
+            throw new SQLException("Ошибка записи выгрузки", e);
+        }
+    }
+
+    private Session openSession() {
+        if (!readOnly) {
+            return sessionFactory.openSession();
+        }
+        Session session = sessionFactory.withOptions().flushMode(FlushMode.MANUAL).openSession();
+        session.setDefaultReadOnly(true);
+        return session;
+    }
+
+    static int intSetting(SessionFactory sessionFactory, String key, int defaultValue) {
+        Object value = sessionFactory.getProperties().get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+    }
+
     @Override
     public Optional<User> getUserById(Long id) {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openSession()) {
             User user = session.get(User.class, id);
             return Optional.ofNullable(user);
         } catch (HibernateException e) {
@@ -56,9 +252,19 @@ public class UserDaoImpl implements UserDao {
         }
     }
 
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        try (Session session = openSession()) {
+            return session.bySimpleNaturalId(User.class).loadOptional(User.normalizeEmail(email));
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении пользователя с email {}", email, e);
+            throw new UserReadException("Не удалось прочитать пользователя", e);
+        }
+    }
+
     @Override
     public List<User> getAllUsers() {
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openSession()) {
             return session.createQuery("from User", User.class).list();
         } catch (HibernateException e) {
             logger.error("Ошибка при получении всех пользователей", e);
@@ -66,38 +272,190 @@ public class UserDaoImpl implements UserDao {
         }
     }
 
+    @Override
+    public Stream<User> streamAllUsers() {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Transaction tx = session.beginTransaction();
+            ScrollableResults<User> results = session.createQuery("from User", User.class)
+                    .setFetchSize(fetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            return StreamSupport.stream(new ScrollSpliterator<>(results), false)
+                    .onClose(() -> {
+                        try {
+                            results.close();
+                            if (tx.isActive()) tx.commit();
+                        } finally {
+                            session.close();
+                        }
+                    });
+        } catch (HibernateException e) {
+            session.close();
+            logger.error("Ошибка при открытии потока пользователей", e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            String hql = lastId == null ? "from User order by id" : "from User where id > :lastId order by id";
+            var query = session.createQuery(hql, User.class).setMaxResults(limit);
+            if (lastId != null) {
+                query.setParameter("lastId", lastId);
+            }
+            return query.list();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении страницы пользователей после id {}", lastId, e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+
+    @Override
+    public Optional<UserSummary> getUserSummaryById(Long id) {
+        return UserSummaryQueries.byId(sessionFactory, id);
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return UserSummaryQueries.after(sessionFactory, lastId, limit);
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        return UserSummaryQueries.stream(sessionFactory, fetchSize);
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        return UserFilterQueries.find(sessionFactory, filter, page);
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return UserFilterQueries.count(sessionFactory, filter);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        return UserFilterQueries.ageHistogram(sessionFactory, bucketWidth);
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        return UserFilterQueries.signupsPerDay(sessionFactory, from, to);
+    }
+
     @Override
     public void updateUser(User user) {
+        requireVersion(user);
         Transaction tx = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openSession()) {
             tx = session.beginTransaction();
-            session.merge(user);
+            User merged = session.merge(user);
             tx.commit();
-            logger.info("Пользователь обновлён: {}", user);
-        } catch (HibernateException e) {
+            // merge меняет версию у копии в сессии; без этого повторный updateUser
+            // того же объекта получил бы конфликт версий.
+            user.setVersion(merged.getVersion());
+            logger.info("Пользователь обновлён, id {}", user.getId());
+            logger.debug("Обновлён пользователь: {}", user);
+        } catch (PersistenceException e) {
             if (tx != null) tx.rollback();
+            if (isVersionConflict(e)) {
+                logger.warn("Конфликт версий при обновлении пользователя с id {}, версия {}",
+                        user.getId(), user.getVersion());
+                throw new UserConcurrentModificationException(
+                        "Пользователь с id " + user.getId() + " изменён другим запросом", e);
+            }
             logger.error("Ошибка при обновлении пользователя с id {}", user.getId(), e);
             throw new UserUpdateException("Не удалось обновить пользователя", e);
         }
     }
 
     @Override
-    public void deleteUserById(Long id) {
+    public void updateUsers(Collection<User> users) {
+        UserBatchUpdates.update(sessionFactory, batchSize, users);
+    }
+
+    @Override
+    public int updateUserFields(Long id, UserUpdate changes) {
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        // versioned увеличивает version, чтобы конкурирующий updateUser увидел конфликт.
+        StringBuilder hql = new StringBuilder("update versioned User set ");
+        if (changes.name() != null) hql.append("name = :name, ");
+        if (changes.email() != null) hql.append("email = :email, ");
+        if (changes.age() != null) hql.append("age = :age, ");
+        hql.setLength(hql.length() - 2);
+        hql.append(" where id = :id");
+
         Transaction tx = null;
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+        try (Session session = openSession()) {
             tx = session.beginTransaction();
-            User user = session.get(User.class, id);
-            if (user != null) {
-                session.remove(user);
-                logger.info("Пользователь удалён: {}", user);
+            var query = session.createMutationQuery(hql.toString()).setParameter("id", id);
+            if (changes.name() != null) query.setParameter("name", changes.name());
+            if (changes.email() != null) query.setParameter("email", User.normalizeEmail(changes.email()));
+            if (changes.age() != null) query.setParameter("age", changes.age());
+            int updated = query.executeUpdate();
+            tx.commit();
+            logger.info("Обновлены поля пользователя с id {}", id);
+            logger.debug("Изменения пользователя с id {}: {}", id, changes);
+            return updated;
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.error("Ошибка при обновлении полей пользователя с id {}", id, e);
+            throw new UserUpdateException("Не удалось обновить пользователя", e);
+        }
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        Transaction tx = null;
+        try (Session session = openSession()) {
+            tx = session.beginTransaction();
+            int deleted = session.createMutationQuery("delete from User where id = :id")
+                    .setParameter("id", id)
+                    .executeUpdate();
+            tx.commit();
+            if (deleted > 0) {
+                logger.info("Пользователь с id {} удалён", id);
             } else {
                 logger.warn("Попытка удалить несуществующего пользователя с id {}", id);
             }
-            tx.commit();
+            return deleted;
         } catch (HibernateException e) {
             if (tx != null) tx.rollback();
             logger.error("Ошибка при удалении пользователя с id {}", id, e);
             throw new UserDeletionException("Не удалось удалить пользователя", e);
         }
     }
+
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        String sql = copySql(format);
+        Transaction tx = null;
+        try (Session session = openSession()) {
+            tx = session.beginTransaction();
+            long rows = session.doReturningWork(connection -> copyOut(connection, sql, out));
+            tx.commit();
+            logger.info("Выгружено пользователей: {} ({})", rows, format);
+            return rows;
+        } catch (HibernateException e) {
+            if (tx != null) tx.rollback();
+            logger.error("Ошибка при выгрузке пользователей", e);
+            throw new UserReadException("Не удалось выгрузить пользователей", e);
+        }
+    }
+
+    @Override
+    public int changeFeedCount() {
+        return 1;
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        UserChangeQueries.checkFeed(feed, 1);
+        return UserChangeQueries.since(sessionFactory, watermark, limit);
+    }
 }
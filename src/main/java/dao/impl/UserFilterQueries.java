@@ -0,0 +1,136 @@
+package dao.impl;
+
+import dao.AgeBucket;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserFilter;
+import exceptions.dao.UserReadException;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaCriteriaQuery;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Фильтры и агрегаты выполняются в PostgreSQL; в JVM приходит только страница
+// или уже сгруппированный результат. Условия рассчитаны на индексы idx_users_age,
+// idx_users_created_at и idx_users_lower_name.
+final class UserFilterQueries {
+
+    private static final Logger logger = LogManager.getLogger(UserFilterQueries.class);
+
+    private UserFilterQueries() {
+    }
+
+    static List<User> find(SessionFactory sessionFactory, UserFilter filter, Page page) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            HibernateCriteriaBuilder cb = session.getCriteriaBuilder();
+            JpaCriteriaQuery<User> query = cb.createQuery(User.class);
+            Root<User> user = query.from(User.class);
+            query.where(predicates(cb, user, filter)).orderBy(cb.asc(user.get("id")));
+            return session.createQuery(query)
+                    .setFirstResult(page.offset())
+                    .setMaxResults(page.size())
+                    .list();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при поиске пользователей по фильтру {}", filter, e);
+            throw new UserReadException("Не удалось найти пользователей", e);
+        }
+    }
+
+    static long count(SessionFactory sessionFactory, UserFilter filter) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            HibernateCriteriaBuilder cb = session.getCriteriaBuilder();
+            JpaCriteriaQuery<Long> query = cb.createQuery(Long.class);
+            Root<User> user = query.from(User.class);
+            query.select(cb.count(user)).where(predicates(cb, user, filter));
+            return session.createQuery(query).getSingleResult();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при подсчёте пользователей по фильтру {}", filter, e);
+            throw new UserReadException("Не удалось посчитать пользователей", e);
+        }
+    }
+
+    // Ширина подставляется литералом: с параметром PostgreSQL не сопоставит
+    // выражения в select и group by.
+    static List<AgeBucket> ageHistogram(SessionFactory sessionFactory, int bucketWidth) {
+        String bucket = "(u.age / " + bucketWidth + ") * " + bucketWidth;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            List<Object[]> rows = session.createQuery(
+                            "select " + bucket + ", count(u) from User u group by " + bucket + " order by 1",
+                            Object[].class)
+                    .list();
+            List<AgeBucket> buckets = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                int from = ((Number) row[0]).intValue();
+                buckets.add(new AgeBucket(from, from + bucketWidth, ((Number) row[1]).longValue()));
+            }
+            return buckets;
+        } catch (HibernateException e) {
+            logger.error("Ошибка при построении гистограммы возрастов", e);
+            throw new UserReadException("Не удалось построить гистограмму возрастов", e);
+        }
+    }
+
+    // Дни без регистраций возвращаются с нулём, чтобы ряд был непрерывным.
+    static List<DailySignups> signupsPerDay(SessionFactory sessionFactory, LocalDate from, LocalDate to) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            List<Object[]> rows = session.createQuery(
+                            "select cast(u.createdAt as LocalDate), count(u) from User u"
+                                    + " where u.createdAt >= :from and u.createdAt < :to"
+                                    + " group by cast(u.createdAt as LocalDate)", Object[].class)
+                    .setParameter("from", from.atStartOfDay())
+                    .setParameter("to", to.plusDays(1).atStartOfDay())
+                    .list();
+            Map<LocalDate, Long> counts = new HashMap<>();
+            for (Object[] row : rows) {
+                counts.put((LocalDate) row[0], ((Number) row[1]).longValue());
+            }
+            List<DailySignups> days = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                days.add(new DailySignups(day, counts.getOrDefault(day, 0L)));
+            }
+            return days;
+        } catch (HibernateException e) {
+            logger.error("Ошибка при подсчёте регистраций с {} по {}", from, to, e);
+            throw new UserReadException("Не удалось посчитать регистрации", e);
+        }
+    }
+
+    private static Predicate[] predicates(HibernateCriteriaBuilder cb, Root<User> user, UserFilter filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.minAge() != null) {
+            predicates.add(cb.ge(user.get("age"), filter.minAge()));
+        }
+        if (filter.maxAge() != null) {
+            predicates.add(cb.le(user.get("age"), filter.maxAge()));
+        }
+        if (filter.createdFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(user.<LocalDateTime>get("createdAt"), filter.createdFrom()));
+        }
+        if (filter.createdTo() != null) {
+            predicates.add(cb.lessThan(user.<LocalDateTime>get("createdAt"), filter.createdTo()));
+        }
+        if (filter.namePrefix() != null && !filter.namePrefix().isEmpty()) {
+            predicates.add(cb.like(cb.lower(user.get("name")),
+                    escapeLike(filter.namePrefix().toLowerCase(Locale.ROOT)) + "%", '\\'));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
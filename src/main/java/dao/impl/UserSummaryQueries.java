@@ -0,0 +1,76 @@
+package dao.impl;
+
+import exceptions.dao.UserReadException;
+import model.UserSummary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Проекции в UserSummary через конструктор в HQL: читаются только три колонки,
+// сущности и их жизненный цикл не создаются, контекста персистентности нет.
+final class UserSummaryQueries {
+
+    private static final Logger logger = LogManager.getLogger(UserSummaryQueries.class);
+    private static final String SELECT = "select new model.UserSummary(u.id, u.name, u.email) from User u";
+
+    private UserSummaryQueries() {
+    }
+
+    static Optional<UserSummary> byId(SessionFactory sessionFactory, Long id) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createQuery(SELECT + " where u.id = :id", UserSummary.class)
+                    .setParameter("id", id)
+                    .uniqueResultOptional();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении сводки пользователя с id {}", id, e);
+            throw new UserReadException("Не удалось прочитать пользователя", e);
+        }
+    }
+
+    static List<UserSummary> after(SessionFactory sessionFactory, Long lastId, int limit) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            String hql = lastId == null ? SELECT + " order by u.id" : SELECT + " where u.id > :lastId order by u.id";
+            var query = session.createQuery(hql, UserSummary.class).setMaxResults(limit);
+            if (lastId != null) {
+                query.setParameter("lastId", lastId);
+            }
+            return query.list();
+        } catch (HibernateException e) {
+            logger.error("Ошибка при получении страницы сводок после id {}", lastId, e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+
+    static Stream<UserSummary> stream(SessionFactory sessionFactory, int fetchSize) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Transaction tx = session.beginTransaction();
+            ScrollableResults<UserSummary> results = session.createQuery(SELECT, UserSummary.class)
+                    .setFetchSize(fetchSize)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            return StreamSupport.stream(new ScrollSpliterator<>(results), false)
+                    .onClose(() -> {
+                        try {
+                            results.close();
+                            if (tx.isActive()) tx.commit();
+                        } finally {
+                            session.close();
+                        }
+                    });
+        } catch (HibernateException e) {
+            session.close();
+            logger.error("Ошибка при открытии потока сводок пользователей", e);
+            throw new UserReadException("Не удалось прочитать пользователей", e);
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package dao.impl;
+
+import dao.UserDao;
+import exceptions.dao.UserConcurrentModificationException;
+import exceptions.dao.UserUpdateException;
+import model.User;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import util.metrics.MetricsRegistry;
+import util.metrics.OperationMetrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Отложенная запись updateUser: в буфере хранится только последнее состояние каждого
+// пользователя, буфер сбрасывается пакетами через updateUsers по размеру batchSize или
+// раз в flushInterval. Заполненный буфер (maxPending разных id) блокирует вызывающего,
+// пока сброс не освободит место. getUserById и getUserByEmail видят буферизованное
+// состояние; остальные чтения видят базу и отстают не больше чем на один сброс.
+// Версии ведутся как у UserDaoImpl: updateUser сразу проставляет объекту вызывающего
+// версию, которую строка получит после сброса, поэтому один объект можно обновлять
+// повторно. Устаревшая версия для id в буфере отклоняется сразу, а конфликт при сбросе
+// запоминается и выбрасывается UserConcurrentModificationException при следующем
+// updateUser этого id объектом с выданной буфером версией.
+// Создаётся через start(), который запускает периодический сброс.
+// close() сбрасывает всё, что осталось; Main вызывает его из HibernateUtil.shutdown.
+public class WriteBehindUserDao extends ForwardingUserDao implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(WriteBehindUserDao.class);
+
+    public record WriteBehindStats(long updates, long coalesced, long flushedRows, long failedRows, int pending) {
+
+        public double coalesceRatio() {
+            return updates == 0 ? 0 : (double) coalesced / updates;
+        }
+    }
+
+    private final int maxPending;
+    private final int batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Map<Long, User> pending = new LinkedHashMap<>();
+    // Состояния, которые сейчас записываются: читатели видят их до фиксации транзакции.
+    private final Map<Long, User> flushing = new ConcurrentHashMap<>();
+    // Индексы по email для getUserByEmail, меняются вместе с pending и flushing под lock.
+    private final Map<String, User> pendingByEmail = new HashMap<>();
+    private final Map<String, User> flushingByEmail = new HashMap<>();
+    // В pending и flushing лежат состояния с версией, которую проверит запись в базу;
+    // здесь - версия после их записи, выданная вызывающему. Меняются под lock.
+    private final Map<Long, Long> versions = new HashMap<>();
+    private final Map<Long, Failure> failures = new HashMap<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+    private final OperationMetrics flushMetrics;
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private volatile boolean closed;
+
+    // Отложенная запись, не прошедшая в базу, и версия, которую успел получить вызывающий.
+    private record Failure(Long version, UserUpdateException cause) {
+    }
+
+    public static WriteBehindUserDao start(UserDao delegate, int maxPending, int batchSize, Duration flushInterval,
+                                           MetricsRegistry registry) {
+        WriteBehindUserDao writeBehind = new WriteBehindUserDao(delegate, maxPending, batchSize, registry);
+        long intervalMillis = flushInterval.toMillis();
+        writeBehind.scheduler.scheduleWithFixedDelay(writeBehind::flushQuietly, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+        logger.info("Отложенная запись включена: maxPending={}, batchSize={}, flushInterval={}",
+                maxPending, batchSize, flushInterval);
+        return writeBehind;
+    }
+
+    private WriteBehindUserDao(UserDao delegate, int maxPending, int batchSize, MetricsRegistry registry) {
+        super(delegate);
+        if (maxPending <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Размер буфера и пакета должен быть больше 0");
+        }
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.flushMetrics = registry.operation("writeBehind.flush");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void updateUser(User user) {
+        UserDaoImpl.requireVersion(user);
+        if (closed) {
+            delegate.updateUser(user);
+            return;
+        }
+        buffer(user);
+    }
+
+    @Override
+    public void updateUsers(Collection<User> users) {
+        for (User user : users) {
+            updateUser(user);
+        }
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        lock.lock();
+        try {
+            User state = pending.get(id);
+            if (state == null) {
+                state = flushing.get(id);
+            }
+            if (state != null) {
+                User copy = state.copy();
+                copy.setVersion(versions.get(id));
+                return Optional.of(copy);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegate.getUserById(id);
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        lock.lock();
+        try {
+            User state = pendingByEmail.get(normalized);
+            if (state == null) {
+                state = flushingByEmail.get(normalized);
+                // У записываемого состояния может быть более новое в pending с другим email.
+                if (state != null && pending.containsKey(state.getId())) {
+                    state = null;
+                }
+            }
+            if (state != null) {
+                User copy = state.copy();
+                copy.setVersion(versions.get(state.getId()));
+                return Optional.of(copy);
+            }
+        } finally {
+            lock.unlock();
+        }
+        Optional<User> loaded = delegate.getUserByEmail(normalized);
+        // В базе старый email, а в буфере пользователь его уже сменил.
+        if (loaded.isPresent() && buffered(loaded.get().getId()) != null) {
+            return Optional.empty();
+        }
+        return loaded;
+    }
+
+    // Частичное обновление и удаление применяются после отложенного состояния того же id,
+    // иначе поздний сброс перезаписал бы их.
+    @Override
+    public int updateUserFields(Long id, UserUpdate changes) {
+        synchronized (flushLock) {
+            User buffered = remove(id);
+            if (buffered != null) {
+                writeOne(buffered);
+            }
+            return delegate.updateUserFields(id, changes);
+        }
+    }
+
+    @Override
+    public int deleteUserById(Long id) {
+        synchronized (flushLock) {
+            remove(id);
+            return delegate.deleteUserById(id);
+        }
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            List<User> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new ArrayList<>(pending.values());
+                flushing.putAll(pending);
+                flushingByEmail.putAll(pendingByEmail);
+                pending.clear();
+                pendingByEmail.clear();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            long start = System.nanoTime();
+            int failedBefore = (int) failedRows.sum();
+            try {
+                for (int from = 0; from < batch.size(); from += batchSize) {
+                    writeBatch(batch.subList(from, Math.min(batch.size(), from + batchSize)));
+                }
+            } finally {
+                lock.lock();
+                try {
+                    for (Long id : flushing.keySet()) {
+                        if (!pending.containsKey(id)) {
+                            versions.remove(id);
+                        }
+                    }
+                    flushing.clear();
+                    flushingByEmail.clear();
+                } finally {
+                    lock.unlock();
+                }
+                flushMetrics.record(System.nanoTime() - start, failedRows.sum() > failedBefore);
+            }
+            logger.debug("Сброшено отложенных обновлений: {}", batch.size());
+        }
+    }
+
+    public WriteBehindStats getStats() {
+        lock.lock();
+        try {
+            return new WriteBehindStats(updates.sum(), coalesced.sum(), flushedRows.sum(), failedRows.sum(),
+                    pending.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flush();
+        logger.info("Отложенная запись остановлена: {}", getStats());
+    }
+
+    private void buffer(User user) {
+        Long id = user.getId();
+        User state = user.copy();
+        lock.lock();
+        try {
+            while (pending.size() >= maxPending && !pending.containsKey(id) && !closed) {
+                requestFlush();
+                notFull.await();
+            }
+            checkVersion(user);
+            // База проверит версию до первого из объединённых обновлений или ту,
+            // что строка получит после идущей сейчас записи.
+            User queued = pending.get(id);
+            Long expected = queued != null ? queued.getVersion() : versions.getOrDefault(id, user.getVersion());
+            state.setVersion(expected);
+            versions.put(id, expected + 1);
+            user.setVersion(expected + 1);
+            updates.increment();
+            User previous = pending.put(id, state);
+            if (previous != null) {
+                coalesced.increment();
+                unindex(previous);
+            }
+            if (state.getEmail() != null) {
+                pendingByEmail.put(state.getEmail(), state);
+            }
+            if (pending.size() >= batchSize) {
+                requestFlush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UserUpdateException("Ожидание места в буфере записи прервано", e);
+        } finally {
+            lock.unlock();
+        }
+        if (closed) {
+            flush();
+        }
+    }
+
+    private void checkVersion(User user) {
+        Long id = user.getId();
+        Failure failure = failures.remove(id);
+        if (failure != null && Objects.equals(failure.version(), user.getVersion())) {
+            throw failure.cause() instanceof UserConcurrentModificationException
+                    ? new UserConcurrentModificationException("Отложенное обновление пользователя с id " + id
+                    + " не записано: пользователь изменён другим запросом", failure.cause())
+                    : new UserUpdateException("Отложенное обновление пользователя с id " + id + " не записано",
+                    failure.cause());
+        }
+        Long visible = versions.get(id);
+        if (visible != null && !visible.equals(user.getVersion())) {
+            throw new UserConcurrentModificationException("Пользователь с id " + id + " изменён: версия "
+                    + user.getVersion() + ", в буфере записи " + visible, null);
+        }
+    }
+
+    private User buffered(Long id) {
+        lock.lock();
+        try {
+            User state = pending.get(id);
+            return state != null ? state : flushing.get(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private User remove(Long id) {
+        lock.lock();
+        try {
+            // Вызывается под flushLock, поэтому идущей записи нет и версия из буфера больше не нужна.
+            User removed = pending.remove(id);
+            versions.remove(id);
+            failures.remove(id);
+            if (removed != null) {
+                unindex(removed);
+                notFull.signalAll();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unindex(User state) {
+        if (state.getEmail() != null) {
+            pendingByEmail.remove(state.getEmail(), state);
+        }
+    }
+
+    private void requestFlush() {
+        if (!closed && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка при сбросе буфера отложенной записи", e);
+        }
+    }
+
+    // Неудачный пакет повторяется по одной строке, чтобы одна плохая запись
+    // не потеряла остальные.
+    private void writeBatch(List<User> batch) {
+        try {
+            delegate.updateUsers(batch);
+            flushedRows.add(batch.size());
+        } catch (UserUpdateException e) {
+            logger.warn("Пакет из {} отложенных обновлений отклонён, запись по одному: {}",
+                    batch.size(), e.getMessage());
+            batch.forEach(this::writeOne);
+        }
+    }
+
+    private void writeOne(User user) {
+        try {
+            delegate.updateUser(user);
+            flushedRows.increment();
+        } catch (UserUpdateException e) {
+            failedRows.increment();
+            logger.error("Не удалось записать отложенное обновление пользователя с id {}", user.getId(), e);
+            lock.lock();
+            try {
+                failures.put(user.getId(), new Failure(user.getVersion() + 1, e));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
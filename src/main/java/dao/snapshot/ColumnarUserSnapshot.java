@@ -0,0 +1,162 @@
+package dao.snapshot;
+
+import dao.UserDao;
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Колоночная копия таблицы users для отчётов: вместо List<User> примитивные массивы
+// (id, возраст, createdAt в секундах), имена через словарь, email одним массивом UTF-8 байт.
+// refresh() дочитывает строки с id больше водяного знака страницами через UserDao и
+// публикует новый UserColumns; прежние срезы остаются согласованными. Изменения и удаления
+// уже загруженных строк, а также строки, закоммиченные позже с меньшим id, refresh()
+// не видит - для них rebuild(), перечитывающий таблицу целиком.
+public class ColumnarUserSnapshot {
+
+    private static final Logger logger = LogManager.getLogger(ColumnarUserSnapshot.class);
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final UserDao userDao;
+    private final int pageSize;
+    private final ForkJoinPool pool;
+    private final Object refreshLock = new Object();
+
+    // Состояние построителя, меняется только под refreshLock.
+    private int size;
+    private long[] ids;
+    private int[] ages;
+    private long[] createdAt;
+    private int[] nameCodes;
+    private String[] names;
+    private int nameCount;
+    private Map<String, Integer> nameDictionary;
+    private int[] emailOffsets;
+    private byte[] emailBytes;
+    private int maxAge;
+    private Long watermark;
+
+    private volatile UserColumns current;
+
+    public ColumnarUserSnapshot(UserDao userDao) {
+        this(userDao, 1000, ForkJoinPool.commonPool());
+    }
+
+    public ColumnarUserSnapshot(UserDao userDao, int pageSize, ForkJoinPool pool) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть больше 0");
+        }
+        this.userDao = userDao;
+        this.pageSize = pageSize;
+        this.pool = pool;
+        synchronized (refreshLock) {
+            reset();
+            current = publish();
+        }
+    }
+
+    // Текущий срез; до первого refresh() он пустой.
+    public UserColumns columns() {
+        return current;
+    }
+
+    // Возвращает количество добавленных строк.
+    public int refresh() {
+        synchronized (refreshLock) {
+            long start = System.nanoTime();
+            int added = 0;
+            List<User> page;
+            while (!(page = userDao.getUsersAfter(watermark, pageSize)).isEmpty()) {
+                for (User user : page) {
+                    append(user);
+                }
+                added += page.size();
+                watermark = page.get(page.size() - 1).getId();
+            }
+            if (added > 0) {
+                current = publish();
+                logger.info("Колоночный срез дополнен на {} строк за {} мс, всего {}", added,
+                        (System.nanoTime() - start) / 1_000_000, size);
+            }
+            return added;
+        }
+    }
+
+    public int rebuild() {
+        synchronized (refreshLock) {
+            reset();
+            int loaded = refresh();
+            current = publish();
+            return loaded;
+        }
+    }
+
+    public Long watermark() {
+        synchronized (refreshLock) {
+            return watermark;
+        }
+    }
+
+    private void reset() {
+        size = 0;
+        ids = new long[INITIAL_CAPACITY];
+        ages = new int[INITIAL_CAPACITY];
+        createdAt = new long[INITIAL_CAPACITY];
+        nameCodes = new int[INITIAL_CAPACITY];
+        names = new String[64];
+        nameCount = 0;
+        nameDictionary = new HashMap<>();
+        emailOffsets = new int[INITIAL_CAPACITY + 1];
+        emailBytes = new byte[INITIAL_CAPACITY * 24];
+        maxAge = 0;
+        watermark = null;
+    }
+
+    private void append(User user) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            ages = Arrays.copyOf(ages, capacity);
+            createdAt = Arrays.copyOf(createdAt, capacity);
+            nameCodes = Arrays.copyOf(nameCodes, capacity);
+            emailOffsets = Arrays.copyOf(emailOffsets, capacity + 1);
+        }
+        ids[size] = user.getId();
+        ages[size] = user.getAge();
+        createdAt[size] = UserColumns.toEpochSecond(user.getCreatedAt());
+        nameCodes[size] = nameCode(user.getName());
+        byte[] email = user.getEmail().getBytes(StandardCharsets.UTF_8);
+        int offset = emailOffsets[size];
+        if (offset + email.length > emailBytes.length) {
+            emailBytes = Arrays.copyOf(emailBytes, Math.max(emailBytes.length * 2, offset + email.length));
+        }
+        System.arraycopy(email, 0, emailBytes, offset, email.length);
+        emailOffsets[size + 1] = offset + email.length;
+        maxAge = Math.max(maxAge, user.getAge());
+        size++;
+    }
+
+    private int nameCode(String name) {
+        Integer code = nameDictionary.get(name);
+        if (code != null) {
+            return code;
+        }
+        if (nameCount == names.length) {
+            names = Arrays.copyOf(names, nameCount * 2);
+        }
+        names[nameCount] = name;
+        nameDictionary.put(name, nameCount);
+        return nameCount++;
+    }
+
+    private UserColumns publish() {
+        return new UserColumns(size, ids, ages, createdAt, nameCodes, names, nameCount, emailOffsets, emailBytes,
+                maxAge, pool);
+    }
+}
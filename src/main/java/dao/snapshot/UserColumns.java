@@ -0,0 +1,285 @@
+package dao.snapshot;
+
+import dao.AgeBucket;
+import dao.DailySignups;
+import dao.UserFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+// Неизменяемый срез колонок: читает только строки [0, size), поэтому дозапись новых строк
+// в те же массивы при следующем обновлении его не затрагивает. Сканирования делят
+// диапазон строк на куски по LEAF_ROWS и выполняются в ForkJoinPool.
+// createdAt хранится в секундах (дробная часть отбрасывается), границы фильтра по дате тоже.
+public final class UserColumns {
+
+    static final int LEAF_ROWS = 32_768;
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final int size;
+    private final long[] ids;
+    private final int[] ages;
+    private final long[] createdAt;
+    private final int[] nameCodes;
+    private final String[] names;
+    private final int nameCount;
+    private final int[] emailOffsets;
+    private final byte[] emailBytes;
+    private final int maxAge;
+    private final ForkJoinPool pool;
+
+    UserColumns(int size, long[] ids, int[] ages, long[] createdAt, int[] nameCodes, String[] names, int nameCount,
+                int[] emailOffsets, byte[] emailBytes, int maxAge, ForkJoinPool pool) {
+        this.size = size;
+        this.ids = ids;
+        this.ages = ages;
+        this.createdAt = createdAt;
+        this.nameCodes = nameCodes;
+        this.names = names;
+        this.nameCount = nameCount;
+        this.emailOffsets = emailOffsets;
+        this.emailBytes = emailBytes;
+        this.maxAge = maxAge;
+        this.pool = pool;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int row) {
+        return ids[checkRow(row)];
+    }
+
+    public int age(int row) {
+        return ages[checkRow(row)];
+    }
+
+    public LocalDateTime createdAt(int row) {
+        return LocalDateTime.ofEpochSecond(createdAt[checkRow(row)], 0, ZoneOffset.UTC);
+    }
+
+    public String name(int row) {
+        return names[nameCodes[checkRow(row)]];
+    }
+
+    public String email(int row) {
+        checkRow(row);
+        return new String(emailBytes, emailOffsets[row], emailOffsets[row + 1] - emailOffsets[row],
+                StandardCharsets.UTF_8);
+    }
+
+    // Строки отсортированы по id, поэтому поиск двоичный.
+    public int rowOf(long id) {
+        int row = Arrays.binarySearch(ids, 0, size, id);
+        return row >= 0 ? row : -1;
+    }
+
+    public long count(UserFilter filter) {
+        Predicate predicate = new Predicate(filter);
+        return scan((from, to) -> {
+            long count = 0;
+            for (int row = from; row < to; row++) {
+                if (predicate.test(row)) {
+                    count++;
+                }
+            }
+            return count;
+        }, Long::sum, 0L);
+    }
+
+    public long[] ids(UserFilter filter) {
+        Predicate predicate = new Predicate(filter);
+        return scan((from, to) -> {
+            long[] matched = new long[to - from];
+            int found = 0;
+            for (int row = from; row < to; row++) {
+                if (predicate.test(row)) {
+                    matched[found++] = ids[row];
+                }
+            }
+            return Arrays.copyOf(matched, found);
+        }, UserColumns::concat, new long[0]);
+    }
+
+    public double averageAge(UserFilter filter) {
+        Predicate predicate = new Predicate(filter);
+        long[] sumAndCount = scan((from, to) -> {
+            long sum = 0;
+            long count = 0;
+            for (int row = from; row < to; row++) {
+                if (predicate.test(row)) {
+                    sum += ages[row];
+                    count++;
+                }
+            }
+            return new long[]{sum, count};
+        }, UserColumns::add, new long[2]);
+        return sumAndCount[1] == 0 ? 0 : (double) sumAndCount[0] / sumAndCount[1];
+    }
+
+    // Тот же результат, что у UserDao.ageHistogram: пустые корзины не возвращаются.
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина корзины должна быть больше 0");
+        }
+        int bucketCount = Math.max(maxAge, 0) / bucketWidth + 1;
+        long[] counts = scan((from, to) -> {
+            long[] partial = new long[bucketCount];
+            for (int row = from; row < to; row++) {
+                partial[Math.max(ages[row], 0) / bucketWidth]++;
+            }
+            return partial;
+        }, UserColumns::add, new long[bucketCount]);
+        List<AgeBucket> buckets = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            if (counts[i] > 0) {
+                buckets.add(new AgeBucket(i * bucketWidth, (i + 1) * bucketWidth, counts[i]));
+            }
+        }
+        return buckets;
+    }
+
+    // Тот же результат, что у UserDao.signupsPerDay: границы включительно, дни без регистраций с нулём.
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        long firstDay = from.toEpochDay();
+        int dayCount = (int) (to.toEpochDay() - firstDay + 1);
+        if (dayCount <= 0) {
+            return List.of();
+        }
+        long[] counts = scan((start, end) -> {
+            long[] partial = new long[dayCount];
+            for (int row = start; row < end; row++) {
+                long day = Math.floorDiv(createdAt[row], SECONDS_PER_DAY) - firstDay;
+                if (day >= 0 && day < dayCount) {
+                    partial[(int) day]++;
+                }
+            }
+            return partial;
+        }, UserColumns::add, new long[dayCount]);
+        List<DailySignups> days = new ArrayList<>(dayCount);
+        for (int i = 0; i < dayCount; i++) {
+            days.add(new DailySignups(from.plusDays(i), counts[i]));
+        }
+        return days;
+    }
+
+    // Оценка занятой памяти: заполненные части колонок, словарь имён и байты email.
+    public long memoryBytes() {
+        long bytes = (long) size * (Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES);
+        bytes += emailOffsets[size];
+        for (int i = 0; i < nameCount; i++) {
+            bytes += 40 + names[i].length();
+        }
+        return bytes;
+    }
+
+    static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private int checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Строка " + row + " вне среза из " + size + " строк");
+        }
+        return row;
+    }
+
+    private <T> T scan(RangeScan<T> leaf, BinaryOperator<T> combiner, T empty) {
+        if (size == 0) {
+            return empty;
+        }
+        if (size <= LEAF_ROWS) {
+            return leaf.scan(0, size);
+        }
+        return pool.invoke(new ScanTask<>(0, size, leaf, combiner));
+    }
+
+    private static long[] add(long[] left, long[] right) {
+        for (int i = 0; i < left.length; i++) {
+            left[i] += right[i];
+        }
+        return left;
+    }
+
+    private static long[] concat(long[] left, long[] right) {
+        long[] result = Arrays.copyOf(left, left.length + right.length);
+        System.arraycopy(right, 0, result, left.length, right.length);
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface RangeScan<T> {
+        T scan(int from, int to);
+    }
+
+    private static final class ScanTask<T> extends RecursiveTask<T> {
+        private final int from;
+        private final int to;
+        private final RangeScan<T> leaf;
+        private final BinaryOperator<T> combiner;
+
+        private ScanTask(int from, int to, RangeScan<T> leaf, BinaryOperator<T> combiner) {
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected T compute() {
+            if (to - from <= LEAF_ROWS) {
+                return leaf.scan(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask<T> left = new ScanTask<>(from, middle, leaf, combiner);
+            left.fork();
+            T right = new ScanTask<>(middle, to, leaf, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
+    }
+
+    // Фильтр, разобранный в примитивы; префикс имени проверяется один раз на словарь,
+    // а не на каждую строку.
+    private final class Predicate {
+        private final int minAge;
+        private final int maxAge;
+        private final long createdFrom;
+        private final long createdTo;
+        private final boolean[] nameMatches;
+
+        private Predicate(UserFilter filter) {
+            this.minAge = filter.minAge() == null ? Integer.MIN_VALUE : filter.minAge();
+            this.maxAge = filter.maxAge() == null ? Integer.MAX_VALUE : filter.maxAge();
+            this.createdFrom = filter.createdFrom() == null ? Long.MIN_VALUE : toEpochSecond(filter.createdFrom());
+            this.createdTo = filter.createdTo() == null ? Long.MAX_VALUE : toEpochSecond(filter.createdTo());
+            String prefix = filter.namePrefix();
+            if (prefix == null || prefix.isEmpty()) {
+                this.nameMatches = null;
+            } else {
+                String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+                this.nameMatches = new boolean[nameCount];
+                for (int i = 0; i < nameCount; i++) {
+                    nameMatches[i] = names[i].toLowerCase(Locale.ROOT).startsWith(lowerPrefix);
+                }
+            }
+        }
+
+        private boolean test(int row) {
+            int age = ages[row];
+            long created = createdAt[row];
+            return age >= minAge && age <= maxAge
+                    && created >= createdFrom && created < createdTo
+                    && (nameMatches == null || nameMatches[nameCodes[row]]);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package exceptions.app;
+
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
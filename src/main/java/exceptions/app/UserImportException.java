@@ -0,0 +1,7 @@
+package exceptions.app;
+
+public class UserImportException extends RuntimeException {
+    public UserImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package exceptions.dao;
+
+public class UserConcurrentModificationException extends UserUpdateException {
+	public UserConcurrentModificationException(String message, Throwable cause)
+	{
+		super(message, cause);
+	}
+}
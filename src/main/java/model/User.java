@@ -1,20 +1,38 @@
 package model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import util.AssignedOrSequenceIdGenerator;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "users")
+@DynamicUpdate
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_age", columnList = "age"),
+        @Index(name = "idx_users_created_at", columnList = "created_at"),
+        @Index(name = "idx_users_change_seq", columnList = "change_seq")
+})
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "users_seq")
+    @GenericGenerator(name = "users_seq", type = AssignedOrSequenceIdGenerator.class, parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "users_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")
+    })
     private Long id;
 
     @Column(nullable = false)
     private String name;
 
-    @Column(nullable = false, unique = true)
+    @NaturalId(mutable = true)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
@@ -23,15 +41,49 @@ public class User {
     @Column(name = "created_at", updatable = false, nullable = false)
     private LocalDateTime createdAt;
 
+    // Оптимистическая блокировка: UPDATE ... WHERE id = ? AND version = ?.
+    // Значение по умолчанию нужно, чтобы колонка добавилась к уже заполненной таблице.
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    // Заполняются триггером базы (util.ChangeTracking) при каждой вставке и обновлении,
+    // поэтому Hibernate их не пишет; в загруженной сущности актуальны на момент чтения.
+    @ColumnDefault("current_timestamp")
+    @Column(name = "updated_at", insertable = false, updatable = false, nullable = false)
+    private LocalDateTime updatedAt;
+
+    @ColumnDefault("0")
+    @Column(name = "change_seq", insertable = false, updatable = false, nullable = false)
+    private Long changeSequence;
+
     public User() {}
 
     public User(String name, String email, Integer age) {
         this.name = name;
-        this.email = email;
+        this.email = normalizeEmail(email);
         this.age = age;
         this.createdAt = LocalDateTime.now();
     }
 
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public User copy() {
+        User copy = new User();
+        copy.id = id;
+        copy.name = name;
+        copy.email = email;
+        copy.age = age;
+        copy.createdAt = createdAt;
+        copy.version = version;
+        copy.updatedAt = updatedAt;
+        copy.changeSequence = changeSequence;
+        return copy;
+    }
+
     @PrePersist
     private void prePersist() {
         this.createdAt = LocalDateTime.now();
@@ -58,7 +110,7 @@ public class User {
     }
 
     public void setEmail(String email) {
-        this.email = email;
+        this.email = normalizeEmail(email);
     }
 
     public Integer getAge() {
@@ -73,6 +125,34 @@ public class User {
         return createdAt;
     }
 
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Long getChangeSequence() {
+        return changeSequence;
+    }
+
+    public void setChangeSequence(Long changeSequence) {
+        this.changeSequence = changeSequence;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -81,6 +161,7 @@ public class User {
                 ", email='" + email + '\'' +
                 ", age=" + age +
                 ", createdAt=" + createdAt +
+                ", version=" + version +
                 '}';
     }
 }
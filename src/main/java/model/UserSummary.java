@@ -0,0 +1,4 @@
+package model;
+
+public record UserSummary(Long id, String name, String email) {
+}
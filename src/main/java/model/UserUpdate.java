@@ -0,0 +1,20 @@
+package model;
+
+public record UserUpdate(String name, String email, Integer age) {
+
+    public static UserUpdate name(String name) {
+        return new UserUpdate(name, null, null);
+    }
+
+    public static UserUpdate email(String email) {
+        return new UserUpdate(null, email, null);
+    }
+
+    public static UserUpdate age(Integer age) {
+        return new UserUpdate(null, null, age);
+    }
+
+    public boolean isEmpty() {
+        return name == null && email == null && age == null;
+    }
+}
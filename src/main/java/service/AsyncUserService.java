@@ -0,0 +1,50 @@
+package service;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public interface AsyncUserService extends AutoCloseable {
+    CompletableFuture<Void> addUser(User user);
+    CompletableFuture<BulkInsertResult> addUsers(Collection<User> users);
+    CompletableFuture<User> getUserById(Long id);
+    CompletableFuture<Map<Long, User>> getUsersByIds(Collection<Long> ids);
+    CompletableFuture<Optional<User>> getUserByEmail(String email);
+    CompletableFuture<List<User>> getAllUsers();
+    CompletableFuture<Long> forEachUser(Consumer<? super User> action);
+    CompletableFuture<List<User>> getUsersAfter(Long lastId, int limit);
+    CompletableFuture<UserSummary> getUserSummaryById(Long id);
+    CompletableFuture<List<UserSummary>> getUserSummariesAfter(Long lastId, int limit);
+    CompletableFuture<Long> forEachUserSummary(Consumer<? super UserSummary> action);
+    CompletableFuture<List<User>> findUsers(UserFilter filter, Page page);
+    CompletableFuture<Long> countUsers(UserFilter filter);
+    CompletableFuture<List<AgeBucket>> ageHistogram(int bucketWidth);
+    CompletableFuture<List<DailySignups>> signupsPerDay(LocalDate from, LocalDate to);
+    CompletableFuture<Void> updateUser(User user);
+    CompletableFuture<User> updateUser(Long id, Function<User, User> update);
+    CompletableFuture<Void> updateUserFields(Long id, UserUpdate changes);
+    CompletableFuture<Void> deleteUserById(Long id);
+    CompletableFuture<Long> exportUsers(UserExportFormat format, OutputStream out);
+    CompletableFuture<Integer> changeFeedCount();
+    CompletableFuture<UserChanges> getChangesSince(int feed, long watermark, int limit);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,29 @@
+package service;
+
+import java.time.Duration;
+
+// limit - число одновременных вызовов класса операций, queueSize - сколько вызовов может ждать
+// свободного места, maxWait - сколько ждать. При adaptive лимит снижается от limit до 1,
+// когда задержка растёт относительно базовой, и возвращается обратно, когда она приходит в норму.
+public record BulkheadOptions(int limit, int queueSize, Duration maxWait, boolean adaptive) {
+
+    public BulkheadOptions {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Лимит параллельных вызовов должен быть больше 0");
+        }
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("Размер очереди не может быть отрицательным");
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Время ожидания не может быть отрицательным");
+        }
+    }
+
+    public static BulkheadOptions of(int limit, int queueSize, Duration maxWait) {
+        return new BulkheadOptions(limit, queueSize, maxWait, false);
+    }
+
+    public BulkheadOptions withAdaptive(boolean adaptive) {
+        return new BulkheadOptions(limit, queueSize, maxWait, adaptive);
+    }
+}
@@ -0,0 +1,78 @@
+package service;
+
+import exceptions.app.DeadlineExceededException;
+
+import java.time.Duration;
+
+// Крайний срок запроса в текущем потоке. Вызывающий открывает область:
+//   try (Deadline.Scope ignored = Deadline.within(Duration.ofMillis(200))) { service.getUserById(id); }
+// Вложенная область не может продлить срок внешней. Сервисы проверяют срок до обращения
+// к базе и не начинают работу, результат которой вызывающему уже не нужен.
+// В другой поток срок передаётся явно: current() при постановке задачи, at() внутри неё.
+public final class Deadline {
+
+    public static final long NONE = Long.MAX_VALUE;
+
+    private static final ThreadLocal<Long> current = new ThreadLocal<>();
+
+    private Deadline() {
+    }
+
+    public static Scope within(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        return at(deadline);
+    }
+
+    // deadlineNanos - значение System.nanoTime(); NONE - без срока.
+    public static Scope at(long deadlineNanos) {
+        Long previous = current.get();
+        if (previous == null || earlier(deadlineNanos, previous)) {
+            current.set(deadlineNanos);
+        }
+        return new Scope(previous);
+    }
+
+    public static long current() {
+        Long deadline = current.get();
+        return deadline == null ? NONE : deadline;
+    }
+
+    public static long remainingNanos() {
+        long deadline = current();
+        return deadline == NONE ? NONE : deadline - System.nanoTime();
+    }
+
+    public static void check(String operation) {
+        if (remainingNanos() <= 0) {
+            throw new DeadlineExceededException("Срок запроса истёк до выполнения: " + operation);
+        }
+    }
+
+    // Сравнение через разность: nanoTime может переполняться.
+    public static boolean earlier(long first, long second) {
+        if (first == NONE) {
+            return false;
+        }
+        if (second == NONE) {
+            return true;
+        }
+        return first - second < 0;
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Long previous;
+
+        private Scope(Long previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package service;
+
+// expectedEmails - на сколько адресов рассчитан фильтр, falsePositiveRate - доля новых адресов,
+// для которых всё же нужна проверка в базе, maxMemoryBytes - предел памяти фильтра.
+public record EmailFilterOptions(long expectedEmails, double falsePositiveRate, long maxMemoryBytes) {
+
+    public EmailFilterOptions {
+        if (expectedEmails <= 0) {
+            throw new IllegalArgumentException("Ожидаемое число адресов должно быть больше 0");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Доля ложных срабатываний должна быть в интервале (0, 1)");
+        }
+        if (maxMemoryBytes <= 0) {
+            throw new IllegalArgumentException("Лимит памяти должен быть больше 0");
+        }
+    }
+
+    public static EmailFilterOptions defaults() {
+        return new EmailFilterOptions(1_000_000, 0.01, 16L * 1024 * 1024);
+    }
+
+    public EmailFilterOptions withExpectedEmails(long expectedEmails) {
+        return new EmailFilterOptions(expectedEmails, falsePositiveRate, maxMemoryBytes);
+    }
+
+    public EmailFilterOptions withFalsePositiveRate(double falsePositiveRate) {
+        return new EmailFilterOptions(expectedEmails, falsePositiveRate, maxMemoryBytes);
+    }
+
+    public EmailFilterOptions withMaxMemoryBytes(long maxMemoryBytes) {
+        return new EmailFilterOptions(expectedEmails, falsePositiveRate, maxMemoryBytes);
+    }
+}
@@ -0,0 +1,22 @@
+package service;
+
+public record ExportOptions(boolean gzip, long maxFileBytes, int bufferSize) {
+
+    public ExportOptions {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть больше 0");
+        }
+    }
+
+    public static ExportOptions defaults() {
+        return new ExportOptions(false, 0, 1 << 20);
+    }
+
+    public ExportOptions withGzip(boolean gzip) {
+        return new ExportOptions(gzip, maxFileBytes, bufferSize);
+    }
+
+    public ExportOptions withMaxFileBytes(long maxFileBytes) {
+        return new ExportOptions(gzip, maxFileBytes, bufferSize);
+    }
+}
@@ -0,0 +1,17 @@
+package service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public record ExportReport(long rows, long bytes, List<Path> files, Duration elapsed) {
+
+    public ExportReport {
+        files = List.copyOf(files);
+    }
+
+    public double megabytesPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds == 0 ? 0 : bytes / seconds / (1 << 20);
+    }
+}
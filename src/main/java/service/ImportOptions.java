@@ -0,0 +1,34 @@
+package service;
+
+import java.time.Duration;
+
+public record ImportOptions(int batchSize, int workers, int queueCapacity, boolean resume, Duration progressInterval) {
+
+    public ImportOptions {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета должен быть больше 0");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Число потоков импорта должно быть больше 0");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость очереди должна быть больше 0");
+        }
+    }
+
+    public static ImportOptions defaults() {
+        return new ImportOptions(1000, 4, 8, false, Duration.ofSeconds(5));
+    }
+
+    public ImportOptions withBatchSize(int batchSize) {
+        return new ImportOptions(batchSize, workers, queueCapacity, resume, progressInterval);
+    }
+
+    public ImportOptions withWorkers(int workers) {
+        return new ImportOptions(batchSize, workers, Math.max(queueCapacity, workers * 2), resume, progressInterval);
+    }
+
+    public ImportOptions withResume(boolean resume) {
+        return new ImportOptions(batchSize, workers, queueCapacity, resume, progressInterval);
+    }
+}
@@ -0,0 +1,13 @@
+package service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+public record ImportReport(long read, long inserted, long rejected, long skipped,
+                           Duration elapsed, Path rejectsFile) {
+
+    public double rowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds == 0 ? 0 : read / seconds;
+    }
+}
@@ -0,0 +1,7 @@
+package service;
+
+import java.nio.file.Path;
+
+public interface UserExporter {
+    ExportReport exportTo(Path target, ExportOptions options);
+}
@@ -0,0 +1,7 @@
+package service;
+
+import java.nio.file.Path;
+
+public interface UserImporter {
+    ImportReport importFile(Path file, ImportOptions options);
+}
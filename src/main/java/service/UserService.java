@@ -1,12 +1,44 @@
 package service;
 
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserExportFormat;
+import dao.UserFilter;
 import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public interface UserService {
     void addUser(User user);
+    BulkInsertResult addUsers(Collection<User> users);
     User getUserById(Long id);
+    Optional<User> getUserByEmail(String email);
     List<User> getAllUsers();
+    Stream<User> streamAllUsers();
+    List<User> getUsersAfter(Long lastId, int limit);
+    UserSummary getUserSummaryById(Long id);
+    List<UserSummary> getUserSummariesAfter(Long lastId, int limit);
+    Stream<UserSummary> streamUserSummaries();
+    List<User> findUsers(UserFilter filter, Page page);
+    long countUsers(UserFilter filter);
+    List<AgeBucket> ageHistogram(int bucketWidth);
+    List<DailySignups> signupsPerDay(LocalDate from, LocalDate to);
     void updateUser(User user);
+    User updateUser(Long id, Function<User, User> update);
+    void updateUserFields(Long id, UserUpdate changes);
     void deleteUserById(Long id);
+    long exportUsers(UserExportFormat format, OutputStream out);
+    int changeFeedCount();
+    UserChanges getChangesSince(int feed, long watermark, int limit);
 }
@@ -0,0 +1,281 @@
+package service.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserNotFoundException;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import service.AsyncUserService;
+import service.Deadline;
+import service.UserService;
+import util.HibernateUtil;
+import util.pool.ConnectionPool;
+import util.pool.PoolConfig;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class AsyncUserServiceImpl implements AsyncUserService {
+
+    private static final Logger logger = LogManager.getLogger(AsyncUserServiceImpl.class);
+    private static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    private final UserService userService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final Duration timeout;
+
+    public AsyncUserServiceImpl(UserService userService, Duration timeout) {
+        this(userService, poolMaxSize(), timeout);
+    }
+
+    public AsyncUserServiceImpl(UserService userService, int maxConcurrency, Duration timeout) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Лимит параллельных запросов должен быть больше 0");
+        }
+        this.userService = userService;
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.timeout = timeout;
+        logger.info("Асинхронный сервис пользователей запущен: maxConcurrency={}, timeout={}", maxConcurrency, timeout);
+    }
+
+    @Override
+    public CompletableFuture<Void> addUser(User user) {
+        return run(() -> userService.addUser(user));
+    }
+
+    @Override
+    public CompletableFuture<BulkInsertResult> addUsers(Collection<User> users) {
+        return submit(() -> userService.addUsers(users));
+    }
+
+    @Override
+    public CompletableFuture<User> getUserById(Long id) {
+        return submit(() -> userService.getUserById(id));
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, User>> getUsersByIds(Collection<Long> ids) {
+        List<CompletableFuture<Optional<User>>> lookups = ids.stream()
+                .distinct()
+                .map(id -> submit(() -> findById(id)))
+                .toList();
+        return CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<Long, User> users = new HashMap<>();
+                    for (CompletableFuture<Optional<User>> lookup : lookups) {
+                        lookup.join().ifPresent(user -> users.put(user.getId(), user));
+                    }
+                    return users;
+                })
+                .whenComplete((users, e) -> {
+                    if (e != null) lookups.forEach(lookup -> lookup.cancel(true));
+                });
+    }
+
+    @Override
+    public CompletableFuture<Optional<User>> getUserByEmail(String email) {
+        return submit(() -> userService.getUserByEmail(email));
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getAllUsers() {
+        return submit(userService::getAllUsers);
+    }
+
+    @Override
+    public CompletableFuture<Long> forEachUser(Consumer<? super User> action) {
+        return forEach(userService::streamAllUsers, action);
+    }
+
+    @Override
+    public CompletableFuture<List<User>> getUsersAfter(Long lastId, int limit) {
+        return submit(() -> userService.getUsersAfter(lastId, limit));
+    }
+
+    @Override
+    public CompletableFuture<UserSummary> getUserSummaryById(Long id) {
+        return submit(() -> userService.getUserSummaryById(id));
+    }
+
+    @Override
+    public CompletableFuture<List<UserSummary>> getUserSummariesAfter(Long lastId, int limit) {
+        return submit(() -> userService.getUserSummariesAfter(lastId, limit));
+    }
+
+    @Override
+    public CompletableFuture<Long> forEachUserSummary(Consumer<? super UserSummary> action) {
+        return forEach(userService::streamUserSummaries, action);
+    }
+
+    @Override
+    public CompletableFuture<List<User>> findUsers(UserFilter filter, Page page) {
+        return submit(() -> userService.findUsers(filter, page));
+    }
+
+    @Override
+    public CompletableFuture<Long> countUsers(UserFilter filter) {
+        return submit(() -> userService.countUsers(filter));
+    }
+
+    @Override
+    public CompletableFuture<List<AgeBucket>> ageHistogram(int bucketWidth) {
+        return submit(() -> userService.ageHistogram(bucketWidth));
+    }
+
+    @Override
+    public CompletableFuture<List<DailySignups>> signupsPerDay(LocalDate from, LocalDate to) {
+        return submit(() -> userService.signupsPerDay(from, to));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUser(User user) {
+        return run(() -> userService.updateUser(user));
+    }
+
+    @Override
+    public CompletableFuture<User> updateUser(Long id, Function<User, User> update) {
+        return submit(() -> userService.updateUser(id, update));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateUserFields(Long id, UserUpdate changes) {
+        return run(() -> userService.updateUserFields(id, changes));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteUserById(Long id) {
+        return run(() -> userService.deleteUserById(id));
+    }
+
+    // Поток пишется из потока исполнителя; вызывающий не трогает out до завершения future.
+    @Override
+    public CompletableFuture<Long> exportUsers(UserExportFormat format, OutputStream out) {
+        return submit(() -> userService.exportUsers(format, out));
+    }
+
+    @Override
+    public CompletableFuture<Integer> changeFeedCount() {
+        return submit(userService::changeFeedCount);
+    }
+
+    @Override
+    public CompletableFuture<UserChanges> getChangesSince(int feed, long watermark, int limit) {
+        return submit(() -> userService.getChangesSince(feed, watermark, limit));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private Optional<User> findById(Long id) {
+        try {
+            return Optional.of(userService.getUserById(id));
+        } catch (UserNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private <T> CompletableFuture<Long> forEach(Supplier<Stream<T>> open, Consumer<? super T> action) {
+        return submit(() -> {
+            try (Stream<T> items = open.get()) {
+                long[] count = new long[1];
+                items.forEach(item -> {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("Обход пользователей отменён");
+                    }
+                    action.accept(item);
+                    count[0]++;
+                });
+                return count[0];
+            }
+        });
+    }
+
+    private CompletableFuture<Void> run(Runnable task) {
+        return submit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    // Срок задачи - более ранний из срока вызывающего потока и timeout: переборки сервиса
+    // отбрасывают её, не обращаясь к базе, если ответ уже никому не нужен.
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long deadline = deadline();
+        Future<?> running = executor.submit(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                result.completeExceptionally(new CancellationException("Запрос отменён до выполнения"));
+                return;
+            }
+            try (Deadline.Scope ignored = Deadline.at(deadline)) {
+                if (!result.isDone()) {
+                    result.complete(task.call());
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        });
+        result.whenComplete((value, e) -> {
+            if (e instanceof CancellationException || e instanceof TimeoutException) {
+                running.cancel(true);
+            }
+        });
+        if (timeout != null && !timeout.isZero()) {
+            result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        return result;
+    }
+
+    private long deadline() {
+        long callerDeadline = Deadline.current();
+        if (timeout == null || timeout.isZero()) {
+            return callerDeadline;
+        }
+        long timeoutDeadline = System.nanoTime() + timeout.toNanos();
+        return Deadline.earlier(timeoutDeadline, callerDeadline) ? timeoutDeadline : callerDeadline;
+    }
+
+    private static int poolMaxSize() {
+        return HibernateUtil.getConnectionPool(HibernateUtil.getSessionFactory())
+                .map(ConnectionPool::getConfig)
+                .map(PoolConfig::maxSize)
+                .orElse(DEFAULT_MAX_CONCURRENCY);
+    }
+}
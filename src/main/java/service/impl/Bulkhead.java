@@ -0,0 +1,157 @@
+package service.impl;
+
+import exceptions.app.DeadlineExceededException;
+import exceptions.app.ServiceOverloadedException;
+import service.BulkheadOptions;
+import service.Deadline;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Ограничитель параллельности одного класса операций с ограниченной очередью ожидания.
+// Ожидающие получают место строго в порядке прихода: у каждого своё условие в очереди,
+// освободившееся место будит только голову, а новый вызов при непустой очереди встаёт
+// в её конец, даже если место уже свободно и разбуженный ещё не успел его занять.
+//
+// Адаптивный режим (AIMD по задержке): базовая задержка - минимум за последнее окно вызовов.
+// Вызов дольше TOLERANCE базовой уменьшает лимит на 10% (не чаще раза за окно),
+// limit успешных быстрых вызовов подряд увеличивают его на 1, но не выше настроенного.
+final class Bulkhead {
+
+    private static final double TOLERANCE = 2.0;
+    private static final int WINDOW = 100;
+
+    private final String name;
+    private final BulkheadOptions options;
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    // Всё ниже меняется только под lock.
+    private final Deque<Condition> queue = new ArrayDeque<>();
+    private int limit;
+    private int inFlight;
+    private long accepted;
+    private long rejected;
+    private long timedOut;
+    private long deadlineExceeded;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private int windowSamples;
+    private int samplesSinceDecrease;
+    private int fastInRow;
+
+    Bulkhead(String name, BulkheadOptions options) {
+        this.name = name;
+        this.options = options;
+        this.limit = options.limit();
+    }
+
+    void acquire() {
+        long deadline = Deadline.current();
+        lock.lock();
+        try {
+            if (deadline != Deadline.NONE && deadline - System.nanoTime() <= 0) {
+                deadlineExceeded++;
+                throw new DeadlineExceededException("Срок запроса истёк до выполнения: " + name);
+            }
+            if (inFlight < limit && queue.isEmpty()) {
+                inFlight++;
+                accepted++;
+                return;
+            }
+            if (queue.size() >= options.queueSize()) {
+                rejected++;
+                throw new ServiceOverloadedException("Сервис перегружен (" + name + "): " + inFlight
+                        + " выполняется, " + queue.size() + " в очереди");
+            }
+            long waitUntil = System.nanoTime() + options.maxWait().toNanos();
+            boolean deadlineFirst = Deadline.earlier(deadline, waitUntil);
+            if (deadlineFirst) {
+                waitUntil = deadline;
+            }
+            Condition turn = lock.newCondition();
+            queue.addLast(turn);
+            try {
+                while (queue.peekFirst() != turn || inFlight >= limit) {
+                    long remaining = waitUntil - System.nanoTime();
+                    if (remaining <= 0) {
+                        if (deadlineFirst) {
+                            deadlineExceeded++;
+                            throw new DeadlineExceededException("Срок запроса истёк в очереди: " + name);
+                        }
+                        timedOut++;
+                        throw new ServiceOverloadedException("Сервис перегружен (" + name + "): нет места за "
+                                + options.maxWait().toMillis() + " мс");
+                    }
+                    turn.awaitNanos(remaining);
+                }
+                inFlight++;
+                accepted++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected++;
+                throw new ServiceOverloadedException("Ожидание места прервано (" + name + ")");
+            } finally {
+                // Следующий в очереди продолжает, если место есть: после роста лимита
+                // или если этот ожидающий ушёл по таймауту.
+                queue.remove(turn);
+                signalHead();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (options.adaptive()) {
+                adapt(latencyNanos);
+            }
+            signalHead();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void signalHead() {
+        Condition head = queue.peekFirst();
+        if (head != null && inFlight < limit) {
+            head.signal();
+        }
+    }
+
+    private void adapt(long latencyNanos) {
+        windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+        if (++windowSamples >= WINDOW) {
+            baselineNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowSamples = 0;
+        }
+        baselineNanos = Math.min(baselineNanos, latencyNanos);
+        samplesSinceDecrease++;
+        if (latencyNanos > TOLERANCE * baselineNanos) {
+            fastInRow = 0;
+            if (samplesSinceDecrease >= WINDOW && limit > 1) {
+                limit = Math.max(1, (int) (limit * 0.9));
+                samplesSinceDecrease = 0;
+            }
+        } else if (++fastInRow >= limit && limit < options.limit()) {
+            limit++;
+            fastInRow = 0;
+        }
+    }
+
+    BulkheadUserService.BulkheadStats stats() {
+        lock.lock();
+        try {
+            return new BulkheadUserService.BulkheadStats(limit, inFlight, queue.size(), accepted, rejected, timedOut,
+                    deadlineExceeded, baselineNanos == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMicros(baselineNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+}
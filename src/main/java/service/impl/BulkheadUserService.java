@@ -0,0 +1,192 @@
+package service.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import service.BulkheadOptions;
+import service.UserService;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Переборки между классами операций: у точечных чтений, постраничных запросов, полных
+// обходов и записей свои лимиты параллельности, поэтому медленный getAllUsers не занимает
+// соединения, нужные getUserById. Сверх лимита вызов ждёт в ограниченной очереди, при
+// заполненной очереди или истёкшем ожидании сразу получает ServiceOverloadedException.
+// Вызов с истёкшим сроком (Deadline) до базы не доходит: DeadlineExceededException.
+// Для потоков место держится до закрытия Stream.
+public class BulkheadUserService extends ForwardingUserService {
+
+    public enum OperationClass {
+        LOOKUP, QUERY, SCAN, WRITE
+    }
+
+    public record BulkheadStats(int limit, int inFlight, int queued, long accepted, long rejected, long timedOut,
+                                long deadlineExceeded, long baselineMicros) {
+    }
+
+    private final Map<OperationClass, Bulkhead> bulkheads = new EnumMap<>(OperationClass.class);
+
+    public BulkheadUserService(UserService delegate, Map<OperationClass, BulkheadOptions> options) {
+        super(delegate);
+        for (OperationClass operationClass : OperationClass.values()) {
+            BulkheadOptions classOptions = options.get(operationClass);
+            if (classOptions == null) {
+                throw new IllegalArgumentException("Не заданы лимиты для класса операций " + operationClass);
+            }
+            bulkheads.put(operationClass, new Bulkhead(operationClass.name().toLowerCase(Locale.ROOT), classOptions));
+        }
+    }
+
+    public Map<OperationClass, BulkheadStats> getStats() {
+        Map<OperationClass, BulkheadStats> stats = new EnumMap<>(OperationClass.class);
+        bulkheads.forEach((operationClass, bulkhead) -> stats.put(operationClass, bulkhead.stats()));
+        return stats;
+    }
+
+    @Override
+    public void addUser(User user) {
+        run(OperationClass.WRITE, () -> delegate.addUser(user));
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        return call(OperationClass.WRITE, () -> delegate.addUsers(users));
+    }
+
+    @Override
+    public User getUserById(Long id) {
+        return call(OperationClass.LOOKUP, () -> delegate.getUserById(id));
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return call(OperationClass.LOOKUP, () -> delegate.getUserByEmail(email));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return call(OperationClass.SCAN, delegate::getAllUsers);
+    }
+
+    @Override
+    public Stream<User> streamAllUsers() {
+        return stream(delegate::streamAllUsers);
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        return call(OperationClass.QUERY, () -> delegate.getUsersAfter(lastId, limit));
+    }
+
+    @Override
+    public UserSummary getUserSummaryById(Long id) {
+        return call(OperationClass.LOOKUP, () -> delegate.getUserSummaryById(id));
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return call(OperationClass.QUERY, () -> delegate.getUserSummariesAfter(lastId, limit));
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        return stream(delegate::streamUserSummaries);
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        return call(OperationClass.QUERY, () -> delegate.findUsers(filter, page));
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return call(OperationClass.QUERY, () -> delegate.countUsers(filter));
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        return call(OperationClass.QUERY, () -> delegate.ageHistogram(bucketWidth));
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        return call(OperationClass.QUERY, () -> delegate.signupsPerDay(from, to));
+    }
+
+    @Override
+    public void updateUser(User user) {
+        run(OperationClass.WRITE, () -> delegate.updateUser(user));
+    }
+
+    @Override
+    public User updateUser(Long id, Function<User, User> update) {
+        return call(OperationClass.WRITE, () -> delegate.updateUser(id, update));
+    }
+
+    @Override
+    public void updateUserFields(Long id, UserUpdate changes) {
+        run(OperationClass.WRITE, () -> delegate.updateUserFields(id, changes));
+    }
+
+    @Override
+    public void deleteUserById(Long id) {
+        run(OperationClass.WRITE, () -> delegate.deleteUserById(id));
+    }
+
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        return call(OperationClass.SCAN, () -> delegate.exportUsers(format, out));
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        return call(OperationClass.QUERY, () -> delegate.getChangesSince(feed, watermark, limit));
+    }
+
+    private <T> T call(OperationClass operationClass, Supplier<T> work) {
+        Bulkhead bulkhead = bulkheads.get(operationClass);
+        bulkhead.acquire();
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            bulkhead.release(System.nanoTime() - start);
+        }
+    }
+
+    private void run(OperationClass operationClass, Runnable work) {
+        call(operationClass, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private <T> Stream<T> stream(Supplier<Stream<T>> open) {
+        Bulkhead bulkhead = bulkheads.get(OperationClass.SCAN);
+        bulkhead.acquire();
+        long start = System.nanoTime();
+        try {
+            return open.get().onClose(() -> bulkhead.release(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            bulkhead.release(System.nanoTime() - start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package service.impl;
+
+import model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Одна запись на строку; поля в кавычках с экранированием "" поддерживаются,
+// переводы строк внутри полей - нет.
+class CsvUserRecordParser implements UserRecordParser {
+
+    private int nameIndex = -1;
+    private int emailIndex = -1;
+    private int ageIndex = -1;
+
+    @Override
+    public boolean hasHeader() {
+        return true;
+    }
+
+    @Override
+    public void readHeader(String line) {
+        List<String> columns = split(line.startsWith("\uFEFF") ? line.substring(1) : line);
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "name" -> nameIndex = i;
+                case "email" -> emailIndex = i;
+                case "age" -> ageIndex = i;
+                default -> {
+                }
+            }
+        }
+        if (nameIndex < 0 || emailIndex < 0 || ageIndex < 0) {
+            throw new IllegalArgumentException("Заголовок CSV должен содержать колонки name, email, age: " + line);
+        }
+    }
+
+    @Override
+    public User parse(String line) {
+        List<String> fields = split(line);
+        int required = Math.max(nameIndex, Math.max(emailIndex, ageIndex));
+        if (fields.size() <= required) {
+            throw new IllegalArgumentException("Ожидалось не меньше " + (required + 1) + " полей, получено " + fields.size());
+        }
+        return new User(fields.get(nameIndex).trim(), fields.get(emailIndex),
+                UserRecordParser.parseAge(fields.get(ageIndex)));
+    }
+
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    current.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else if (c == '"') {
+                quoted = true;
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытая кавычка");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,188 @@
+package service.impl;
+
+import dao.BulkInsertResult;
+import exceptions.dao.UserCreationException;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import service.EmailFilterOptions;
+import service.UserService;
+import util.cache.BloomFilter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+// Предпроверка уникальности email перед вставкой. Фильтр Блума по всем адресам таблицы
+// отвечает "точно нет" или "возможно есть". На "точно нет" пользователь вставляется сразу,
+// на "возможно есть" адрес ищется по уникальному индексу, и найденный дубликат отклоняется
+// без INSERT, нарушения ограничения и отката транзакции. Отклонить дубликат без базы фильтр
+// не может: "возможно" бывает и ложным, а адрес мог быть удалён. Уникальность по-прежнему
+// гарантирует ограничение в базе, гонки двух вставок одного адреса решает оно.
+//
+// Фильтр заполняется warmUp() и пополняется при вставках и сменах email. Удалённые и
+// заменённые адреса остаются в нём и только повышают долю ложных "возможно"; когда оценка
+// в getStats() заметно выше заданной, фильтр перестраивают повторным warmUp().
+public class EmailPrecheckUserService extends ForwardingUserService {
+
+    private static final Logger logger = LogManager.getLogger(EmailPrecheckUserService.class);
+
+    public record EmailFilterStats(boolean ready, long insertions, long memoryBytes, int hashFunctions,
+                                   double targetFalsePositiveRate, double estimatedFalsePositiveRate,
+                                   long definitelyNew, long maybe, long duplicatesRejected, long falsePositives) {
+    }
+
+    private final EmailFilterOptions options;
+    private final Object swapLock = new Object();
+    private final LongAdder definitelyNew = new LongAdder();
+    private final LongAdder maybe = new LongAdder();
+    private final LongAdder duplicatesRejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    // До окончания первого warmUp() filter == null и каждый адрес проверяется в базе.
+    // Пока строится новый фильтр, записи попадают в оба (под swapLock).
+    private volatile BloomFilter filter;
+    private BloomFilter building;
+
+    public EmailPrecheckUserService(UserService delegate, EmailFilterOptions options) {
+        super(delegate);
+        this.options = options;
+    }
+
+    public void warmUp() {
+        BloomFilter fresh = new BloomFilter(options.expectedEmails(), options.falsePositiveRate(),
+                options.maxMemoryBytes());
+        synchronized (swapLock) {
+            building = fresh;
+        }
+        long start = System.nanoTime();
+        try (Stream<UserSummary> summaries = delegate.streamUserSummaries()) {
+            summaries.map(UserSummary::email).forEach(email -> {
+                if (email != null) {
+                    fresh.put(email);
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (swapLock) {
+                building = null;
+            }
+            throw e;
+        }
+        synchronized (swapLock) {
+            filter = fresh;
+            building = null;
+        }
+        logger.info("Фильтр email заполнен за {} мс: {} адресов, {} КБ, {} хеш-функций, оценка ложных срабатываний {}",
+                (System.nanoTime() - start) / 1_000_000, fresh.insertions(), fresh.memoryBytes() / 1024,
+                fresh.hashFunctions(), String.format("%.4f", fresh.estimatedFalsePositiveRate()));
+        if (fresh.insertions() > options.expectedEmails()) {
+            logger.warn("В таблице {} адресов при ожидаемых {}: доля ложных срабатываний выше заданной",
+                    fresh.insertions(), options.expectedEmails());
+        }
+    }
+
+    public EmailFilterStats getStats() {
+        BloomFilter current = filter;
+        return new EmailFilterStats(current != null,
+                current == null ? 0 : current.insertions(),
+                current == null ? 0 : current.memoryBytes(),
+                current == null ? 0 : current.hashFunctions(),
+                options.falsePositiveRate(),
+                current == null ? 1 : current.estimatedFalsePositiveRate(),
+                definitelyNew.sum(), maybe.sum(), duplicatesRejected.sum(), falsePositives.sum());
+    }
+
+    @Override
+    public void addUser(User user) {
+        if (isDuplicate(user.getEmail())) {
+            throw new UserCreationException("Пользователь с email " + user.getEmail() + " уже существует", null);
+        }
+        delegate.addUser(user);
+        remember(user.getEmail());
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        List<User> fresh = new ArrayList<>(users.size());
+        List<BulkInsertResult.Rejected> duplicates = new ArrayList<>();
+        for (User user : users) {
+            if (isDuplicate(user.getEmail())) {
+                duplicates.add(new BulkInsertResult.Rejected(user, "Email " + user.getEmail() + " уже существует"));
+            } else {
+                fresh.add(user);
+            }
+        }
+        BulkInsertResult result = fresh.isEmpty() ? BulkInsertResult.empty() : delegate.addUsers(fresh);
+        Set<User> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+        result.rejected().forEach(rejection -> rejected.add(rejection.user()));
+        for (User user : fresh) {
+            if (!rejected.contains(user)) {
+                remember(user.getEmail());
+            }
+        }
+        return new BulkInsertResult(0, duplicates).plus(result);
+    }
+
+    @Override
+    public void updateUser(User user) {
+        delegate.updateUser(user);
+        remember(user.getEmail());
+    }
+
+    @Override
+    public User updateUser(Long id, Function<User, User> update) {
+        User updated = delegate.updateUser(id, update);
+        remember(updated.getEmail());
+        return updated;
+    }
+
+    @Override
+    public void updateUserFields(Long id, UserUpdate changes) {
+        delegate.updateUserFields(id, changes);
+        remember(User.normalizeEmail(changes.email()));
+    }
+
+    private boolean isDuplicate(String email) {
+        if (email == null || email.isBlank()) {
+            return false;
+        }
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(email)) {
+            definitelyNew.increment();
+            return false;
+        }
+        maybe.increment();
+        if (delegate.getUserByEmail(email).isPresent()) {
+            duplicatesRejected.increment();
+            logger.debug("Дубликат email {} отклонён до вставки", email);
+            return true;
+        }
+        if (current != null) {
+            falsePositives.increment();
+        }
+        return false;
+    }
+
+    private void remember(String email) {
+        if (email == null) {
+            return;
+        }
+        synchronized (swapLock) {
+            BloomFilter current = filter;
+            if (current != null) {
+                current.put(email);
+            }
+            if (building != null) {
+                building.put(email);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package service.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import service.UserService;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public abstract class ForwardingUserService implements UserService {
+
+    protected final UserService delegate;
+
+    protected ForwardingUserService(UserService delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void addUser(User user) {
+        delegate.addUser(user);
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        return delegate.addUsers(users);
+    }
+
+    @Override
+    public User getUserById(Long id) {
+        return delegate.getUserById(id);
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return delegate.getUserByEmail(email);
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public Stream<User> streamAllUsers() {
+        return delegate.streamAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        return delegate.getUsersAfter(lastId, limit);
+    }
+
+    @Override
+    public UserSummary getUserSummaryById(Long id) {
+        return delegate.getUserSummaryById(id);
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return delegate.getUserSummariesAfter(lastId, limit);
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        return delegate.streamUserSummaries();
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        return delegate.findUsers(filter, page);
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return delegate.countUsers(filter);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        return delegate.ageHistogram(bucketWidth);
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        return delegate.signupsPerDay(from, to);
+    }
+
+    @Override
+    public void updateUser(User user) {
+        delegate.updateUser(user);
+    }
+
+    @Override
+    public User updateUser(Long id, Function<User, User> update) {
+        return delegate.updateUser(id, update);
+    }
+
+    @Override
+    public void updateUserFields(Long id, UserUpdate changes) {
+        delegate.updateUserFields(id, changes);
+    }
+
+    @Override
+    public void deleteUserById(Long id) {
+        delegate.deleteUserById(id);
+    }
+
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        return delegate.exportUsers(format, out);
+    }
+
+    @Override
+    public int changeFeedCount() {
+        return delegate.changeFeedCount();
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        return delegate.getChangesSince(feed, watermark, limit);
+    }
+}
@@ -0,0 +1,187 @@
+package service.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import service.UserService;
+import util.metrics.MetricsRegistry;
+import util.metrics.OperationMetrics;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public class MetricsUserService extends ForwardingUserService {
+
+    private final OperationMetrics addUser;
+    private final OperationMetrics addUsers;
+    private final OperationMetrics getUserById;
+    private final OperationMetrics getUserByEmail;
+    private final OperationMetrics getAllUsers;
+    private final OperationMetrics streamAllUsers;
+    private final OperationMetrics getUsersAfter;
+    private final OperationMetrics getUserSummaryById;
+    private final OperationMetrics getUserSummariesAfter;
+    private final OperationMetrics streamUserSummaries;
+    private final OperationMetrics findUsers;
+    private final OperationMetrics countUsers;
+    private final OperationMetrics ageHistogram;
+    private final OperationMetrics signupsPerDay;
+    private final OperationMetrics updateUser;
+    private final OperationMetrics updateUserWithRetry;
+    private final OperationMetrics updateUserFields;
+    private final OperationMetrics deleteUserById;
+    private final OperationMetrics exportUsers;
+    private final OperationMetrics getChangesSince;
+
+    public MetricsUserService(UserService delegate, MetricsRegistry registry) {
+        super(delegate);
+        this.addUser = registry.operation("service.addUser");
+        this.addUsers = registry.operation("service.addUsers");
+        this.getUserById = registry.operation("service.getUserById");
+        this.getUserByEmail = registry.operation("service.getUserByEmail");
+        this.getAllUsers = registry.operation("service.getAllUsers");
+        this.streamAllUsers = registry.operation("service.streamAllUsers");
+        this.getUsersAfter = registry.operation("service.getUsersAfter");
+        this.getUserSummaryById = registry.operation("service.getUserSummaryById");
+        this.getUserSummariesAfter = registry.operation("service.getUserSummariesAfter");
+        this.streamUserSummaries = registry.operation("service.streamUserSummaries");
+        this.findUsers = registry.operation("service.findUsers");
+        this.countUsers = registry.operation("service.countUsers");
+        this.ageHistogram = registry.operation("service.ageHistogram");
+        this.signupsPerDay = registry.operation("service.signupsPerDay");
+        this.updateUser = registry.operation("service.updateUser");
+        this.updateUserWithRetry = registry.operation("service.updateUserWithRetry");
+        this.updateUserFields = registry.operation("service.updateUserFields");
+        this.deleteUserById = registry.operation("service.deleteUserById");
+        this.exportUsers = registry.operation("service.exportUsers");
+        this.getChangesSince = registry.operation("service.getChangesSince");
+    }
+
+    @Override
+    public void addUser(User user) {
+        addUser.time(() -> delegate.addUser(user));
+    }
+
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        return addUsers.time(() -> delegate.addUsers(users));
+    }
+
+    @Override
+    public User getUserById(Long id) {
+        return getUserById.time(() -> delegate.getUserById(id));
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return getUserByEmail.time(() -> delegate.getUserByEmail(email));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return getAllUsers.time(delegate::getAllUsers);
+    }
+
+    @Override
+    public Stream<User> streamAllUsers() {
+        long start = System.nanoTime();
+        Stream<User> users;
+        try {
+            users = delegate.streamAllUsers();
+        } catch (RuntimeException e) {
+            streamAllUsers.record(System.nanoTime() - start, true);
+            throw e;
+        }
+        return users.onClose(() -> streamAllUsers.record(System.nanoTime() - start, false));
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        return getUsersAfter.time(() -> delegate.getUsersAfter(lastId, limit));
+    }
+
+    @Override
+    public UserSummary getUserSummaryById(Long id) {
+        return getUserSummaryById.time(() -> delegate.getUserSummaryById(id));
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        return getUserSummariesAfter.time(() -> delegate.getUserSummariesAfter(lastId, limit));
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        long start = System.nanoTime();
+        Stream<UserSummary> summaries;
+        try {
+            summaries = delegate.streamUserSummaries();
+        } catch (RuntimeException e) {
+            streamUserSummaries.record(System.nanoTime() - start, true);
+            throw e;
+        }
+        return summaries.onClose(() -> streamUserSummaries.record(System.nanoTime() - start, false));
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        return findUsers.time(() -> delegate.findUsers(filter, page));
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        return countUsers.time(() -> delegate.countUsers(filter));
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        return ageHistogram.time(() -> delegate.ageHistogram(bucketWidth));
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        return signupsPerDay.time(() -> delegate.signupsPerDay(from, to));
+    }
+
+    @Override
+    public void updateUser(User user) {
+        updateUser.time(() -> delegate.updateUser(user));
+    }
+
+    @Override
+    public User updateUser(Long id, Function<User, User> update) {
+        return updateUserWithRetry.time(() -> delegate.updateUser(id, update));
+    }
+
+    @Override
+    public void updateUserFields(Long id, UserUpdate changes) {
+        updateUserFields.time(() -> delegate.updateUserFields(id, changes));
+    }
+
+    @Override
+    public void deleteUserById(Long id) {
+        deleteUserById.time(() -> delegate.deleteUserById(id));
+    }
+
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        return exportUsers.time(() -> delegate.exportUsers(format, out));
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        return getChangesSince.time(() -> delegate.getChangesSince(feed, watermark, limit));
+    }
+}
@@ -0,0 +1,62 @@
+package service.impl;
+
+import dao.UserExportFormat;
+import exceptions.dao.UserReadException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import service.ExportOptions;
+import service.ExportReport;
+import service.UserExporter;
+import service.UserService;
+import util.io.RotatingFileOutputStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+public class UserExporterImpl implements UserExporter {
+
+    private static final Logger logger = LogManager.getLogger(UserExporterImpl.class);
+
+    private final UserService userService;
+
+    public UserExporterImpl(UserService userService) {
+        this.userService = userService;
+    }
+
+    // target задаёт каталог, имя и формат: users.csv, users.ndjson.gz и т.п.
+    @Override
+    public ExportReport exportTo(Path target, ExportOptions options) {
+        UserExportFormat format = UserExportFormat.forFile(target);
+        String name = target.getFileName().toString();
+        boolean gzip = options.gzip() || name.endsWith(".gz");
+        String base = name.endsWith(".gz") ? name.substring(0, name.length() - 3) : name;
+        base = base.substring(0, base.lastIndexOf('.'));
+        Path directory = target.toAbsolutePath().getParent();
+
+        long started = System.nanoTime();
+        RotatingFileOutputStream out = null;
+        try {
+            Files.createDirectories(directory);
+            out = new RotatingFileOutputStream(directory, base, format.extension() + (gzip ? ".gz" : ""),
+                    options.maxFileBytes(), gzip, format.header(), options.bufferSize());
+            long rows = userService.exportUsers(format, out);
+            out.close();
+            ExportReport report = new ExportReport(rows, out.totalBytes(), out.files(),
+                    Duration.ofNanos(System.nanoTime() - started));
+            logger.info("Выгрузка в {} завершена: {}", target, report);
+            return report;
+        } catch (IOException e) {
+            throw new UserReadException("Не удалось записать выгрузку в " + target, e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    logger.warn("Не удалось закрыть файл выгрузки", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package service.impl;
+
+import dao.BulkInsertResult;
+import exceptions.app.UserImportException;
+import model.User;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import service.ImportOptions;
+import service.ImportReport;
+import service.UserImporter;
+import service.UserService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Читатель разбирает файл построчно и складывает пакеты в ограниченную очередь,
+// воркеры вставляют их через UserService.addUsers. Заполненная очередь блокирует
+// читателя, поэтому в памяти держится не больше (queueCapacity + workers) пакетов.
+//
+// Рядом с файлом ведутся <file>.checkpoint - номер последней строки, до которой все
+// пакеты зафиксированы, и <file>.rejected - отклонённые строки с причинами.
+// Пакеты после контрольной точки, успевшие зафиксироваться до сбоя, при возобновлении
+// будут отклонены как дубликаты email.
+public class UserImporterImpl implements UserImporter {
+
+    private static final Logger logger = LogManager.getLogger(UserImporterImpl.class);
+    private static final Chunk END = new Chunk(-1);
+
+    private final UserService userService;
+
+    public UserImporterImpl(UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public ImportReport importFile(Path file, ImportOptions options) {
+        UserRecordParser parser = UserRecordParser.forFile(file);
+        Path checkpointFile = sibling(file, ".checkpoint");
+        Path rejectsFile = sibling(file, ".rejected");
+        long resumeAfter = options.resume() ? readCheckpoint(checkpointFile) : 0;
+        if (resumeAfter > 0) {
+            logger.info("Импорт {} продолжается после строки {}", file, resumeAfter);
+        }
+
+        Progress progress = new Progress();
+        Checkpoint checkpoint = new Checkpoint(checkpointFile, resumeAfter);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(options.queueCapacity());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(options.workers(), r -> {
+            Thread thread = new Thread(r, "user-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-import-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long started = System.nanoTime();
+        long progressMillis = options.progressInterval().toMillis();
+        if (progressMillis > 0) {
+            reporter.scheduleAtFixedRate(() -> progress.log(started), progressMillis, progressMillis, TimeUnit.MILLISECONDS);
+        }
+
+        try (RejectsWriter rejects = new RejectsWriter(rejectsFile, resumeAfter > 0)) {
+            for (int i = 0; i < options.workers(); i++) {
+                workers.execute(() -> insertChunks(queue, rejects, progress, checkpoint, failure));
+            }
+            try {
+                readChunks(file, parser, options.batchSize(), resumeAfter, queue, rejects, progress, failure);
+            } finally {
+                for (int i = 0; i < options.workers(); i++) {
+                    putUninterruptibly(queue, END);
+                }
+                workers.shutdown();
+                awaitUninterruptibly(workers);
+            }
+        } catch (IOException e) {
+            throw new UserImportException("Не удалось записать файл отклонённых строк " + rejectsFile, e);
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        RuntimeException error = failure.get();
+        if (error != null) {
+            logger.error("Импорт {} прерван, последняя зафиксированная строка {}", file, checkpoint.line(), error);
+            throw new UserImportException("Импорт прерван, продолжить можно с резервной точки (строка "
+                    + checkpoint.line() + ")", error);
+        }
+        checkpoint.delete();
+        ImportReport report = new ImportReport(progress.read.sum(), progress.inserted.sum(), progress.rejected.sum(),
+                progress.skipped.sum(), Duration.ofNanos(System.nanoTime() - started),
+                progress.rejected.sum() > 0 ? rejectsFile : null);
+        logger.info("Импорт {} завершён: {}", file, report);
+        return report;
+    }
+
+    private void readChunks(Path file, UserRecordParser parser, int batchSize, long resumeAfter,
+                            BlockingQueue<Chunk> queue, RejectsWriter rejects, Progress progress,
+                            AtomicReference<RuntimeException> failure) {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long sequence = 0;
+            long lineNumber = 0;
+            Chunk chunk = new Chunk(sequence++);
+            String line;
+            while ((line = in.readLine()) != null && failure.get() == null) {
+                lineNumber++;
+                if (lineNumber == 1 && parser.hasHeader()) {
+                    parser.readHeader(line);
+                    continue;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (lineNumber <= resumeAfter) {
+                    progress.skipped.increment();
+                    continue;
+                }
+                progress.read.increment();
+                chunk.lastLine = lineNumber;
+                // Правила UserValidator проверяет UserService.addUsers, отказы возвращаются с номерами строк.
+                try {
+                    chunk.add(parser.parse(line), lineNumber);
+                } catch (IllegalArgumentException e) {
+                    progress.rejected.increment();
+                    rejects.write(lineNumber, e.getMessage(), line);
+                }
+                if (chunk.users.size() == batchSize) {
+                    queue.put(chunk);
+                    chunk = new Chunk(sequence++);
+                }
+            }
+            if (chunk.lastLine > 0) {
+                queue.put(chunk);
+            }
+        } catch (IOException e) {
+            failure.compareAndSet(null, new UncheckedIOException("Не удалось прочитать файл " + file, e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new IllegalStateException("Импорт прерван", e));
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private void insertChunks(BlockingQueue<Chunk> queue, RejectsWriter rejects, Progress progress,
+                              Checkpoint checkpoint, AtomicReference<RuntimeException> failure) {
+        while (true) {
+            Chunk chunk;
+            try {
+                chunk = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (chunk == END) {
+                return;
+            }
+            if (failure.get() != null) {
+                continue;
+            }
+            try {
+                if (!chunk.users.isEmpty()) {
+                    BulkInsertResult result = userService.addUsers(chunk.users);
+                    progress.inserted.add(result.inserted());
+                    progress.rejected.add(result.rejected().size());
+                    chunk.writeRejected(result.rejected(), rejects);
+                }
+                checkpoint.complete(chunk.sequence, chunk.lastLine);
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static long readCheckpoint(Path checkpointFile) {
+        if (!Files.exists(checkpointFile)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(checkpointFile, StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            throw new UserImportException("Не удалось прочитать резервную точку " + checkpointFile, e);
+        }
+    }
+
+    private static Path sibling(Path file, String suffix) {
+        return file.resolveSibling(file.getFileName() + suffix);
+    }
+
+    private static void putUninterruptibly(BlockingQueue<Chunk> queue, Chunk chunk) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(chunk);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUninterruptibly(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Chunk {
+        private final long sequence;
+        private final List<User> users = new ArrayList<>();
+        private final List<Long> lines = new ArrayList<>();
+        private long lastLine;
+
+        private Chunk(long sequence) {
+            this.sequence = sequence;
+        }
+
+        private void add(User user, long line) {
+            users.add(user);
+            lines.add(line);
+        }
+
+        private void writeRejected(List<BulkInsertResult.Rejected> rejected, RejectsWriter rejects) {
+            if (rejected.isEmpty()) {
+                return;
+            }
+            Map<User, Long> lineByUser = new IdentityHashMap<>(users.size());
+            for (int i = 0; i < users.size(); i++) {
+                lineByUser.put(users.get(i), lines.get(i));
+            }
+            for (BulkInsertResult.Rejected r : rejected) {
+                User user = r.user();
+                rejects.write(lineByUser.getOrDefault(user, 0L), r.reason(),
+                        user.getName() + "," + user.getEmail() + "," + user.getAge());
+            }
+        }
+    }
+
+    // Пакеты завершаются не по порядку; контрольная точка сдвигается только
+    // по непрерывному префиксу зафиксированных пакетов.
+    private static final class Checkpoint {
+        private final Path file;
+        private final Map<Long, Long> completed = new HashMap<>();
+        private long nextSequence;
+        private long line;
+
+        private Checkpoint(Path file, long line) {
+            this.file = file;
+            this.line = line;
+        }
+
+        private synchronized void complete(long sequence, long lastLine) {
+            completed.put(sequence, lastLine);
+            Long advanced = null;
+            Long next;
+            while ((next = completed.remove(nextSequence)) != null) {
+                advanced = next;
+                nextSequence++;
+            }
+            if (advanced != null) {
+                line = advanced;
+                write();
+            }
+        }
+
+        private synchronized long line() {
+            return line;
+        }
+
+        private void write() {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Files.writeString(tmp, Long.toString(line), StandardCharsets.UTF_8);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось сохранить резервную точку " + file, e);
+            }
+        }
+
+        private void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Не удалось удалить резервную точку {}", file, e);
+            }
+        }
+    }
+
+    private static final class RejectsWriter implements AutoCloseable {
+        private final Path file;
+        private BufferedWriter out;
+        private final boolean append;
+
+        private RejectsWriter(Path file, boolean append) throws IOException {
+            this.file = file;
+            this.append = append;
+            if (!append) {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        // Файл создаётся при первой отклонённой строке.
+        private synchronized void write(long line, String reason, String record) {
+            try {
+                if (out == null) {
+                    out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.WRITE);
+                }
+                out.write(line + "\t" + reason.replace('\t', ' ').replace('\n', ' ') + "\t" + record);
+                out.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать отклонённую строку в " + file, e);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    private static final class Progress {
+        private final LongAdder read = new LongAdder();
+        private final LongAdder inserted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+
+        private void log(long started) {
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long rows = read.sum();
+            logger.info("Импорт: прочитано {}, добавлено {}, отклонено {}, {} строк/с",
+                    rows, inserted.sum(), rejected.sum(), Math.round(seconds == 0 ? 0 : rows / seconds));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package service.impl;
+
+import model.User;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+interface UserRecordParser {
+
+    boolean hasHeader();
+
+    void readHeader(String line);
+
+    User parse(String line);
+
+    static UserRecordParser forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvUserRecordParser();
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return new NdjsonUserRecordParser();
+        }
+        throw new IllegalArgumentException("Неизвестный формат файла: " + name + " (ожидается .csv, .ndjson или .jsonl)");
+    }
+
+    static Integer parseAge(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Возраст не указан");
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Возраст должен быть числом: " + value.trim());
+        }
+    }
+
+    static String require(String value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException("Не указано поле " + field);
+        }
+        return value;
+    }
+}
@@ -1,46 +1,279 @@
 package service.impl;
 
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChanges;
 import dao.UserDao;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserConcurrentModificationException;
 import exceptions.dao.UserNotFoundException;
 import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import service.Deadline;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class UserServiceImpl implements service.UserService {
+    private static final Logger logger = LogManager.getLogger(UserServiceImpl.class);
+    private static final int DEFAULT_UPDATE_ATTEMPTS = 5;
+    private static final Duration DEFAULT_UPDATE_BACKOFF = Duration.ofMillis(10);
+    private static final long MAX_BACKOFF_NANOS = Duration.ofMillis(500).toNanos();
+
     private final UserDao userDao;
+    private final int maxUpdateAttempts;
+    private final long backoffNanos;
 
     public UserServiceImpl(UserDao userDao) {
+        this(userDao, DEFAULT_UPDATE_ATTEMPTS, DEFAULT_UPDATE_BACKOFF);
+    }
+
+    public UserServiceImpl(UserDao userDao, int maxUpdateAttempts, Duration updateBackoff) {
+        if (maxUpdateAttempts <= 0) {
+            throw new IllegalArgumentException("Число попыток обновления должно быть больше 0");
+        }
         this.userDao = userDao;
+        this.maxUpdateAttempts = maxUpdateAttempts;
+        this.backoffNanos = updateBackoff.toNanos();
     }
 
     @Override
     public void addUser(User user) {
-        if (user.getName() == null || user.getName().isBlank()) {
-            throw new IllegalArgumentException("Имя не может быть пустым");
-        }
-        if (user.getAge() <= 0) {
-            throw new IllegalArgumentException("Возраст должен быть больше 0");
-        }
+        validate(user);
+        Deadline.check("addUser");
         userDao.addUser(user);
     }
 
+    @Override
+    public BulkInsertResult addUsers(Collection<User> users) {
+        List<User> valid = new ArrayList<>(users.size());
+        List<BulkInsertResult.Rejected> invalid = new ArrayList<>();
+        for (User user : users) {
+            try {
+                validate(user);
+                valid.add(user);
+            } catch (IllegalArgumentException e) {
+                invalid.add(new BulkInsertResult.Rejected(user, e.getMessage()));
+            }
+        }
+        Deadline.check("addUsers");
+        BulkInsertResult result = valid.isEmpty() ? BulkInsertResult.empty() : userDao.addUsers(valid);
+        return new BulkInsertResult(0, invalid).plus(result);
+    }
+
+    private void validate(User user) {
+        UserValidator.validate(user);
+    }
+
     @Override
     public User getUserById(Long id) {
+        Deadline.check("getUserById");
         return userDao.getUserById(id)
                 .orElseThrow(() -> new UserNotFoundException("Пользователь с id " + id + " не найден"));
     }
 
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        if (email == null || email.isBlank()) {
+            throw new IllegalArgumentException("Email не может быть пустым");
+        }
+        Deadline.check("getUserByEmail");
+        return userDao.getUserByEmail(email);
+    }
+
     @Override
     public List<User> getAllUsers() {
+        Deadline.check("getAllUsers");
         return userDao.getAllUsers();
     }
 
+    @Override
+    public Stream<User> streamAllUsers() {
+        Deadline.check("streamAllUsers");
+        return userDao.streamAllUsers();
+    }
+
+    @Override
+    public List<User> getUsersAfter(Long lastId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть больше 0");
+        }
+        Deadline.check("getUsersAfter");
+        return userDao.getUsersAfter(lastId, limit);
+    }
+
+    @Override
+    public UserSummary getUserSummaryById(Long id) {
+        Deadline.check("getUserSummaryById");
+        return userDao.getUserSummaryById(id)
+                .orElseThrow(() -> new UserNotFoundException("Пользователь с id " + id + " не найден"));
+    }
+
+    @Override
+    public List<UserSummary> getUserSummariesAfter(Long lastId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть больше 0");
+        }
+        Deadline.check("getUserSummariesAfter");
+        return userDao.getUserSummariesAfter(lastId, limit);
+    }
+
+    @Override
+    public Stream<UserSummary> streamUserSummaries() {
+        Deadline.check("streamUserSummaries");
+        return userDao.streamUserSummaries();
+    }
+
+    @Override
+    public List<User> findUsers(UserFilter filter, Page page) {
+        validate(filter);
+        Deadline.check("findUsers");
+        return userDao.findUsers(filter, page);
+    }
+
+    @Override
+    public long countUsers(UserFilter filter) {
+        validate(filter);
+        Deadline.check("countUsers");
+        return userDao.countUsers(filter);
+    }
+
+    @Override
+    public List<AgeBucket> ageHistogram(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина интервала должна быть больше 0");
+        }
+        Deadline.check("ageHistogram");
+        return userDao.ageHistogram(bucketWidth);
+    }
+
+    @Override
+    public List<DailySignups> signupsPerDay(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("Некорректный диапазон дат");
+        }
+        Deadline.check("signupsPerDay");
+        return userDao.signupsPerDay(from, to);
+    }
+
+    private void validate(UserFilter filter) {
+        if (filter.minAge() != null && filter.maxAge() != null && filter.minAge() > filter.maxAge()) {
+            throw new IllegalArgumentException("Минимальный возраст больше максимального");
+        }
+        if (filter.createdFrom() != null && filter.createdTo() != null
+                && !filter.createdFrom().isBefore(filter.createdTo())) {
+            throw new IllegalArgumentException("Некорректный диапазон дат регистрации");
+        }
+    }
+
     @Override
     public void updateUser(User user) {
+        Deadline.check("updateUser");
         userDao.updateUser(user);
     }
 
+    // Чтение, изменение и запись с проверкой версии без блокировок строки. При конфликте
+    // всё повторяется на свежем состоянии, поэтому update может вызываться несколько раз
+    // и не должен иметь побочных эффектов.
+    @Override
+    public User updateUser(Long id, Function<User, User> update) {
+        for (int attempt = 1; ; attempt++) {
+            User current = getUserById(id);
+            Long version = current.getVersion();
+            User updated = update.apply(current);
+            updated.setId(id);
+            updated.setVersion(version);
+            validate(updated);
+            Deadline.check("updateUser");
+            try {
+                userDao.updateUser(updated);
+                return updated;
+            } catch (UserConcurrentModificationException e) {
+                if (attempt >= maxUpdateAttempts) {
+                    logger.warn("Пользователь с id {} не обновлён за {} попыток из-за конфликтов версий", id, attempt);
+                    throw e;
+                }
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    // Экспоненциальная пауза со случайным разбросом, чтобы конкурирующие запросы
+    // не повторяли попытки одновременно.
+    private void backOff(int attempt, UserConcurrentModificationException conflict) {
+        long ceiling = Math.min(MAX_BACKOFF_NANOS, backoffNanos << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    @Override
+    public void updateUserFields(Long id, UserUpdate changes) {
+        if (changes.name() != null && changes.name().isBlank()) {
+            throw new IllegalArgumentException("Имя не может быть пустым");
+        }
+        if (changes.age() != null && changes.age() <= 0) {
+            throw new IllegalArgumentException("Возраст должен быть больше 0");
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        Deadline.check("updateUserFields");
+        if (userDao.updateUserFields(id, changes) == 0) {
+            throw new UserNotFoundException("Пользователь с id " + id + " не найден");
+        }
+    }
+
     @Override
     public void deleteUserById(Long id) {
+        Deadline.check("deleteUserById");
         userDao.deleteUserById(id);
     }
+
+    @Override
+    public long exportUsers(UserExportFormat format, OutputStream out) {
+        Deadline.check("exportUsers");
+        return userDao.exportUsers(format, out);
+    }
+
+    @Override
+    public int changeFeedCount() {
+        return userDao.changeFeedCount();
+    }
+
+    @Override
+    public UserChanges getChangesSince(int feed, long watermark, int limit) {
+        if (feed < 0 || feed >= userDao.changeFeedCount()) {
+            throw new IllegalArgumentException("Ленты изменений " + feed + " нет");
+        }
+        if (watermark < 0) {
+            throw new IllegalArgumentException("Водяной знак не может быть отрицательным");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Размер страницы должен быть больше 0");
+        }
+        Deadline.check("getChangesSince");
+        return userDao.getChangesSince(feed, watermark, limit);
+    }
 }
@@ -0,0 +1,18 @@
+package service.impl;
+
+import model.User;
+
+public final class UserValidator {
+
+    private UserValidator() {
+    }
+
+    public static void validate(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            throw new IllegalArgumentException("Имя не может быть пустым");
+        }
+        if (user.getAge() == null || user.getAge() <= 0) {
+            throw new IllegalArgumentException("Возраст должен быть больше 0");
+        }
+    }
+}
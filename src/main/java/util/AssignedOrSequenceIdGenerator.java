@@ -0,0 +1,40 @@
+package util;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+// users_seq, который не трогает id, назначенный до вставки: ShardedUserDao выдаёт
+// глобальные id заранее, чтобы выбрать шард по id, а перенос между шардами сохраняет id.
+// Назначенные id принимаются только фабриками шардов (users.id.accept_assigned, его ставит
+// HibernateUtil.buildShardSessionFactory); в остальных базах id всегда из последовательности
+// с pooled-оптимизатором.
+public class AssignedOrSequenceIdGenerator extends SequenceStyleGenerator {
+
+    public static final String ACCEPT_ASSIGNED_IDS = "users.id.accept_assigned";
+
+    private boolean acceptAssigned;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) {
+        super.configure(type, parameters, serviceRegistry);
+        acceptAssigned = serviceRegistry.requireService(ConfigurationService.class)
+                .getSetting(ACCEPT_ASSIGNED_IDS, StandardConverters.BOOLEAN, false);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        if (acceptAssigned) {
+            Object assigned = session.getEntityPersister(null, object).getIdentifier(object, session);
+            if (assigned != null) {
+                return assigned;
+            }
+        }
+        return super.generate(session, object);
+    }
+}
@@ -0,0 +1,73 @@
+package util;
+
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+// Лента изменений users. Триггер перед вставкой и обновлением выдаёт строке новый номер
+// из users_change_seq и проставляет updated_at, триггер после удаления пишет надгробие
+// в users_tombstones. Триггеры срабатывают при любом способе записи: Session, StatelessSession,
+// HQL update и SQL вручную. Строки, существовавшие до ленты, получают номера при миграции,
+// пока триггер снят.
+// Как у NamePrefixIndex, drop пустой, а create идемпотентен.
+public class ChangeTracking implements AuxiliaryDatabaseObject {
+
+    public static final String SEQUENCE = "users_change_seq";
+    public static final String TOMBSTONES = "users_tombstones";
+
+    @Override
+    public String getExportIdentifier() {
+        return "users_change_tracking";
+    }
+
+    @Override
+    public boolean appliesToDialect(Dialect dialect) {
+        return dialect instanceof PostgreSQLDialect;
+    }
+
+    @Override
+    public boolean beforeTablesOnCreation() {
+        return false;
+    }
+
+    @Override
+    public String[] sqlCreateStrings(SqlStringGenerationContext context) {
+        return new String[]{
+                "create sequence if not exists " + SEQUENCE,
+                "create table if not exists " + TOMBSTONES + " (change_seq bigint primary key,"
+                        + " user_id bigint not null, deleted_at timestamp(6) not null)",
+                // Пока транзакция не завершена, её блокировка не ниже её первого номера и держит
+                // границу ленты (UserChangeQueries): более поздние номера не отдаются раньше её.
+                "create or replace function users_hold_change_floor() returns void as $$ begin"
+                        + " if current_setting('users.change_floor', true) is distinct from 'on' then"
+                        + " perform pg_advisory_xact_lock_shared(last_value) from " + SEQUENCE + ";"
+                        + " perform set_config('users.change_floor', 'on', true);"
+                        + " end if; end $$ language plpgsql",
+                "create or replace function users_track_change() returns trigger as $$ begin"
+                        + " perform users_hold_change_floor();"
+                        + " new.change_seq := nextval('" + SEQUENCE + "');"
+                        + " new.updated_at := clock_timestamp();"
+                        + " return new; end $$ language plpgsql",
+                "create or replace function users_track_delete() returns trigger as $$ begin"
+                        + " perform users_hold_change_floor();"
+                        + " insert into " + TOMBSTONES + " (change_seq, user_id, deleted_at)"
+                        + " values (nextval('" + SEQUENCE + "'), old.id, clock_timestamp());"
+                        + " return old; end $$ language plpgsql",
+                // Номера старым строкам - до создания триггера, иначе он выдал бы
+                // второй номер и затёр updated_at.
+                "drop trigger if exists users_track_change on users",
+                "update users set change_seq = nextval('" + SEQUENCE + "') where change_seq = 0",
+                "create trigger users_track_change before insert or update on users"
+                        + " for each row execute function users_track_change()",
+                "drop trigger if exists users_track_delete on users",
+                "create trigger users_track_delete after delete on users"
+                        + " for each row execute function users_track_delete()"
+        };
+    }
+
+    @Override
+    public String[] sqlDropStrings(SqlStringGenerationContext context) {
+        return new String[0];
+    }
+}
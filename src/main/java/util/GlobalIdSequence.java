@@ -0,0 +1,42 @@
+package util;
+
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+// Последовательность глобальных id для шардированного режима. Каждый nextval выдаёт блок
+// из BLOCK_SIZE id. Начало с 2^40 отделяет глобальные id от выданных users_seq до
+// шардирования. Как и у NamePrefixIndex, drop пустой, а create идемпотентен.
+public class GlobalIdSequence implements AuxiliaryDatabaseObject {
+
+    public static final String NAME = "users_global_seq";
+    public static final int BLOCK_SIZE = 1000;
+    public static final long START = 1L << 40;
+
+    @Override
+    public String getExportIdentifier() {
+        return NAME;
+    }
+
+    @Override
+    public boolean appliesToDialect(Dialect dialect) {
+        return dialect instanceof PostgreSQLDialect;
+    }
+
+    @Override
+    public boolean beforeTablesOnCreation() {
+        return true;
+    }
+
+    @Override
+    public String[] sqlCreateStrings(SqlStringGenerationContext context) {
+        return new String[]{"create sequence if not exists " + NAME + " start with " + START
+                + " increment by " + BLOCK_SIZE};
+    }
+
+    @Override
+    public String[] sqlDropStrings(SqlStringGenerationContext context) {
+        return new String[0];
+    }
+}
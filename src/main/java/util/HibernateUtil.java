@@ -1,41 +1,249 @@
 package util;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import util.pool.ConnectionPool;
+import util.pool.PoolMetrics;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+// SessionFactory строятся при первом обращении (holder-классы), а не при загрузке класса:
+// команды и тесты, которым основная база не нужна, не платят за сборку метаданных.
+// На старте схема не сравнивается с базой (users.schema.mode=none по умолчанию, можно
+// validate или update), диалект не определяется по метаданным JDBC
+// (users.startup.jdbc_metadata=false, версию базы можно задать через users.db.version).
+// Схема обновляется отдельной командой: migrate().
 public class HibernateUtil {
-    private static SessionFactory sessionFactory;
+    private static final Logger logger = LogManager.getLogger(HibernateUtil.class);
+    private static final Set<String> SCHEMA_MODES = Set.of("none", "validate", "update");
+    private static volatile SessionFactory testSessionFactory;
+    private static volatile boolean primaryBuilt;
+    private static volatile boolean replicaBuilt;
+    private static volatile boolean shardsBuilt;
+    private static final Deque<Runnable> shutdownActions = new ArrayDeque<>();
+
+    private static final class PrimaryHolder {
+        static final SessionFactory INSTANCE = buildPrimary();
+    }
+
+    private static final class ReplicaHolder {
+        static final SessionFactory INSTANCE = buildReplicaFromProperties();
+    }
+
+    private static final class ShardsHolder {
+        static final List<SessionFactory> INSTANCE = buildShardsFromProperties();
+    }
 
-    public static SessionFactory initForTest(String jdbcUrl, String username, String password) {
-        if (sessionFactory != null) {
-            sessionFactory.close();
+    public static synchronized SessionFactory initForTest(String jdbcUrl, String username, String password) {
+        if (testSessionFactory != null) {
+            testSessionFactory.close();
         }
-        sessionFactory = new Configuration()
-                .setProperty("hibernate.connection.url", jdbcUrl)
-                .setProperty("hibernate.connection.username", username)
-                .setProperty("hibernate.connection.password", password)
-                .configure()
-                .buildSessionFactory();
-        return sessionFactory;
+        testSessionFactory = buildSessionFactory(jdbcUrl, username, password, "update", false);
+        return testSessionFactory;
     }
 
-    static {
+    private static SessionFactory buildPrimary() {
+        String schemaMode = System.getProperty("users.schema.mode", "none");
+        long start = System.nanoTime();
         try {
-            sessionFactory = new Configuration().configure().buildSessionFactory();
-        } catch (Throwable ex) {
+            SessionFactory factory = configure(newConfiguration(), schemaMode, jdbcMetadataOnStartup())
+                    .buildSessionFactory();
+            primaryBuilt = true;
+            logger.info("SessionFactory создана за {} мс, схема: {}", (System.nanoTime() - start) / 1_000_000,
+                    schemaMode);
+            return factory;
+        } catch (RuntimeException ex) {
             System.err.println("Не удалось создать SessionFactory: " + ex);
-            throw new ExceptionInInitializerError(ex);
+            throw ex;
         }
     }
 
+    private static SessionFactory buildReplicaFromProperties() {
+        String replicaUrl = System.getProperty("users.replica.url");
+        if (replicaUrl == null || replicaUrl.isBlank()) {
+            return null;
+        }
+        SessionFactory replica = buildReplica(replicaUrl,
+                System.getProperty("users.replica.username"),
+                System.getProperty("users.replica.password"));
+        replicaBuilt = replica != null;
+        return replica;
+    }
+
+    // Шарды - отдельные базы со своей схемой: users.shards=url1,url2,...; учётные данные
+    // общие (users.shards.username, users.shards.password), иначе из hibernate.cfg.xml.
+    private static List<SessionFactory> buildShardsFromProperties() {
+        List<String> urls = shardUrls();
+        List<SessionFactory> factories = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            factories.add(buildShardSessionFactory(url, System.getProperty("users.shards.username"),
+                    System.getProperty("users.shards.password"),
+                    System.getProperty("users.schema.mode", "none"), jdbcMetadataOnStartup()));
+        }
+        shardsBuilt = !factories.isEmpty();
+        if (shardsBuilt) {
+            logger.info("Подключено шардов: {}", factories.size());
+        }
+        return List.copyOf(factories);
+    }
+
+    private static List<String> shardUrls() {
+        String shards = System.getProperty("users.shards", "");
+        return Arrays.stream(shards.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+    }
+
+    private static Configuration newConfiguration() {
+        return new Configuration()
+                .addAuxiliaryDatabaseObject(new NamePrefixIndex())
+                .addAuxiliaryDatabaseObject(new GlobalIdSequence())
+                .addAuxiliaryDatabaseObject(new ChangeTracking())
+                .configure();
+    }
+
+    private static Configuration configure(Configuration configuration, String schemaMode, boolean jdbcMetadata) {
+        if (!SCHEMA_MODES.contains(schemaMode)) {
+            throw new IllegalArgumentException("Неизвестный режим схемы: " + schemaMode + " (none, validate, update)");
+        }
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, schemaMode);
+        // Без соединения с базой при сборке: диалект задан в hibernate.cfg.xml.
+        configuration.setProperty("hibernate.temp.use_jdbc_metadata_defaults", String.valueOf(jdbcMetadata));
+        String dbVersion = System.getProperty("users.db.version");
+        if (!jdbcMetadata && dbVersion != null) {
+            configuration.setProperty(AvailableSettings.JAKARTA_HBM2DDL_DB_VERSION, dbVersion);
+        }
+        return configuration;
+    }
+
+    private static boolean jdbcMetadataOnStartup() {
+        return Boolean.getBoolean("users.startup.jdbc_metadata");
+    }
+
+    // Отдельная SessionFactory для произвольной базы и режима старта; её закрывает вызывающий.
+    public static SessionFactory buildSessionFactory(String jdbcUrl, String username, String password,
+                                                     String schemaMode, boolean jdbcMetadata) {
+        return buildSessionFactory(jdbcUrl, username, password, schemaMode, jdbcMetadata, false);
+    }
+
+    // Шард сохраняет id, назначенные ShardedUserDao до вставки; остальные базы берут id из users_seq.
+    public static SessionFactory buildShardSessionFactory(String jdbcUrl, String username, String password,
+                                                          String schemaMode, boolean jdbcMetadata) {
+        return buildSessionFactory(jdbcUrl, username, password, schemaMode, jdbcMetadata, true);
+    }
+
+    private static SessionFactory buildSessionFactory(String jdbcUrl, String username, String password,
+                                                      String schemaMode, boolean jdbcMetadata, boolean shard) {
+        Configuration configuration = configure(newConfiguration(), schemaMode, jdbcMetadata)
+                .setProperty("hibernate.connection.url", jdbcUrl)
+                .setProperty(AssignedOrSequenceIdGenerator.ACCEPT_ASSIGNED_IDS, String.valueOf(shard));
+        if (username != null) {
+            configuration.setProperty("hibernate.connection.username", username);
+        }
+        if (password != null) {
+            configuration.setProperty("hibernate.connection.password", password);
+        }
+        return configuration.buildSessionFactory();
+    }
+
+    // Приводит схему основной базы и шардов к маппингу (hbm2ddl update) и закрывает фабрики.
+    public static void migrate() {
+        long start = System.nanoTime();
+        configure(newConfiguration(), "update", true).buildSessionFactory().close();
+        for (String url : shardUrls()) {
+            buildShardSessionFactory(url, System.getProperty("users.shards.username"),
+                    System.getProperty("users.shards.password"), "update", true).close();
+        }
+        logger.info("Схема обновлена за {} мс", (System.nanoTime() - start) / 1_000_000);
+    }
+
     public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+        SessionFactory test = testSessionFactory;
+        return test != null ? test : PrimaryHolder.INSTANCE;
+    }
+
+    public static Optional<SessionFactory> getReplicaSessionFactory() {
+        return Optional.ofNullable(ReplicaHolder.INSTANCE);
+    }
+
+    // Пустой список, если шардирование не настроено.
+    public static List<SessionFactory> getShardSessionFactories() {
+        return ShardsHolder.INSTANCE;
+    }
+
+    // Реплика недоступна на старте - работаем только с основной базой.
+    private static SessionFactory buildReplica(String url, String username, String password) {
+        try {
+            SessionFactory replica = buildReplicaSessionFactory(url, username, password);
+            logger.info("Подключена реплика для чтения: {}", url);
+            return replica;
+        } catch (RuntimeException e) {
+            logger.error("Не удалось подключить реплику {}, чтение пойдёт в основную базу", url, e);
+            return null;
+        }
+    }
+
+    // Схему реплики ведёт основная база, поэтому hbm2ddl отключён.
+    public static SessionFactory buildReplicaSessionFactory(String jdbcUrl, String username, String password) {
+        return buildSessionFactory(jdbcUrl, username, password, "none", jdbcMetadataOnStartup());
+    }
+
+    public static Optional<ConnectionPool> getConnectionPool(SessionFactory factory) {
+        ConnectionProvider provider = factory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(ConnectionPool.class)) {
+            return Optional.empty();
+        }
+        return Optional.of(provider.unwrap(ConnectionPool.class));
+    }
+
+    public static Optional<PoolMetrics> getPoolMetrics() {
+        return getConnectionPool(getSessionFactory()).map(ConnectionPool::metrics);
+    }
+
+    // Действия выполняются в обратном порядке регистрации, пока SessionFactory ещё открыты.
+    public static synchronized void addShutdownAction(Runnable action) {
+        shutdownActions.push(action);
     }
 
+    // Закрывает только уже созданные фабрики, не строя их ради закрытия.
     public static void shutdown() {
-        if (sessionFactory != null) {
-            sessionFactory.close();
+        Runnable action;
+        while ((action = pollShutdownAction()) != null) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                logger.error("Ошибка при остановке", e);
+            }
+        }
+        if (shardsBuilt) {
+            ShardsHolder.INSTANCE.forEach(SessionFactory::close);
+        }
+        if (replicaBuilt) {
+            ReplicaHolder.INSTANCE.close();
+        }
+        if (primaryBuilt) {
+            PrimaryHolder.INSTANCE.close();
+        }
+        if (testSessionFactory != null) {
+            testSessionFactory.close();
         }
     }
-}
 
+    private static synchronized Runnable pollShutdownAction() {
+        return shutdownActions.poll();
+    }
+}
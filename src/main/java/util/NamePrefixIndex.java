@@ -0,0 +1,42 @@
+package util;
+
+import org.hibernate.boot.model.relational.AuxiliaryDatabaseObject;
+import org.hibernate.boot.model.relational.SqlStringGenerationContext;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+// Функциональный индекс для поиска по началу имени без учёта регистра:
+// lower(name) LIKE 'ив%'. text_pattern_ops нужен, чтобы LIKE использовал индекс
+// при любой collation базы. @Index выразить выражение не может, поэтому объект
+// регистрируется в конфигурации. hbm2ddl=update при каждом запуске сначала удаляет
+// вспомогательные объекты, поэтому drop пустой, а create идемпотентен - индекс
+// не перестраивается на каждом старте.
+public class NamePrefixIndex implements AuxiliaryDatabaseObject {
+
+    public static final String NAME = "idx_users_lower_name";
+
+    @Override
+    public String getExportIdentifier() {
+        return NAME;
+    }
+
+    @Override
+    public boolean appliesToDialect(Dialect dialect) {
+        return dialect instanceof PostgreSQLDialect;
+    }
+
+    @Override
+    public boolean beforeTablesOnCreation() {
+        return false;
+    }
+
+    @Override
+    public String[] sqlCreateStrings(SqlStringGenerationContext context) {
+        return new String[]{"create index if not exists " + NAME + " on users (lower(name) text_pattern_ops)"};
+    }
+
+    @Override
+    public String[] sqlDropStrings(SqlStringGenerationContext context) {
+        return new String[0];
+    }
+}
@@ -0,0 +1,179 @@
+package util.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Пишет поток строк в последовательность файлов <prefix>-00001<suffix>, <prefix>-00002<suffix>, ...
+// Новый файл начинается после перевода строки, как только текущий набрал maxFileBytes
+// несжатых байт; каждый файл начинается с header. При maxFileBytes <= 0 пишется
+// единственный файл <prefix><suffix>. Без сжатия данные копируются в direct-буфер
+// и сбрасываются в FileChannel без промежуточных массивов.
+public class RotatingFileOutputStream extends OutputStream {
+
+    private final Path directory;
+    private final String prefix;
+    private final String suffix;
+    private final long maxFileBytes;
+    private final boolean gzip;
+    private final byte[] header;
+    private final ByteBuffer buffer;
+    private final List<Path> files = new ArrayList<>();
+
+    private FileChannel channel;
+    private OutputStream compressed;
+    private long fileBytes;
+    private long totalBytes;
+    private boolean closed;
+
+    public RotatingFileOutputStream(Path directory, String prefix, String suffix, long maxFileBytes,
+                                    boolean gzip, byte[] header, int bufferSize) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.maxFileBytes = maxFileBytes;
+        this.gzip = gzip;
+        this.header = header.clone();
+        this.buffer = gzip ? null : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Поток закрыт");
+        }
+        while (len > 0) {
+            openIfNeeded();
+            int n = len;
+            if (maxFileBytes > 0 && fileBytes >= maxFileBytes) {
+                int newline = indexOfNewline(b, off, len);
+                if (newline < 0) {
+                    writeToFile(b, off, len);
+                    return;
+                }
+                n = newline - off + 1;
+                writeToFile(b, off, n);
+                closeFile();
+            } else {
+                if (maxFileBytes > 0) {
+                    n = (int) Math.min(len, maxFileBytes - fileBytes);
+                }
+                writeToFile(b, off, n);
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (compressed != null) {
+            compressed.flush();
+        } else if (channel != null) {
+            drain();
+        }
+    }
+
+    // Пустая выгрузка всё равно даёт файл с заголовком. Если последний файл закрыт
+    // ротацией, следующий не создаётся: в нём был бы только заголовок.
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (files.isEmpty()) {
+            openIfNeeded();
+        }
+        if (channel != null) {
+            closeFile();
+        }
+    }
+
+    public List<Path> files() {
+        return List.copyOf(files);
+    }
+
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    private void openIfNeeded() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        String name = maxFileBytes > 0
+                ? String.format("%s-%05d%s", prefix, files.size() + 1, suffix)
+                : prefix + suffix;
+        Path file = directory.resolve(name);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        if (gzip) {
+            compressed = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+        }
+        files.add(file);
+        fileBytes = 0;
+        writeToFile(header, 0, header.length);
+    }
+
+    private void writeToFile(byte[] b, int off, int len) throws IOException {
+        fileBytes += len;
+        totalBytes += len;
+        if (compressed != null) {
+            compressed.write(b, off, len);
+            return;
+        }
+        while (len > 0) {
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void closeFile() throws IOException {
+        try {
+            if (compressed != null) {
+                compressed.close();
+            } else {
+                drain();
+            }
+        } finally {
+            channel.close();
+            channel = null;
+            compressed = null;
+        }
+    }
+
+    private static int indexOfNewline(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            if (b[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
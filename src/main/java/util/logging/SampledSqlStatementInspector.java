@@ -0,0 +1,44 @@
+package util.logging;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пишет в лог users.sql.sampled каждый N-й SQL-запрос (-Dusers.sql.sample_rate=N, 0 — выключено)
+// вместе со значениями параметров (SqlBindCapture).
+// Медленные запросы Hibernate логирует сам через org.hibernate.SQL_SLOW (hibernate.log_slow_query).
+public class SampledSqlStatementInspector implements StatementInspector {
+
+    public static final String SAMPLE_RATE_PROPERTY = "users.sql.sample_rate";
+    static final String LOGGER_NAME = "users.sql.sampled";
+
+    private static final Logger logger = LogManager.getLogger(LOGGER_NAME);
+
+    private final int sampleRate;
+    private final AtomicLong statements = new AtomicLong();
+
+    public SampledSqlStatementInspector() {
+        this(sampleRate());
+    }
+
+    public SampledSqlStatementInspector(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public static int sampleRate() {
+        return Integer.getInteger(SAMPLE_RATE_PROPERTY, 0);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (sampleRate > 0
+                && statements.incrementAndGet() % sampleRate == 0
+                && logger.isInfoEnabled()
+                && !SqlBindCapture.mark(sql)) {
+            logger.info(sql);
+        }
+        return sql;
+    }
+}
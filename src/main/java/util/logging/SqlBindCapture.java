@@ -0,0 +1,107 @@
+package util.logging;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Значения параметров для выборки SQL. StatementInspector видит только текст с "?",
+// поэтому выбранный им запрос помечается в потоке, а обёртка соединения из
+// PooledConnectionProvider подменяет для него PreparedStatement: вызовы setXxx
+// запоминаются и пишутся в лог вместе с текстом при выполнении. Невыбранные запросы
+// идут в драйвер напрямую; без обёртки соединений выборка пишет только текст.
+public final class SqlBindCapture {
+
+    private static final Logger logger = LogManager.getLogger(SampledSqlStatementInspector.LOGGER_NAME);
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "addBatch");
+    private static final ThreadLocal<String> sampled = new ThreadLocal<>();
+
+    private static volatile boolean installed;
+
+    private SqlBindCapture() {
+    }
+
+    public static Connection wrap(Connection connection) {
+        installed = true;
+        return (Connection) Proxy.newProxyInstance(SqlBindCapture.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection));
+    }
+
+    public static Connection unwrap(Connection connection) {
+        if (Proxy.isProxyClass(connection.getClass())
+                && Proxy.getInvocationHandler(connection) instanceof ConnectionHandler handler) {
+            return handler.target;
+        }
+        return connection;
+    }
+
+    // false - соединения не обёрнуты, и инспектор пишет текст запроса сам.
+    static boolean mark(String sql) {
+        if (!installed) {
+            return false;
+        }
+        sampled.set(sql);
+        return true;
+    }
+
+    static String format(String sql, Map<Integer, Object> binds) {
+        return binds.isEmpty() ? sql : sql + " -- binds " + binds;
+    }
+
+    private static boolean take(String sql) {
+        String marked = sampled.get();
+        if (marked != null && marked.equals(sql)) {
+            sampled.remove();
+            return true;
+        }
+        return false;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private record ConnectionHandler(Connection target) implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlBindCapture.invoke(target, method, args);
+            if (result instanceof PreparedStatement statement && args != null && args.length > 0
+                    && args[0] instanceof String sql && take(sql)) {
+                return Proxy.newProxyInstance(SqlBindCapture.class.getClassLoader(), new Class<?>[]{method.getReturnType()},
+                        new StatementHandler(statement, sql, new TreeMap<>()));
+            }
+            return result;
+        }
+    }
+
+    private record StatementHandler(PreparedStatement target, String sql, Map<Integer, Object> binds)
+            implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                binds.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                binds.clear();
+            } else if (EXECUTE_METHODS.contains(name) && (args == null || args.length == 0)) {
+                logger.info(format(sql, binds));
+            }
+            return SqlBindCapture.invoke(target, method, args);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package util.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import util.HibernateUtil;
+import util.pool.PoolMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class HibernateMetrics {
+
+    private HibernateMetrics() {
+    }
+
+    // generate_statistics в hibernate.cfg.xml выключен и перекрывает системное свойство,
+    // поэтому статистика включается здесь: без неё все счётчики остаются нулевыми.
+    public static void register(MetricsRegistry registry, SessionFactory sessionFactory) {
+        register(registry, sessionFactory, "hibernate", "pool");
+    }
+
+    // Для шардов: группы hibernate.<name> и pool.<name>, у каждой базы свои счётчики и пул.
+    public static void register(MetricsRegistry registry, SessionFactory sessionFactory, String name) {
+        register(registry, sessionFactory, "hibernate." + name, "pool." + name);
+    }
+
+    private static void register(MetricsRegistry registry, SessionFactory sessionFactory,
+                                 String statisticsGroup, String poolGroup) {
+        sessionFactory.getStatistics().setStatisticsEnabled(true);
+        registry.registerGauges(statisticsGroup, () -> statistics(sessionFactory.getStatistics()));
+        HibernateUtil.getConnectionPool(sessionFactory).ifPresent(pool ->
+                registry.registerGauges(poolGroup, () -> pool(pool.metrics())));
+    }
+
+    private static Map<String, Object> statistics(Statistics statistics) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        if (!statistics.isStatisticsEnabled()) {
+            return values;
+        }
+        values.put("queryExecutions", statistics.getQueryExecutionCount());
+        values.put("entityLoads", statistics.getEntityLoadCount());
+        values.put("entityFetches", statistics.getEntityFetchCount());
+        values.put("entityInserts", statistics.getEntityInsertCount());
+        values.put("entityUpdates", statistics.getEntityUpdateCount());
+        values.put("entityDeletes", statistics.getEntityDeleteCount());
+        values.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        values.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        values.put("naturalIdQueryExecutions", statistics.getNaturalIdQueryExecutionCount());
+        values.put("flushes", statistics.getFlushCount());
+        values.put("connectionAcquisitions", statistics.getConnectCount());
+        values.put("transactions", statistics.getTransactionCount());
+        values.put("slowestQueryMillis", statistics.getQueryExecutionMaxTime());
+        values.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+        return values;
+    }
+
+    private static Map<String, Object> pool(PoolMetrics metrics) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("active", metrics.active());
+        values.put("idle", metrics.idle());
+        values.put("waiting", metrics.waiting());
+        values.put("total", metrics.total());
+        values.put("timeouts", metrics.timeouts());
+        values.put("acquireP99Millis", metrics.acquireLatency().percentileMillis(99));
+        return values;
+    }
+}
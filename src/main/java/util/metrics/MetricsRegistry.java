@@ -0,0 +1,156 @@
+package util.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+public class MetricsRegistry {
+
+    private static final Logger logger = LogManager.getLogger(MetricsRegistry.class);
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Supplier<Map<String, ?>>> gauges = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    public void registerGauges(String group, Supplier<Map<String, ?>> supplier) {
+        gauges.put(group, supplier);
+    }
+
+    public Map<String, OperationMetrics> getOperations() {
+        return new TreeMap<>(operations);
+    }
+
+    public Map<String, Object> getGaugeValues() {
+        Map<String, Object> values = new TreeMap<>();
+        gauges.forEach((group, supplier) -> {
+            try {
+                supplier.get().forEach((name, value) -> values.put(group + "." + name, value));
+            } catch (RuntimeException e) {
+                logger.warn("Не удалось получить метрики группы {}", group, e);
+            }
+        });
+        return values;
+    }
+
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    public String textSnapshot() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-32s %10s %8s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)"));
+        getOperations().forEach((name, metrics) -> {
+            LatencyHistogram.Snapshot latency = metrics.getLatency();
+            out.append(String.format(Locale.ROOT, "%-32s %10d %8d %10.3f %10.3f %10.3f %10.3f%n",
+                    name, metrics.getCount(), metrics.getErrors(),
+                    latency.percentileMillis(50), latency.percentileMillis(99), latency.percentileMillis(99.9),
+                    latency.getMaxNanos() / 1_000_000.0));
+        });
+        getGaugeValues().forEach((name, value) -> out.append(name).append(' ').append(value).append('\n'));
+        return out.toString();
+    }
+
+    public void registerJmx(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new Metrics(this), name);
+                logger.info("Метрики опубликованы в JMX как {}", objectName);
+            }
+        } catch (JMException e) {
+            logger.warn("Не удалось зарегистрировать метрики в JMX", e);
+        }
+    }
+
+    public interface MetricsMXBean {
+        Map<String, Long> getCounts();
+        Map<String, Long> getErrors();
+        Map<String, Double> getP50Millis();
+        Map<String, Double> getP99Millis();
+        Map<String, Double> getP999Millis();
+        Map<String, String> getGauges();
+        String getTextSnapshot();
+        void reset();
+    }
+
+    private static final class Metrics implements MetricsMXBean {
+        private final MetricsRegistry registry;
+
+        private Metrics(MetricsRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Map<String, Long> getCounts() {
+            Map<String, Long> result = new TreeMap<>();
+            registry.getOperations().forEach((name, metrics) -> result.put(name, metrics.getCount()));
+            return result;
+        }
+
+        @Override
+        public Map<String, Long> getErrors() {
+            Map<String, Long> result = new TreeMap<>();
+            registry.getOperations().forEach((name, metrics) -> result.put(name, metrics.getErrors()));
+            return result;
+        }
+
+        @Override
+        public Map<String, Double> getP50Millis() {
+            return percentiles(50);
+        }
+
+        @Override
+        public Map<String, Double> getP99Millis() {
+            return percentiles(99);
+        }
+
+        @Override
+        public Map<String, Double> getP999Millis() {
+            return percentiles(99.9);
+        }
+
+        @Override
+        public Map<String, String> getGauges() {
+            Map<String, String> result = new TreeMap<>();
+            registry.getGaugeValues().forEach((name, value) -> result.put(name, String.valueOf(value)));
+            return result;
+        }
+
+        @Override
+        public String getTextSnapshot() {
+            return registry.textSnapshot();
+        }
+
+        @Override
+        public void reset() {
+            registry.reset();
+        }
+
+        private Map<String, Double> percentiles(double percentile) {
+            Map<String, Double> result = new TreeMap<>();
+            registry.getOperations().forEach((name, metrics) ->
+                    result.put(name, metrics.getLatency().percentileMillis(percentile)));
+            return result;
+        }
+    }
+}
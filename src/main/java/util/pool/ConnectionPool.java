@@ -0,0 +1,368 @@
+package util.pool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import util.metrics.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+
+    // Соединение, пролежавшее в пуле дольше этого, проверяется через isValid перед выдачей.
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // Ожидающий в очереди пула: возвращённое соединение передаётся ему напрямую.
+    private static final class Waiter {
+        private final Condition ready;
+        private PooledConnection entry;
+
+        private Waiter(Condition ready) {
+            this.ready = ready;
+        }
+    }
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        private volatile long returnedAtNanos;
+        private volatile long leasedAtNanos;
+        private volatile Throwable leaseTrace;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.returnedAtNanos = System.nanoTime();
+        }
+    }
+
+    private final PoolConfig config;
+    private final ConnectionFactory factory;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Map<Connection, PooledConnection> leased = new ConcurrentHashMap<>();
+    // Очередь ожидающих и передача им соединений - под handoffLock.
+    private final ReentrantLock handoffLock = new ReentrantLock();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(PoolConfig config, ConnectionFactory factory) {
+        this.config = config;
+        this.factory = factory;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = config.housekeepingPeriod().toMillis();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+        housekeeper.execute(this::fillToMinimum);
+    }
+
+    public Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        long start = System.nanoTime();
+        long deadline = start + config.connectionTimeout().toNanos();
+        try {
+            while (true) {
+                // Пока есть ожидающие, новый вызов не берёт соединение мимо очереди.
+                PooledConnection entry = waiting.get() == 0 ? idle.pollFirst() : null;
+                boolean fresh = false;
+                if (entry == null && waiting.get() == 0 && tryReserveSlot()) {
+                    entry = createEntry();
+                    fresh = true;
+                } else if (entry == null) {
+                    entry = awaitIdle(deadline);
+                }
+                if (!fresh && !isAlive(entry)) {
+                    discard(entry);
+                    continue;
+                }
+                lease(entry, start);
+                return entry.connection;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения прервано", e);
+        }
+    }
+
+    public void release(Connection connection) {
+        PooledConnection entry = leased.remove(connection);
+        if (entry == null) {
+            logger.warn("В пул возвращено чужое соединение, оно будет закрыто");
+            closeQuietly(connection);
+            return;
+        }
+        if (closed) {
+            closeQuietly(connection);
+            total.decrementAndGet();
+            return;
+        }
+        try {
+            if (connection.isClosed()) {
+                discard(entry);
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.warn("Соединение не прошло проверку при возврате в пул", e);
+            discard(entry);
+            return;
+        }
+        entry.leaseTrace = null;
+        entry.returnedAtNanos = System.nanoTime();
+        offer(entry, true);
+    }
+
+    public PoolMetrics metrics() {
+        return new PoolMetrics(
+                leased.size(),
+                idle.size(),
+                total.get(),
+                waiting.get(),
+                acquired.sum(),
+                timeouts.sum(),
+                created.sum(),
+                evicted.sum(),
+                leaks.sum(),
+                acquireLatency.snapshot());
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection entry;
+        while ((entry = idle.pollFirst()) != null) {
+            closeQuietly(entry.connection);
+            total.decrementAndGet();
+        }
+        if (!leased.isEmpty()) {
+            logger.warn("Пул закрыт, но {} соединений ещё не возвращены", leased.size());
+        }
+    }
+
+    // Ожидающие обслуживаются по порядку прихода: release отдаёт соединение голове очереди.
+    private PooledConnection awaitIdle(long deadline) throws SQLException, InterruptedException {
+        handoffLock.lock();
+        try {
+            if (waiters.isEmpty()) {
+                PooledConnection entry = idle.pollFirst();
+                if (entry != null) {
+                    return entry;
+                }
+            }
+            Waiter waiter = new Waiter(handoffLock.newCondition());
+            waiters.addLast(waiter);
+            waiting.incrementAndGet();
+            try {
+                while (waiter.entry == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.increment();
+                        throw new SQLTransientConnectionException(String.format(
+                                "Не удалось получить соединение за %d мс (активных: %d, всего: %d, ожидающих: %d)",
+                                config.connectionTimeout().toMillis(), leased.size(), total.get(), waiting.get()));
+                    }
+                    waiter.ready.awaitNanos(remaining);
+                }
+                return waiter.entry;
+            } catch (InterruptedException e) {
+                // Соединение могли передать перед прерыванием: оно достаётся следующему.
+                if (waiter.entry != null) {
+                    offer(waiter.entry, true);
+                }
+                throw e;
+            } finally {
+                waiters.remove(waiter);
+                waiting.decrementAndGet();
+            }
+        } finally {
+            handoffLock.unlock();
+        }
+    }
+
+    private void offer(PooledConnection entry, boolean first) {
+        handoffLock.lock();
+        try {
+            Waiter waiter = waiters.pollFirst();
+            if (waiter != null) {
+                waiter.entry = entry;
+                waiter.ready.signal();
+            } else if (first) {
+                idle.offerFirst(entry);
+            } else {
+                idle.offerLast(entry);
+            }
+        } finally {
+            handoffLock.unlock();
+        }
+    }
+
+    private boolean tryReserveSlot() {
+        while (true) {
+            int current = total.get();
+            if (current >= config.maxSize()) {
+                return false;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledConnection createEntry() throws SQLException {
+        try {
+            PooledConnection entry = new PooledConnection(factory.create());
+            created.increment();
+            return entry;
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean isAlive(PooledConnection entry) {
+        try {
+            if (System.nanoTime() - entry.returnedAtNanos < VALIDATE_AFTER_IDLE_NANOS) {
+                return !entry.connection.isClosed();
+            }
+            return entry.connection.isValid((int) Math.max(1, config.validationTimeout().toSeconds()));
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void lease(PooledConnection entry, long startNanos) {
+        long now = System.nanoTime();
+        entry.leasedAtNanos = now;
+        entry.leakReported = false;
+        if (!config.leakDetectionThreshold().isZero()) {
+            entry.leaseTrace = new Throwable("Соединение получено потоком " + Thread.currentThread().getName());
+        }
+        leased.put(entry.connection, entry);
+        acquired.increment();
+        acquireLatency.record(now - startNanos);
+    }
+
+    private void discard(PooledConnection entry) {
+        closeQuietly(entry.connection);
+        total.decrementAndGet();
+        evicted.increment();
+        if (waiting.get() > 0 && !closed) {
+            housekeeper.execute(this::replenishForWaiters);
+        }
+    }
+
+    private void housekeep() {
+        try {
+            evictIdle();
+            fillToMinimum();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            logger.error("Ошибка обслуживания пула соединений", e);
+        }
+    }
+
+    private void evictIdle() {
+        long idleTimeout = config.idleTimeout().toNanos();
+        long now = System.nanoTime();
+        for (PooledConnection entry : idle) {
+            if (total.get() <= config.minSize()) {
+                return;
+            }
+            if (now - entry.returnedAtNanos > idleTimeout && idle.removeLastOccurrence(entry)) {
+                closeQuietly(entry.connection);
+                total.decrementAndGet();
+                evicted.increment();
+            }
+        }
+    }
+
+    private void fillToMinimum() {
+        while (!closed && total.get() < config.minSize() && tryReserveSlot()) {
+            if (!addIdleConnection()) {
+                return;
+            }
+        }
+    }
+
+    private void replenishForWaiters() {
+        while (!closed && waiting.get() > 0 && idle.isEmpty() && tryReserveSlot()) {
+            if (!addIdleConnection()) {
+                return;
+            }
+        }
+    }
+
+    private boolean addIdleConnection() {
+        try {
+            offer(createEntry(), false);
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            logger.warn("Не удалось открыть соединение для пула", e);
+            return false;
+        }
+    }
+
+    private void detectLeaks() {
+        long threshold = config.leakDetectionThreshold().toNanos();
+        if (threshold == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (PooledConnection entry : leased.values()) {
+            if (!entry.leakReported && now - entry.leasedAtNanos > threshold) {
+                entry.leakReported = true;
+                leaks.increment();
+                logger.warn("Возможная утечка соединения: удерживается {} мс",
+                        TimeUnit.NANOSECONDS.toMillis(now - entry.leasedAtNanos), entry.leaseTrace);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Ошибка при закрытии соединения", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package util.pool;
+
+import java.time.Duration;
+import java.util.Map;
+
+public record PoolConfig(
+        int minSize,
+        int maxSize,
+        Duration connectionTimeout,
+        Duration idleTimeout,
+        Duration validationTimeout,
+        Duration leakDetectionThreshold,
+        Duration housekeepingPeriod
+) {
+
+    public static final String PREFIX = "hibernate.pool.";
+    public static final String MIN_SIZE = PREFIX + "min_size";
+    public static final String MAX_SIZE = PREFIX + "max_size";
+    public static final String CONNECTION_TIMEOUT_MS = PREFIX + "connection_timeout_ms";
+    public static final String IDLE_TIMEOUT_MS = PREFIX + "idle_timeout_ms";
+    public static final String VALIDATION_TIMEOUT_MS = PREFIX + "validation_timeout_ms";
+    public static final String LEAK_DETECTION_THRESHOLD_MS = PREFIX + "leak_detection_threshold_ms";
+    public static final String HOUSEKEEPING_PERIOD_MS = PREFIX + "housekeeping_period_ms";
+
+    public PoolConfig {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException(
+                    "Некорректный размер пула: min=" + minSize + ", max=" + maxSize);
+        }
+        requireNonNegative(connectionTimeout, CONNECTION_TIMEOUT_MS);
+        requirePositive(idleTimeout, IDLE_TIMEOUT_MS);
+        requireNonNegative(validationTimeout, VALIDATION_TIMEOUT_MS);
+        requireNonNegative(leakDetectionThreshold, LEAK_DETECTION_THRESHOLD_MS);
+        requirePositive(housekeepingPeriod, HOUSEKEEPING_PERIOD_MS);
+    }
+
+    public static PoolConfig defaults() {
+        return new PoolConfig(2, 10,
+                Duration.ofSeconds(30),
+                Duration.ofMinutes(10),
+                Duration.ofSeconds(5),
+                Duration.ZERO,
+                Duration.ofSeconds(30));
+    }
+
+    public static PoolConfig from(Map<String, Object> settings) {
+        PoolConfig d = defaults();
+        return new PoolConfig(
+                intValue(settings, MIN_SIZE, d.minSize()),
+                intValue(settings, MAX_SIZE, d.maxSize()),
+                millis(settings, CONNECTION_TIMEOUT_MS, d.connectionTimeout()),
+                millis(settings, IDLE_TIMEOUT_MS, d.idleTimeout()),
+                millis(settings, VALIDATION_TIMEOUT_MS, d.validationTimeout()),
+                millis(settings, LEAK_DETECTION_THRESHOLD_MS, d.leakDetectionThreshold()),
+                millis(settings, HOUSEKEEPING_PERIOD_MS, d.housekeepingPeriod()));
+    }
+
+    private static void requireNonNegative(Duration value, String key) {
+        if (value == null || value.isNegative()) {
+            throw new IllegalArgumentException("Некорректная настройка пула: " + key + "=" + millis(value));
+        }
+    }
+
+    private static void requirePositive(Duration value, String key) {
+        if (value == null || value.isNegative() || value.isZero()) {
+            throw new IllegalArgumentException("Некорректная настройка пула: " + key + "=" + millis(value)
+                    + " (нужно больше 0)");
+        }
+    }
+
+    private static Object millis(Duration value) {
+        return value == null ? null : value.toMillis();
+    }
+
+    private static int intValue(Map<String, Object> settings, String key, int defaultValue) {
+        Object value = settings.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.toString().trim());
+    }
+
+    private static Duration millis(Map<String, Object> settings, String key, Duration defaultValue) {
+        Object value = settings.get(key);
+        return value == null ? defaultValue : Duration.ofMillis(Long.parseLong(value.toString().trim()));
+    }
+}
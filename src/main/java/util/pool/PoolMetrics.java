@@ -0,0 +1,32 @@
+package util.pool;
+
+import util.metrics.LatencyHistogram;
+
+public record PoolMetrics(
+        int active,
+        int idle,
+        int total,
+        int waiting,
+        long acquired,
+        long timeouts,
+        long created,
+        long evicted,
+        long leaksDetected,
+        LatencyHistogram.Snapshot acquireLatency
+) {
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", total=" + total +
+                ", waiting=" + waiting +
+                ", acquired=" + acquired +
+                ", timeouts=" + timeouts +
+                ", created=" + created +
+                ", evicted=" + evicted +
+                ", leaksDetected=" + leaksDetected +
+                ", acquireLatency={" + acquireLatency + "}" +
+                '}';
+    }
+}
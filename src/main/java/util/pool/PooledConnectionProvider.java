@@ -0,0 +1,108 @@
+package util.pool;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+import util.logging.SampledSqlStatementInspector;
+import util.logging.SqlBindCapture;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    private static final Logger logger = LogManager.getLogger(PooledConnectionProvider.class);
+
+    private ConnectionPool pool;
+    private boolean captureBinds;
+
+    @Override
+    public void configure(Map<String, Object> settings) {
+        Object url = setting(settings, JdbcSettings.JAKARTA_JDBC_URL, "hibernate.connection.url");
+        if (url == null) {
+            throw new HibernateException("Не задан " + JdbcSettings.JAKARTA_JDBC_URL);
+        }
+        Object driver = setting(settings, JdbcSettings.JAKARTA_JDBC_DRIVER, "hibernate.connection.driver_class");
+        if (driver != null) {
+            try {
+                Class.forName(driver.toString());
+            } catch (ClassNotFoundException e) {
+                throw new HibernateException("Драйвер JDBC не найден: " + driver, e);
+            }
+        }
+        Properties connectionProperties = new Properties();
+        putIfPresent(connectionProperties, "user",
+                setting(settings, JdbcSettings.JAKARTA_JDBC_USER, "hibernate.connection.username"));
+        putIfPresent(connectionProperties, "password",
+                setting(settings, JdbcSettings.JAKARTA_JDBC_PASSWORD, "hibernate.connection.password"));
+
+        captureBinds = SampledSqlStatementInspector.sampleRate() > 0;
+        PoolConfig config = PoolConfig.from(settings);
+        pool = new ConnectionPool(config, () -> DriverManager.getConnection(url.toString(), connectionProperties));
+        logger.info("Пул соединений запущен: min={}, max={}, timeout={} мс",
+                config.minSize(), config.maxSize(), config.connectionTimeout().toMillis());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = pool.acquire();
+        return captureBinds ? SqlBindCapture.wrap(connection) : connection;
+    }
+
+    @Override
+    public void closeConnection(Connection connection) {
+        pool.release(SqlBindCapture.unwrap(connection));
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public void stop() {
+        if (pool != null) {
+            pool.close();
+            logger.info("Пул соединений остановлен: {}", pool.metrics());
+        }
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isAssignableFrom(PooledConnectionProvider.class)
+                || ConnectionPool.class.equals(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (ConnectionPool.class.equals(unwrapType)) {
+            return (T) pool;
+        }
+        if (unwrapType.isAssignableFrom(PooledConnectionProvider.class)) {
+            return (T) this;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    // hibernate.cfg.xml и HibernateUtil задают ключи hibernate.connection.*, стандартные
+    // jakarta.persistence.jdbc.* имеют приоритет.
+    private static Object setting(Map<String, Object> settings, String key, String legacyKey) {
+        Object value = settings.get(key);
+        return value != null ? value : settings.get(legacyKey);
+    }
+
+    private static void putIfPresent(Properties properties, String key, Object value) {
+        if (value != null) {
+            properties.setProperty(key, value.toString());
+        }
+    }
+}
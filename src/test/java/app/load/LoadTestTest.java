@@ -0,0 +1,124 @@
+package app.load;
+
+import app.load.OperationMix.Operation;
+import dao.BulkInsertResult;
+import exceptions.dao.UserUpdateException;
+import model.User;
+import model.UserUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import service.UserService;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class LoadTestTest {
+
+    private UserService userService;
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        userService = Mockito.mock(UserService.class);
+        when(userService.addUsers(anyCollection())).thenAnswer(invocation -> {
+            Collection<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(ids.incrementAndGet()));
+            return new BulkInsertResult(users.size(), List.of());
+        });
+        doAnswer(invocation -> {
+            invocation.<User>getArgument(0).setId(ids.incrementAndGet());
+            return null;
+        }).when(userService).addUser(any(User.class));
+    }
+
+    @Test
+    void openLoop_shouldCountQueueingBehindSlowResponsesInLatency() {
+        when(userService.getUserById(anyLong())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return new User();
+        });
+        // Расписание каждые 10 мс, ответ за 20 мс: очередь растёт весь прогон.
+        LoadOptions options = LoadOptions.defaults().withClients(1).withTargetQps(100).withWarmup(Duration.ZERO)
+                .withDuration(Duration.ofMillis(800)).withMix(OperationMix.parse("read=1")).withKeys(10)
+                .withReportInterval(Duration.ofMillis(200));
+
+        LoadReport report = new LoadTest(userService, options).run();
+
+        LoadReport.OperationResult reads = report.operations().get(Operation.READ);
+        assertTrue(reads.count() > 10 && reads.count() <= 80, "чтений: " + reads.count());
+        double service = reads.serviceTime().percentileMillis(99);
+        double corrected = reads.latency().percentileMillis(99);
+        assertTrue(service >= 19 && service < 100, "время обслуживания p99: " + service);
+        assertTrue(corrected > 2 * service, "задержка с поправкой p99: " + corrected);
+        assertFalse(report.timeline().isEmpty());
+    }
+
+    @Test
+    void closedLoop_shouldFallBackToInsertAndRecordErrors() {
+        doThrow(new UserUpdateException("отказ", new RuntimeException()))
+                .when(userService).updateUserFields(anyLong(), any(UserUpdate.class));
+        LoadOptions options = LoadOptions.defaults().withClients(4).withWarmup(Duration.ZERO)
+                .withDuration(Duration.ofMillis(300)).withMix(OperationMix.parse("delete=1,update=1"))
+                .withKeys(50).withVirtualThreads(false).withLabel("тест \"1\"");
+
+        LoadReport report = new LoadTest(userService, options).run();
+
+        long deletes = report.operations().get(Operation.DELETE).count();
+        long inserts = report.operations().get(Operation.INSERT).count();
+        LoadReport.OperationResult updates = report.operations().get(Operation.UPDATE);
+        assertTrue(inserts > 0);
+        assertTrue(deletes <= inserts, "удалено больше, чем вставлено: " + deletes + " > " + inserts);
+        assertEquals(updates.count(), updates.errors());
+        assertEquals(1.0, updates.errorRate());
+        assertEquals(updates.errors(), report.errors().get("UserUpdateException"));
+        verify(userService, never()).getUserById(anyLong());
+
+        String json = report.toJson();
+        assertTrue(json.contains("\"label\": \"тест \\\"1\\\"\""));
+        assertTrue(json.contains("\"mode\": \"closed\""));
+        assertTrue(json.contains("\"UserUpdateException\": " + updates.errors()));
+        assertTrue(json.contains("\"p999\""));
+    }
+
+    @Test
+    void zipf_shouldSkewTowardsLowRanks() {
+        SplittableRandom random = new SplittableRandom(42);
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1.0);
+        int[] hits = new int[1000];
+        for (int i = 0; i < 200_000; i++) {
+            hits[zipf.sample(random)]++;
+        }
+        // При s = 1 и n = 1000 у первого ранга доля 1 / H(1000) ~ 13%, у второго вдвое меньше.
+        assertEquals(0.134, hits[0] / 200_000.0, 0.01);
+        assertEquals(2.0, (double) hits[0] / hits[1], 0.2);
+
+        ZipfDistribution uniform = new ZipfDistribution(10, 0);
+        int[] uniformHits = new int[10];
+        for (int i = 0; i < 100_000; i++) {
+            uniformHits[uniform.sample(random)]++;
+        }
+        for (int count : uniformHits) {
+            assertEquals(10_000, count, 600);
+        }
+    }
+
+    @Test
+    void operationMix_shouldNormalizeWeightsAndRejectUnknownOperations() {
+        OperationMix mix = OperationMix.parse("read=3, update=1");
+        assertEquals(0.75, mix.shares().get(Operation.READ), 1e-9);
+        assertFalse(mix.shares().containsKey(Operation.DELETE));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("scan=1"));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("read=0"));
+        assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("read"));
+    }
+}
@@ -0,0 +1,97 @@
+package dao.impl;
+
+import dao.UserDao;
+import model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingUserDaoTest {
+
+    private UserDao delegate;
+    private AtomicLong clock;
+    private CachingUserDao cachingDao;
+
+    @BeforeEach
+    void setUp() {
+        delegate = Mockito.mock(UserDao.class);
+        clock = new AtomicLong();
+        cachingDao = new CachingUserDao(delegate, 2, Duration.ofSeconds(10), Duration.ofSeconds(1), clock::get);
+    }
+
+    @Test
+    void getUserById_shouldServeRepeatedReadsFromCache() {
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(createUser(1L, "Иван")));
+        cachingDao.getUserById(1L);
+        Optional<User> second = cachingDao.getUserById(1L);
+        assertEquals("Иван", second.orElseThrow().getName());
+        verify(delegate, times(1)).getUserById(1L);
+        assertEquals(1, cachingDao.getStats().hits());
+    }
+
+    @Test
+    void getUserById_shouldReturnCopiesNotCachedInstance() {
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(createUser(1L, "Иван")));
+        cachingDao.getUserById(1L).orElseThrow().setName("Изменено");
+        assertEquals("Иван", cachingDao.getUserById(1L).orElseThrow().getName());
+    }
+
+    @Test
+    void getUserById_shouldCacheMissesUntilNegativeTtlExpires() {
+        when(delegate.getUserById(99L)).thenReturn(Optional.empty());
+        assertTrue(cachingDao.getUserById(99L).isEmpty());
+        assertTrue(cachingDao.getUserById(99L).isEmpty());
+        verify(delegate, times(1)).getUserById(99L);
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        cachingDao.getUserById(99L);
+        verify(delegate, times(2)).getUserById(99L);
+    }
+
+    @Test
+    void updateAndDelete_shouldInvalidateEntry() {
+        User user = createUser(1L, "Иван");
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(user));
+        cachingDao.getUserById(1L);
+        cachingDao.updateUser(user);
+        cachingDao.getUserById(1L);
+        cachingDao.deleteUserById(1L);
+        cachingDao.getUserById(1L);
+        verify(delegate, times(3)).getUserById(1L);
+    }
+
+    @Test
+    void getUserByEmail_shouldResolveRepeatedLookupsThroughIdCache() {
+        User user = createUser(1L, "Иван");
+        when(delegate.getUserByEmail("иван@test.com")).thenReturn(Optional.of(user));
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(user));
+        cachingDao.getUserByEmail("Иван@Test.com");
+        cachingDao.getUserByEmail("иван@test.com");
+        cachingDao.getUserByEmail(" иван@test.com ");
+        verify(delegate, times(1)).getUserByEmail("иван@test.com");
+        verify(delegate, times(1)).getUserById(1L);
+    }
+
+    @Test
+    void cache_shouldEvictLeastRecentlyUsedWhenFull() {
+        for (long id = 1; id <= 3; id++) {
+            when(delegate.getUserById(id)).thenReturn(Optional.of(createUser(id, "user" + id)));
+            cachingDao.getUserById(id);
+        }
+        assertEquals(2, cachingDao.getStats().size());
+        assertEquals(1, cachingDao.getStats().evictions());
+    }
+
+    private User createUser(Long id, String name) {
+        User user = new User(name, name + "@test.com", 30);
+        user.setId(id);
+        return user;
+    }
+}
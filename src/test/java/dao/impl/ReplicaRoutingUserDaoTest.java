@@ -0,0 +1,83 @@
+package dao.impl;
+
+import dao.UserDao;
+import exceptions.dao.UserReadException;
+import model.User;
+import model.UserUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingUserDaoTest {
+
+    private UserDao primary;
+    private UserDao replica;
+    private AtomicLong clock;
+    private ReplicaRoutingUserDao routingDao;
+
+    @BeforeEach
+    void setUp() {
+        primary = Mockito.mock(UserDao.class);
+        replica = Mockito.mock(UserDao.class);
+        clock = new AtomicLong(1_000_000_000L);
+        routingDao = new ReplicaRoutingUserDao(primary, replica, Duration.ofSeconds(1), Duration.ofSeconds(5), clock::get);
+    }
+
+    @Test
+    void reads_shouldGoToReplicaAndWritesToPrimary() {
+        when(replica.getUserById(1L)).thenReturn(Optional.of(createUser(1L)));
+        assertTrue(routingDao.getUserById(1L).isPresent());
+        routingDao.getAllUsers();
+        routingDao.deleteUserById(2L);
+
+        verify(replica).getUserById(1L);
+        verify(replica).getAllUsers();
+        verify(primary).deleteUserById(2L);
+        verify(primary, never()).getUserById(anyLong());
+        assertEquals(2, routingDao.getStats().replicaReads());
+    }
+
+    @Test
+    void getUserById_shouldReadOwnWritesFromPrimaryWithinStalenessWindow() {
+        routingDao.updateUserFields(1L, UserUpdate.age(40));
+        routingDao.getUserById(1L);
+        routingDao.getUsersAfter(0L, 10);
+        verify(primary).getUserById(1L);
+        verify(primary).getUsersAfter(0L, 10);
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        routingDao.getUserById(1L);
+        verify(replica).getUserById(1L);
+    }
+
+    @Test
+    void reads_shouldFallBackToPrimaryWhileReplicaIsDown() {
+        when(replica.getAllUsers()).thenThrow(new UserReadException("нет соединения", null));
+        when(primary.getAllUsers()).thenReturn(List.of(createUser(1L)));
+
+        assertEquals(1, routingDao.getAllUsers().size());
+        routingDao.getAllUsers();
+        verify(replica, times(1)).getAllUsers();
+        verify(primary, times(2)).getAllUsers();
+        assertFalse(routingDao.getStats().replicaAvailable());
+        assertEquals(1, routingDao.getStats().fallbacks());
+
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        routingDao.getAllUsers();
+        verify(replica, times(2)).getAllUsers();
+    }
+
+    private User createUser(Long id) {
+        User user = new User("Иван", "ivan@test.com", 30);
+        user.setId(id);
+        return user;
+    }
+}
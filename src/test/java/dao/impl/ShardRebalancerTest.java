@@ -0,0 +1,77 @@
+package dao.impl;
+
+import dao.UserDao;
+import model.User;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+import util.HibernateUtil;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Два шарда - две базы на одном сервере PostgreSQL.
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardRebalancerTest {
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private final List<SessionFactory> shardFactories = new ArrayList<>();
+
+    @BeforeAll
+    void setUpContainer() throws SQLException {
+        postgreSQLContainer = new PostgreSQLContainer<>("postgres:15")
+                .withDatabaseName("shard0")
+                .withUsername("postgres")
+                .withPassword("postgres");
+        postgreSQLContainer.start();
+        try (Connection connection = DriverManager.getConnection(postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(), postgreSQLContainer.getPassword())) {
+            connection.createStatement().execute("create database shard1");
+        }
+        for (String database : List.of("shard0", "shard1")) {
+            String url = postgreSQLContainer.getJdbcUrl().replace("/shard0", "/" + database);
+            shardFactories.add(HibernateUtil.buildShardSessionFactory(url, postgreSQLContainer.getUsername(),
+                    postgreSQLContainer.getPassword(), "update", false));
+        }
+    }
+
+    @AfterAll
+    void tearDown() {
+        shardFactories.forEach(SessionFactory::close);
+        if (postgreSQLContainer != null) {
+            postgreSQLContainer.stop();
+        }
+    }
+
+    @Test
+    void rebalance_shouldMoveUsersToNewShardKeepingIds() {
+        SequenceIdAllocator ids = new SequenceIdAllocator(shardFactories.get(0));
+        List<User> users = new ArrayList<>();
+        try (ShardedUserDao oneShard = new ShardedUserDao(List.of(new UserDaoImpl(shardFactories.get(0))), ids)) {
+            for (int i = 0; i < 200; i++) {
+                users.add(new User("Шард " + i, "shard" + i + "@test.com", 20 + i % 50));
+            }
+            assertEquals(200, oneShard.addUsers(users).inserted());
+        }
+
+        ShardRebalancer.RebalanceReport report = new ShardRebalancer(shardFactories).rebalance(1);
+
+        assertEquals(200, report.scanned());
+        assertTrue(report.moved() > 50 && report.moved() < 150);
+        List<UserDao> daos = shardFactories.stream().map(factory -> (UserDao) new UserDaoImpl(factory)).toList();
+        try (ShardedUserDao twoShards = new ShardedUserDao(daos, ids)) {
+            for (User user : users) {
+                User stored = twoShards.getUserById(user.getId()).orElseThrow();
+                assertEquals(user.getEmail(), stored.getEmail());
+            }
+            assertEquals(200, twoShards.getAllUsers().size());
+            assertEquals(report.moved(), daos.get(1).getAllUsers().size());
+            assertTrue(twoShards.getUserByEmail("shard7@test.com").isPresent());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package dao.impl;
+
+import dao.AgeBucket;
+import dao.BulkInsertResult;
+import dao.UserChanges;
+import dao.UserDao;
+import dao.UserFilter;
+import exceptions.dao.UserCreationException;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ShardedUserDaoTest {
+
+    private static final int SHARDS = 3;
+
+    private List<UserDao> shards;
+    private ConsistentHashRing ring;
+    private ShardedUserDao shardedDao;
+
+    @BeforeEach
+    void setUp() {
+        shards = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            UserDao shard = Mockito.mock(UserDao.class);
+            when(shard.addUsers(anyCollection())).thenAnswer(invocation -> {
+                Collection<User> users = invocation.getArgument(0);
+                return new BulkInsertResult(users.size(), List.of());
+            });
+            shards.add(shard);
+        }
+        ring = new ConsistentHashRing(SHARDS);
+        AtomicLong ids = new AtomicLong(1000);
+        shardedDao = new ShardedUserDao(shards, ids::incrementAndGet);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shardedDao.close();
+    }
+
+    @Test
+    void operationsById_shouldGoToOwningShardOnly() {
+        User user = createUser(null, "ivan@test.com");
+        shardedDao.addUser(user);
+
+        assertEquals(1001L, user.getId());
+        UserDao owner = shards.get(ring.shardFor(1001L));
+        verify(owner).addUser(user);
+        shardedDao.getUserById(1001L);
+        shardedDao.deleteUserById(1001L);
+        verify(owner).getUserById(1001L);
+        verify(owner).deleteUserById(1001L);
+        for (UserDao shard : shards) {
+            if (shard != owner) {
+                verifyNoInteractions(shard);
+            }
+        }
+    }
+
+    @Test
+    void addUsers_shouldGroupUsersByShard() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            users.add(createUser(null, "user" + i + "@test.com"));
+        }
+
+        BulkInsertResult result = shardedDao.addUsers(users);
+
+        assertEquals(30, result.inserted());
+        for (int shard = 0; shard < SHARDS; shard++) {
+            int index = shard;
+            long expected = users.stream().filter(u -> ring.shardFor(u.getId()) == index).count();
+            verify(shards.get(shard), expected == 0 ? never() : times(1)).addUsers(anyCollection());
+        }
+    }
+
+    @Test
+    void addUsers_shouldRejectUsersOfFailedShardAndKeepOthers() {
+        when(shards.get(1).addUsers(anyCollection())).thenThrow(new UserCreationException("нет соединения", null));
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            users.add(createUser(null, "user" + i + "@test.com"));
+        }
+
+        BulkInsertResult result = shardedDao.addUsers(users);
+
+        long onFailedShard = users.stream().filter(u -> u.getId() == null).count();
+        assertTrue(onFailedShard > 0);
+        assertEquals(30 - onFailedShard, result.inserted());
+        assertEquals(onFailedShard, result.rejected().size());
+        for (BulkInsertResult.Rejected rejected : result.rejected()) {
+            assertNull(rejected.user().getId());
+            assertTrue(rejected.reason().contains("нет соединения"));
+        }
+    }
+
+    @Test
+    void scatterGather_shouldMergeShardResults() {
+        when(shards.get(0).getUsersAfter(0L, 2)).thenReturn(List.of(createUser(5L, "a@test.com"), createUser(9L, "b@test.com")));
+        when(shards.get(1).getUsersAfter(0L, 2)).thenReturn(List.of(createUser(3L, "c@test.com")));
+        when(shards.get(2).getUsersAfter(0L, 2)).thenReturn(List.of(createUser(7L, "d@test.com")));
+        when(shards.get(1).getUserByEmail("c@test.com")).thenReturn(Optional.of(createUser(3L, "c@test.com")));
+        UserFilter filter = UserFilter.all();
+        for (int i = 0; i < SHARDS; i++) {
+            when(shards.get(i).countUsers(filter)).thenReturn(10L);
+            when(shards.get(i).ageHistogram(10)).thenReturn(List.of(new AgeBucket(20, 30, i + 1)));
+        }
+
+        assertEquals(List.of(3L, 5L), shardedDao.getUsersAfter(0L, 2).stream().map(User::getId).toList());
+        assertEquals(3L, shardedDao.getUserByEmail("c@test.com").orElseThrow().getId());
+        assertEquals(30, shardedDao.countUsers(filter));
+        assertEquals(List.of(new AgeBucket(20, 30, 6)), shardedDao.ageHistogram(10));
+    }
+
+    @Test
+    void ring_shouldMoveOnlyKeysOfNewShardWhenShardIsAdded() {
+        ConsistentHashRing grown = new ConsistentHashRing(SHARDS + 1);
+        int[] counts = new int[SHARDS + 1];
+        int moved = 0;
+        for (long id = 1; id <= 100_000; id++) {
+            int before = ring.shardFor(id);
+            int after = grown.shardFor(id);
+            counts[after]++;
+            if (before != after) {
+                assertEquals(SHARDS, after);
+                moved++;
+            }
+        }
+        assertEquals(counts[SHARDS], moved);
+        for (int count : counts) {
+            assertTrue(count > 15_000 && count < 35_000, "неравномерное распределение: " + count);
+        }
+    }
+
+    @Test
+    void getChangesSince_shouldReadFeedOfEachShardSeparately() {
+        UserChanges changes = new UserChanges(List.of(), 42);
+        when(shards.get(2).getChangesSince(0, 40, 10)).thenReturn(changes);
+
+        assertEquals(SHARDS, shardedDao.changeFeedCount());
+        assertSame(changes, shardedDao.getChangesSince(2, 40, 10));
+        verify(shards.get(0), never()).getChangesSince(anyInt(), anyLong(), anyInt());
+        assertThrows(IllegalArgumentException.class, () -> shardedDao.getChangesSince(SHARDS, 0, 10));
+    }
+
+    private User createUser(Long id, String email) {
+        User user = new User("Иван", email, 30);
+        user.setId(id);
+        return user;
+    }
+}
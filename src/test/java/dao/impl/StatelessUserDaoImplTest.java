@@ -0,0 +1,101 @@
+package dao.impl;
+
+import dao.BulkInsertResult;
+import dao.UserDao;
+import exceptions.dao.UserCreationException;
+import exceptions.dao.UserUpdateException;
+import model.User;
+import model.UserUpdate;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatelessUserDaoImplTest {
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private SessionFactory testSessionFactory;
+    private UserDao userDao;
+
+    @BeforeAll
+    void setUpContainer() {
+        postgreSQLContainer = new PostgreSQLContainer<>("postgres:15")
+                .withDatabaseName("testdb")
+                .withUsername("postgres")
+                .withPassword("postgres");
+        postgreSQLContainer.start();
+
+        testSessionFactory = util.HibernateUtil.initForTest(
+                postgreSQLContainer.getJdbcUrl(),
+                postgreSQLContainer.getUsername(),
+                postgreSQLContainer.getPassword()
+        );
+        userDao = new StatelessUserDaoImpl(testSessionFactory);
+    }
+
+    @AfterAll
+    void tearDown() {
+        if (testSessionFactory != null) {
+            testSessionFactory.close();
+        }
+        if (postgreSQLContainer != null) {
+            postgreSQLContainer.stop();
+        }
+    }
+
+    @BeforeEach
+    void cleanDb() {
+        try (var session = testSessionFactory.openSession()) {
+            var tx = session.beginTransaction();
+            session.createMutationQuery("DELETE FROM User").executeUpdate();
+            tx.commit();
+        }
+    }
+
+    @Test
+    void addUser_andReadBack() {
+        User user = new User("Иван", "Ivan@Test.com", 25);
+        userDao.addUser(user);
+        assertNotNull(user.getId());
+        assertEquals("Иван", userDao.getUserById(user.getId()).orElseThrow().getName());
+        assertEquals(user.getId(), userDao.getUserByEmail("ivan@test.com").orElseThrow().getId());
+        assertThrows(UserCreationException.class, () -> userDao.addUser(new User("Дубль", "ivan@test.com", 30)));
+    }
+
+    @Test
+    void addUsers_shouldInsertAllAndRejectDuplicates() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            users.add(new User("Пользователь " + i, "user" + i + "@test.com", 20 + i % 50));
+        }
+        users.add(new User("Дубликат", "user7@test.com", 33));
+        BulkInsertResult result = userDao.addUsers(users);
+        assertEquals(120, result.inserted());
+        assertEquals(1, result.rejected().size());
+        try (Stream<User> stream = userDao.streamAllUsers()) {
+            assertEquals(120, stream.count());
+        }
+        assertEquals(50, userDao.getUsersAfter(null, 50).size());
+    }
+
+    @Test
+    void updateAndDelete() {
+        User user = new User("Павел", "pavel@test.com", 31);
+        userDao.addUser(user);
+        user.setName("Павел Иванов");
+        userDao.updateUser(user);
+        assertEquals(1, userDao.updateUserFields(user.getId(), UserUpdate.age(32)));
+        User updated = userDao.getUserById(user.getId()).orElseThrow();
+        assertEquals("Павел Иванов", updated.getName());
+        assertEquals(32, updated.getAge());
+        assertEquals(1, userDao.deleteUserById(user.getId()));
+        assertEquals(0, userDao.deleteUserById(user.getId()));
+        assertThrows(UserUpdateException.class, () -> userDao.updateUser(user));
+    }
+}
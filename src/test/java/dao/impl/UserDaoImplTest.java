@@ -1,13 +1,32 @@
 package dao.impl;
 
+import dao.BulkInsertResult;
+import dao.AgeBucket;
+import dao.DailySignups;
+import dao.Page;
+import dao.UserChange;
+import dao.UserChanges;
 import dao.UserDao;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserConcurrentModificationException;
+import exceptions.dao.UserUpdateException;
 import model.User;
+import model.UserSummary;
+import model.UserUpdate;
 import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.*;
 import org.testcontainers.containers.PostgreSQLContainer;
+import util.metrics.HibernateMetrics;
+import util.metrics.MetricsRegistry;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -108,6 +127,257 @@ class UserDaoImplTest {
         assertFalse(afterDelete.isPresent());
     }
 
+    @Test
+    @Order(6)
+    void addUsers_shouldInsertAllAndRejectDuplicates() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            users.add(createUser("Пользователь " + i, "user" + i + "@test.com", 20 + i % 50));
+        }
+        users.add(createUser("Дубликат", "user7@test.com", 33));
+        BulkInsertResult result = userDao.addUsers(users);
+        assertEquals(120, result.inserted());
+        assertEquals(1, result.rejected().size());
+        assertEquals("Дубликат", result.rejected().get(0).user().getName());
+        assertEquals(120, userDao.getAllUsers().size());
+    }
+
+    @Test
+    @Order(7)
+    void streamAllUsers_andGetUsersAfter() {
+        for (int i = 0; i < 5; i++) {
+            userDao.addUser(createUser("Стрим " + i, "stream" + i + "@test.com", 20 + i));
+        }
+        try (Stream<User> users = userDao.streamAllUsers()) {
+            assertEquals(5, users.count());
+        }
+        List<User> firstPage = userDao.getUsersAfter(null, 3);
+        assertEquals(3, firstPage.size());
+        List<User> secondPage = userDao.getUsersAfter(firstPage.get(2).getId(), 3);
+        assertEquals(2, secondPage.size());
+        assertTrue(secondPage.get(0).getId() > firstPage.get(2).getId());
+    }
+
+    @Test
+    @Order(8)
+    void getUserByEmail_shouldIgnoreCase() {
+        User user = createUser("Ольга", "Olga@Test.com", 27);
+        userDao.addUser(user);
+        Optional<User> found = userDao.getUserByEmail("OLGA@test.com");
+        assertTrue(found.isPresent());
+        assertEquals(user.getId(), found.get().getId());
+        assertTrue(userDao.getUserByEmail("missing@test.com").isEmpty());
+    }
+
+    @Test
+    @Order(9)
+    void updateUserFields_andDeleteReportAffectedRows() {
+        User user = createUser("Павел", "pavel@test.com", 31);
+        userDao.addUser(user);
+        assertEquals(1, userDao.updateUserFields(user.getId(), UserUpdate.age(32)));
+        User updated = userDao.getUserById(user.getId()).orElseThrow();
+        assertEquals(32, updated.getAge());
+        assertEquals("Павел", updated.getName());
+        assertEquals(1, userDao.deleteUserById(user.getId()));
+        assertEquals(0, userDao.deleteUserById(user.getId()));
+    }
+
+    @Test
+    @Order(10)
+    void exportUsers_shouldCopyRowsAsCsvAndNdjson() {
+        userDao.addUser(createUser("Иван", "ivan@test.com", 30));
+        userDao.addUser(createUser("Пётр \"Первый\"", "petr@test.com", 25));
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertEquals(2, userDao.exportUsers(UserExportFormat.CSV, csv));
+        String csvText = csv.toString(StandardCharsets.UTF_8);
+        assertTrue(csvText.contains(",Иван,ivan@test.com,30,"));
+        assertTrue(csvText.contains("\"Пётр \"\"Первый\"\"\""));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        assertEquals(2, userDao.exportUsers(UserExportFormat.NDJSON, ndjson));
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(ndjson.toString(StandardCharsets.UTF_8).contains("\"name\" : \"Пётр \\\"Первый\\\"\""));
+    }
+
+    @Test
+    @Order(11)
+    void userSummaries_shouldProjectIdNameAndEmail() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(createUser("Сводка " + i, "summary" + i + "@test.com", 20 + i));
+        }
+        userDao.addUsers(users);
+        Long firstId = users.get(0).getId();
+
+        UserSummary summary = userDao.getUserSummaryById(firstId).orElseThrow();
+        assertEquals(new UserSummary(firstId, "Сводка 0", "summary0@test.com"), summary);
+        assertTrue(userDao.getUserSummaryById(-1L).isEmpty());
+
+        List<UserSummary> page = userDao.getUserSummariesAfter(firstId, 2);
+        assertEquals(List.of(users.get(1).getId(), users.get(2).getId()), page.stream().map(UserSummary::id).toList());
+        try (Stream<UserSummary> stream = userDao.streamUserSummaries()) {
+            assertEquals(5, stream.count());
+        }
+    }
+
+    @Test
+    @Order(12)
+    void findUsers_andAggregates_shouldRunInDatabase() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            users.add(createUser((i % 3 == 0 ? "Иван " : "Пётр ") + i, "filter" + i + "@test.com", 20 + i));
+        }
+        users.add(createUser("100%_особый", "special@test.com", 70));
+        userDao.addUsers(users);
+
+        UserFilter ivans = UserFilter.all().withNamePrefix("иВаН").withAge(25, 40);
+        List<User> found = userDao.findUsers(ivans, Page.of(0, 2));
+        assertEquals(2, found.size());
+        assertTrue(found.stream().allMatch(u -> u.getName().startsWith("Иван") && u.getAge() >= 25));
+        assertEquals(5, userDao.countUsers(ivans));
+        assertEquals(1, userDao.countUsers(UserFilter.all().withNamePrefix("100%_")));
+        assertEquals(0, userDao.countUsers(UserFilter.all().withNamePrefix("1000")));
+
+        List<AgeBucket> histogram = userDao.ageHistogram(10);
+        assertEquals(new AgeBucket(20, 30, 10), histogram.get(0));
+        assertEquals(31, histogram.stream().mapToLong(AgeBucket::count).sum());
+
+        LocalDate today = LocalDate.now();
+        List<DailySignups> signups = userDao.signupsPerDay(today.minusDays(2), today);
+        assertEquals(3, signups.size());
+        assertEquals(0, signups.get(0).count());
+        assertEquals(31, signups.get(2).count());
+    }
+
+    @Test
+    @Order(13)
+    void filterQueries_shouldUseIndexes() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            users.add(createUser("Имя" + i, "plan" + i + "@test.com", 18 + i % 70));
+        }
+        userDao.addUsers(users);
+        try (var session = testSessionFactory.openSession()) {
+            var tx = session.beginTransaction();
+            session.createNativeMutationQuery("analyze users").executeUpdate();
+            session.createNativeMutationQuery("set local enable_seqscan = off").executeUpdate();
+            assertTrue(explain(session, "select * from users where lower(name) like 'имя12%'")
+                    .contains("idx_users_lower_name"));
+            assertTrue(explain(session, "select * from users where age between 30 and 31")
+                    .contains("idx_users_age"));
+            assertTrue(explain(session, "select * from users where created_at >= now() - interval '1 day'")
+                    .contains("idx_users_created_at"));
+            tx.commit();
+        }
+    }
+
+    @Test
+    @Order(14)
+    void updateUser_shouldRejectStaleVersion() {
+        User user = createUser("Версия", "version@test.com", 30);
+        userDao.addUser(user);
+        User first = userDao.getUserById(user.getId()).orElseThrow();
+        User second = userDao.getUserById(user.getId()).orElseThrow();
+
+        first.setAge(31);
+        userDao.updateUser(first);
+        first.setAge(32);
+        userDao.updateUser(first);
+        second.setAge(40);
+        assertThrows(UserConcurrentModificationException.class, () -> userDao.updateUser(second));
+
+        assertEquals(1, userDao.updateUserFields(user.getId(), UserUpdate.age(33)));
+        assertThrows(UserConcurrentModificationException.class, () -> userDao.updateUser(first));
+        User stored = userDao.getUserById(user.getId()).orElseThrow();
+        assertEquals(33, stored.getAge());
+        assertEquals(first.getVersion() + 1, stored.getVersion());
+    }
+
+    @Test
+    @Order(15)
+    void getChangesSince_shouldReturnLatestUpsertsAndTombstonesInOrder() {
+        long watermark = 0;
+        UserChanges page;
+        while (!(page = userDao.getChangesSince(0, watermark, 100)).isEmpty()) {
+            watermark = page.nextWatermark();
+        }
+
+        User kept = createUser("Лента", "feed1@test.com", 20);
+        User removed = createUser("Лента", "feed2@test.com", 21);
+        try (var session = testSessionFactory.openSession()) {
+            // Незакоммиченная транзакция с меньшим номером задерживает более поздние изменения.
+            var tx = session.beginTransaction();
+            session.persist(kept);
+            session.flush();
+            userDao.addUser(removed);
+            assertTrue(userDao.getChangesSince(0, watermark, 10).isEmpty(), "изменения за открытой транзакцией");
+            tx.commit();
+        }
+        userDao.updateUserFields(kept.getId(), UserUpdate.age(22));
+        userDao.deleteUserById(removed.getId());
+
+        UserChanges changes = userDao.getChangesSince(0, watermark, 10);
+        assertEquals(2, changes.changes().size());
+        UserChange upsert = changes.changes().get(0);
+        assertEquals(kept.getId(), upsert.userId());
+        assertFalse(upsert.isDeleted());
+        assertEquals(22, upsert.user().getAge());
+        assertNotNull(upsert.user().getUpdatedAt());
+        UserChange delete = changes.changes().get(1);
+        assertEquals(removed.getId(), delete.userId());
+        assertTrue(delete.isDeleted());
+        assertTrue(delete.sequence() > upsert.sequence());
+        assertEquals(delete.sequence(), changes.nextWatermark());
+        assertTrue(userDao.getChangesSince(0, changes.nextWatermark(), 10).isEmpty());
+        assertEquals(1, userDao.getChangesSince(0, watermark, 1).changes().size());
+    }
+
+    @Test
+    @Order(16)
+    void hibernateMetrics_shouldCountQueries() {
+        MetricsRegistry registry = new MetricsRegistry();
+        HibernateMetrics.register(registry, testSessionFactory);
+        long before = (Long) registry.getGaugeValues().get("hibernate.queryExecutions");
+
+        userDao.getAllUsers();
+        userDao.findUsers(UserFilter.all().withAge(18, null), new Page(0, 10));
+
+        assertEquals(true, registry.getGaugeValues().get("hibernate.statisticsEnabled"));
+        assertTrue((Long) registry.getGaugeValues().get("hibernate.queryExecutions") >= before + 2);
+    }
+
+    @Test
+    @Order(17)
+    void updateUser_shouldRejectDetachedUserWithoutVersion() {
+        User user = createUser("Иван", "ivan@test.com", 25);
+        userDao.addUser(user);
+        User detached = createUser("Пётр", "petr@test.com", 30);
+        detached.setId(user.getId());
+
+        assertThrows(UserUpdateException.class, () -> userDao.updateUser(detached));
+        List<User> users = userDao.getAllUsers();
+        assertEquals(1, users.size());
+        assertEquals("Иван", users.get(0).getName());
+    }
+
+    @Test
+    @Order(18)
+    void addUser_shouldIgnoreAssignedIdOutsideShards() {
+        User user = createUser("Иван", "ivan@test.com", 25);
+        user.setId(1_000_000L);
+
+        userDao.addUser(user);
+
+        assertNotEquals(1_000_000L, user.getId());
+        assertTrue(userDao.getUserById(1_000_000L).isEmpty());
+    }
+
+    private String explain(org.hibernate.Session session, String sql) {
+        return String.join("\n", session.createNativeQuery("explain " + sql, String.class).list());
+    }
+
     private User createUser(String name, String email, int age) {
         return new User(name, email, age);
     }
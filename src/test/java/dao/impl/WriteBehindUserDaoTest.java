@@ -0,0 +1,193 @@
+package dao.impl;
+
+import dao.UserDao;
+import exceptions.dao.UserConcurrentModificationException;
+import exceptions.dao.UserUpdateException;
+import model.User;
+import model.UserUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import util.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class WriteBehindUserDaoTest {
+
+    private UserDao delegate;
+    private List<List<User>> batches;
+    private WriteBehindUserDao writeBehind;
+
+    @BeforeEach
+    void setUp() {
+        delegate = Mockito.mock(UserDao.class);
+        batches = new ArrayList<>();
+        doAnswer(invocation -> {
+            Collection<User> users = invocation.getArgument(0);
+            batches.add(List.copyOf(users));
+            return null;
+        }).when(delegate).updateUsers(anyCollection());
+        // Интервал больше длительности теста: сброс только явный или по размеру.
+        writeBehind = WriteBehindUserDao.start(delegate, 100, 10, Duration.ofHours(1), new MetricsRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehind.close();
+    }
+
+    @Test
+    void updateUser_shouldCoalesceUpdatesOfSameUserIntoOneWrite() {
+        User user = createUser(1L, "ivan@test.com", 30);
+        writeBehind.updateUser(user);
+        user.setAge(31);
+        writeBehind.updateUser(user);
+        writeBehind.updateUser(createUser(2L, "petr@test.com", 40));
+        verify(delegate, never()).updateUsers(anyCollection());
+
+        writeBehind.flush();
+
+        assertEquals(1, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals(31, batches.get(0).get(0).getAge());
+        assertEquals(0L, batches.get(0).get(0).getVersion());
+        assertEquals(1L, user.getVersion());
+        WriteBehindUserDao.WriteBehindStats stats = writeBehind.getStats();
+        assertEquals(3, stats.updates());
+        assertEquals(1, stats.coalesced());
+        assertEquals(2, stats.flushedRows());
+        assertEquals(0, stats.pending());
+    }
+
+    @Test
+    void reads_shouldSeeBufferedState() {
+        User user = createUser(1L, "new@test.com", 30);
+        writeBehind.updateUser(user);
+        user.setAge(99);
+        when(delegate.getUserByEmail("old@test.com")).thenReturn(Optional.of(createUser(1L, "old@test.com", 30)));
+
+        assertEquals(30, writeBehind.getUserById(1L).orElseThrow().getAge());
+        assertTrue(writeBehind.getUserByEmail("NEW@test.com").isPresent());
+        assertTrue(writeBehind.getUserByEmail("old@test.com").isEmpty());
+        verify(delegate, never()).getUserById(1L);
+    }
+
+    @Test
+    void getUserByEmail_shouldForgetEmailReplacedInBuffer() {
+        User user = createUser(1L, "first@test.com", 30);
+        writeBehind.updateUser(user);
+        user.setEmail("second@test.com");
+        user.setAge(31);
+        writeBehind.updateUser(user);
+        writeBehind.deleteUserById(2L);
+
+        assertTrue(writeBehind.getUserByEmail("first@test.com").isEmpty());
+        assertEquals(31, writeBehind.getUserByEmail("second@test.com").orElseThrow().getAge());
+        writeBehind.flush();
+        verify(delegate).getUserByEmail("first@test.com");
+        when(delegate.getUserByEmail("second@test.com")).thenReturn(Optional.empty());
+        assertTrue(writeBehind.getUserByEmail("second@test.com").isEmpty());
+    }
+
+    @Test
+    void updateUserFields_shouldWritePendingStateFirst() {
+        writeBehind.updateUser(createUser(1L, "ivan@test.com", 30));
+        writeBehind.updateUserFields(1L, UserUpdate.age(40));
+
+        InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).updateUser(any(User.class));
+        inOrder.verify(delegate).updateUserFields(1L, UserUpdate.age(40));
+        assertEquals(0, writeBehind.getStats().pending());
+    }
+
+    @Test
+    void flush_shouldRetryFailedBatchRowByRow() {
+        doThrow(new UserUpdateException("ошибка", null)).when(delegate).updateUsers(anyCollection());
+        doThrow(new UserUpdateException("ошибка", null)).when(delegate)
+                .updateUser(argThat(user -> user.getId() == 2L));
+        writeBehind.updateUser(createUser(1L, "ivan@test.com", 30));
+        writeBehind.updateUser(createUser(2L, "petr@test.com", 40));
+
+        writeBehind.flush();
+
+        verify(delegate, times(2)).updateUser(any(User.class));
+        assertEquals(1, writeBehind.getStats().flushedRows());
+        assertEquals(1, writeBehind.getStats().failedRows());
+    }
+
+    @Test
+    void updateUser_shouldKeepHeldUserVersionAcrossFlushes() {
+        User user = createUser(1L, "ivan@test.com", 30);
+        writeBehind.updateUser(user);
+        writeBehind.flush();
+        user.setAge(31);
+        writeBehind.updateUser(user);
+        assertEquals(2L, writeBehind.getUserById(1L).orElseThrow().getVersion());
+        writeBehind.flush();
+
+        assertEquals(2, batches.size());
+        assertEquals(0L, batches.get(0).get(0).getVersion());
+        assertEquals(1L, batches.get(1).get(0).getVersion());
+        assertEquals(31, batches.get(1).get(0).getAge());
+        assertEquals(2L, user.getVersion());
+        assertEquals(0, writeBehind.getStats().failedRows());
+    }
+
+    @Test
+    void updateUser_shouldRejectStaleVersionOfBufferedUser() {
+        writeBehind.updateUser(createUser(1L, "ivan@test.com", 30));
+
+        assertThrows(UserConcurrentModificationException.class,
+                () -> writeBehind.updateUser(createUser(1L, "ivan@test.com", 31)));
+        writeBehind.flush();
+        assertEquals(30, batches.get(0).get(0).getAge());
+    }
+
+    @Test
+    void updateUser_shouldSurfaceConflictFromFlush() {
+        UserConcurrentModificationException conflict = new UserConcurrentModificationException("конфликт", null);
+        doThrow(conflict).when(delegate).updateUsers(anyCollection());
+        doThrow(conflict).when(delegate).updateUser(argThat(user -> user.getVersion() == 0L));
+        User user = createUser(1L, "ivan@test.com", 30);
+        writeBehind.updateUser(user);
+        writeBehind.flush();
+
+        UserConcurrentModificationException e = assertThrows(UserConcurrentModificationException.class,
+                () -> writeBehind.updateUser(user));
+        assertSame(conflict, e.getCause());
+        assertEquals(1, writeBehind.getStats().failedRows());
+
+        User reread = createUser(1L, "ivan@test.com", 30);
+        reread.setVersion(5L);
+        writeBehind.updateUser(reread);
+        assertEquals(6L, reread.getVersion());
+    }
+
+    @Test
+    void close_shouldFlushRemainingUpdates() {
+        writeBehind.updateUser(createUser(1L, "ivan@test.com", 30));
+
+        writeBehind.close();
+
+        assertEquals(1, batches.size());
+        writeBehind.updateUser(createUser(2L, "petr@test.com", 40));
+        verify(delegate).updateUser(any(User.class));
+    }
+
+    private User createUser(Long id, String email, int age) {
+        User user = new User("Иван", email, age);
+        user.setId(id);
+        user.setVersion(0L);
+        return user;
+    }
+}
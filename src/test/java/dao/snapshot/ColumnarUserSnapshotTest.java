@@ -0,0 +1,131 @@
+package dao.snapshot;
+
+import dao.AgeBucket;
+import dao.DailySignups;
+import dao.UserDao;
+import dao.UserFilter;
+import model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ColumnarUserSnapshotTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    private final List<User> table = new ArrayList<>();
+    private UserDao userDao;
+    private ColumnarUserSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        userDao = Mockito.mock(UserDao.class);
+        when(userDao.getUsersAfter(any(), anyInt())).thenAnswer(invocation -> {
+            Long lastId = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return table.stream()
+                    .filter(user -> lastId == null || user.getId() > lastId)
+                    .limit(limit)
+                    .toList();
+        });
+        snapshot = new ColumnarUserSnapshot(userDao, 3, ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void refresh_shouldLoadAllPagesIntoColumns() {
+        addRows(1, 7);
+
+        assertEquals(7, snapshot.refresh());
+
+        UserColumns columns = snapshot.columns();
+        assertEquals(7, columns.size());
+        assertEquals(7L, snapshot.watermark());
+        int row = columns.rowOf(5L);
+        assertEquals(5L, columns.id(row));
+        assertEquals("Имя 1", columns.name(row));
+        assertEquals("user5@test.com", columns.email(row));
+        assertEquals(25, columns.age(row));
+        assertEquals(DAY.plusDays(5), columns.createdAt(row));
+        assertEquals(-1, columns.rowOf(100L));
+        verify(userDao, times(4)).getUsersAfter(any(), eq(3));
+    }
+
+    @Test
+    void refresh_shouldAppendOnlyNewRowsAndKeepOldColumnsStable() {
+        addRows(1, 4);
+        snapshot.refresh();
+        UserColumns before = snapshot.columns();
+
+        addRows(5, 6);
+        assertEquals(2, snapshot.refresh());
+        assertEquals(0, snapshot.refresh());
+
+        assertEquals(4, before.size());
+        assertEquals(4, before.count(UserFilter.all()));
+        assertEquals(6, snapshot.columns().size());
+        assertArrayEquals(new long[]{5L, 6L}, snapshot.columns().ids(UserFilter.all().withAge(25, 30)));
+    }
+
+    @Test
+    void rebuild_shouldPickUpChangedRows() {
+        addRows(1, 3);
+        snapshot.refresh();
+        table.get(0).setAge(99);
+
+        assertEquals(3, snapshot.rebuild());
+
+        assertEquals(99, snapshot.columns().age(0));
+    }
+
+    @Test
+    void scans_shouldMatchEntityComputationsAcrossForkJoinSplits() {
+        int rows = UserColumns.LEAF_ROWS * 3 + 17;
+        addRows(1, rows);
+        snapshot = new ColumnarUserSnapshot(userDao, 10_000, ForkJoinPool.commonPool());
+        snapshot.refresh();
+        UserColumns columns = snapshot.columns();
+        UserFilter filter = UserFilter.all().withAge(30, 45).withNamePrefix("имя 1")
+                .withCreated(DAY.plusDays(3), DAY.plusDays(20));
+
+        long expected = table.stream()
+                .filter(user -> user.getAge() >= 30 && user.getAge() <= 45)
+                .filter(user -> user.getName().startsWith("Имя 1"))
+                .filter(user -> !user.getCreatedAt().isBefore(DAY.plusDays(3))
+                        && user.getCreatedAt().isBefore(DAY.plusDays(20)))
+                .count();
+        assertEquals(expected, columns.count(filter));
+        assertEquals(expected, columns.ids(filter).length);
+
+        List<AgeBucket> histogram = columns.ageHistogram(20);
+        assertEquals(rows, histogram.stream().mapToLong(AgeBucket::count).sum());
+        long youngest = table.stream().filter(user -> user.getAge() < 40 && user.getAge() >= 20).count();
+        assertEquals(new AgeBucket(20, 40, youngest), histogram.get(0));
+
+        LocalDate firstDay = DAY.toLocalDate().plusDays(1);
+        List<DailySignups> days = columns.signupsPerDay(firstDay, firstDay.plusDays(1));
+        long sameDay = table.stream().filter(user -> user.getCreatedAt().toLocalDate().equals(firstDay)).count();
+        assertEquals(new DailySignups(firstDay, sameDay), days.get(0));
+        assertTrue(columns.memoryBytes() < rows * 100L);
+    }
+
+    // Возраст 20..79, дата регистрации и имя циклически, чтобы словарь имён был маленьким.
+    private void addRows(long fromId, long toId) {
+        for (long id = fromId; id <= toId; id++) {
+            User user = new User("Имя " + (id % 4), "user" + id + "@test.com", 20 + (int) (id % 60));
+            user.setId(id);
+            user.setCreatedAt(DAY.plusDays(id % 30));
+            table.add(user);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package service.impl;
+
+import dao.Page;
+import dao.UserChanges;
+import dao.UserExportFormat;
+import dao.UserFilter;
+import exceptions.dao.UserNotFoundException;
+import model.User;
+import model.UserSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import service.UserService;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class AsyncUserServiceImplTest {
+
+    private UserService userService;
+    private AsyncUserServiceImpl asyncUserService;
+
+    @BeforeEach
+    void setUp() {
+        userService = Mockito.mock(UserService.class);
+        asyncUserService = new AsyncUserServiceImpl(userService, 4, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncUserService.close();
+    }
+
+    @Test
+    void getUserById_shouldCompleteWithUser() {
+        when(userService.getUserById(1L)).thenReturn(createUser(1L, "Иван"));
+        assertEquals("Иван", asyncUserService.getUserById(1L).join().getName());
+    }
+
+    @Test
+    void getUserById_shouldCompleteExceptionallyIfNotFound() {
+        when(userService.getUserById(99L)).thenThrow(new UserNotFoundException("не найден"));
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> asyncUserService.getUserById(99L).get());
+        assertInstanceOf(UserNotFoundException.class, e.getCause());
+    }
+
+    @Test
+    void getUsersByIds_shouldSkipMissingIds() {
+        when(userService.getUserById(1L)).thenReturn(createUser(1L, "Иван"));
+        when(userService.getUserById(2L)).thenReturn(createUser(2L, "Катя"));
+        when(userService.getUserById(3L)).thenThrow(new UserNotFoundException("не найден"));
+        Map<Long, User> users = asyncUserService.getUsersByIds(List.of(1L, 2L, 3L, 1L)).join();
+        assertEquals(2, users.size());
+        verify(userService, times(1)).getUserById(1L);
+    }
+
+    @Test
+    void updateUserWithFunction_shouldCompleteWithUpdatedUser() {
+        User updated = createUser(1L, "Пётр");
+        when(userService.updateUser(eq(1L), any())).thenReturn(updated);
+        assertSame(updated, asyncUserService.updateUser(1L, user -> updated).join());
+    }
+
+    @Test
+    void forEachUserSummary_shouldVisitEverySummaryAndCloseStream() {
+        AtomicInteger closed = new AtomicInteger();
+        when(userService.streamUserSummaries()).thenReturn(Stream.of(
+                new UserSummary(1L, "Иван", "ivan@mail.ru"),
+                new UserSummary(2L, "Катя", "katya@mail.ru")).onClose(closed::incrementAndGet));
+        List<String> names = Collections.synchronizedList(new ArrayList<>());
+
+        assertEquals(2L, asyncUserService.forEachUserSummary(summary -> names.add(summary.name())).join());
+        assertEquals(List.of("Иван", "Катя"), names);
+        assertEquals(1, closed.get());
+    }
+
+    @Test
+    void filteredQueries_shouldCompleteWithServiceResults() {
+        UserFilter filter = UserFilter.all().withAge(18, null);
+        when(userService.findUsers(filter, new Page(0, 10))).thenReturn(List.of(createUser(1L, "Иван")));
+        when(userService.countUsers(filter)).thenReturn(1L);
+
+        assertEquals(1, asyncUserService.findUsers(filter, new Page(0, 10)).join().size());
+        assertEquals(1L, asyncUserService.countUsers(filter).join());
+    }
+
+    @Test
+    void exportUsers_shouldCompleteWithRowCount() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(userService.exportUsers(UserExportFormat.CSV, out)).thenReturn(3L);
+        assertEquals(3L, asyncUserService.exportUsers(UserExportFormat.CSV, out).join());
+    }
+
+    @Test
+    void getChangesSince_shouldCompleteWithFeedPage() {
+        UserChanges page = new UserChanges(List.of(), 42L);
+        when(userService.changeFeedCount()).thenReturn(2);
+        when(userService.getChangesSince(1, 42L, 100)).thenReturn(page);
+
+        assertEquals(2, asyncUserService.changeFeedCount().join());
+        assertSame(page, asyncUserService.getChangesSince(1, 42L, 100).join());
+    }
+
+    @Test
+    void requests_shouldNotExceedConcurrencyLimit() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        when(userService.getUserById(anyLong())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            inFlight.decrementAndGet();
+            return createUser(invocation.getArgument(0), "user");
+        });
+        List<CompletableFuture<User>> futures = new ArrayList<>();
+        for (long id = 0; id < 200; id++) {
+            futures.add(asyncUserService.getUserById(id));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        assertTrue(peak.get() <= 4);
+    }
+
+    @Test
+    void slowRequest_shouldTimeOut() {
+        AsyncUserServiceImpl withShortTimeout = new AsyncUserServiceImpl(userService, 1, Duration.ofMillis(50));
+        when(userService.getUserById(1L)).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return createUser(1L, "Иван");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> withShortTimeout.getUserById(1L).get());
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        withShortTimeout.close();
+    }
+
+    private User createUser(Long id, String name) {
+        User user = new User(name, name + "@test.com", 30);
+        user.setId(id);
+        return user;
+    }
+}
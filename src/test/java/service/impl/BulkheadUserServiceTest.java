@@ -0,0 +1,176 @@
+package service.impl;
+
+import exceptions.app.DeadlineExceededException;
+import exceptions.app.ServiceOverloadedException;
+import model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import service.BulkheadOptions;
+import service.Deadline;
+import service.UserService;
+import service.impl.BulkheadUserService.BulkheadStats;
+import service.impl.BulkheadUserService.OperationClass;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BulkheadUserServiceTest {
+
+    private UserService userService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch scanStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseScan = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        userService = Mockito.mock(UserService.class);
+        when(userService.getUserById(anyLong())).thenReturn(new User());
+        when(userService.getAllUsers()).thenAnswer(invocation -> {
+            scanStarted.countDown();
+            releaseScan.await();
+            return List.of();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseScan.countDown();
+        executor.close();
+    }
+
+    @Test
+    void saturatedScans_shouldNotBlockLookups() throws Exception {
+        BulkheadUserService bulkhead = new BulkheadUserService(userService, options(1, 0, Duration.ZERO));
+        Future<List<User>> scan = executor.submit(bulkhead::getAllUsers);
+        assertTrue(scanStarted.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ServiceOverloadedException.class, bulkhead::getAllUsers);
+        assertNotNull(bulkhead.getUserById(1L));
+
+        Map<OperationClass, BulkheadStats> stats = bulkhead.getStats();
+        assertEquals(1, stats.get(OperationClass.SCAN).inFlight());
+        assertEquals(1, stats.get(OperationClass.SCAN).rejected());
+        assertEquals(0, stats.get(OperationClass.LOOKUP).inFlight());
+        releaseScan.countDown();
+        scan.get(5, TimeUnit.SECONDS);
+        assertEquals(0, bulkhead.getStats().get(OperationClass.SCAN).inFlight());
+    }
+
+    @Test
+    void queuedCall_shouldTimeOutWhenNoSlotFreesUp() throws Exception {
+        BulkheadUserService bulkhead = new BulkheadUserService(userService, options(1, 1, Duration.ofMillis(50)));
+        executor.submit(bulkhead::getAllUsers);
+        assertTrue(scanStarted.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        assertThrows(ServiceOverloadedException.class, bulkhead::getAllUsers);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1, bulkhead.getStats().get(OperationClass.SCAN).timedOut());
+        verify(userService, times(1)).getAllUsers();
+    }
+
+    @Test
+    void stream_shouldHoldSlotUntilClosed() {
+        when(userService.streamAllUsers()).thenReturn(Stream.of(new User()));
+        BulkheadUserService bulkhead = new BulkheadUserService(userService, options(1, 0, Duration.ZERO));
+
+        try (Stream<User> users = bulkhead.streamAllUsers()) {
+            assertThrows(ServiceOverloadedException.class, bulkhead::streamAllUsers);
+            assertEquals(1, users.count());
+        }
+        assertEquals(0, bulkhead.getStats().get(OperationClass.SCAN).inFlight());
+    }
+
+    @Test
+    void expiredDeadline_shouldNotReachService() {
+        BulkheadUserService bulkhead = new BulkheadUserService(userService, options(4, 4, Duration.ofSeconds(1)));
+
+        try (Deadline.Scope ignored = Deadline.within(Duration.ZERO)) {
+            assertThrows(DeadlineExceededException.class, () -> bulkhead.getUserById(1L));
+        }
+        verify(userService, never()).getUserById(anyLong());
+        assertEquals(1, bulkhead.getStats().get(OperationClass.LOOKUP).deadlineExceeded());
+        assertNotNull(bulkhead.getUserById(1L));
+    }
+
+    @Test
+    void asyncService_shouldPropagateTimeoutAsDeadline() {
+        BulkheadUserService bulkhead = new BulkheadUserService(userService, options(4, 4, Duration.ofSeconds(1)));
+        try (AsyncUserServiceImpl async = new AsyncUserServiceImpl(bulkhead, 4, Duration.ofSeconds(5));
+             Deadline.Scope ignored = Deadline.within(Duration.ofMillis(-1))) {
+            Exception e = assertThrows(Exception.class, () -> async.getUserById(1L).join());
+            assertInstanceOf(DeadlineExceededException.class, e.getCause());
+        }
+        verify(userService, never()).getUserById(anyLong());
+    }
+
+    @Test
+    void adaptiveLimit_shouldShrinkWhenLatencyGrowsAndRecover() {
+        Bulkhead bulkhead = new Bulkhead("test", BulkheadOptions.of(10, 0, Duration.ZERO).withAdaptive(true));
+        for (int i = 0; i < 100; i++) {
+            bulkhead.acquire();
+            bulkhead.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (int i = 0; i < 100; i++) {
+            bulkhead.acquire();
+            bulkhead.release(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertEquals(9, bulkhead.stats().limit());
+        // Базовая задержка - минимум последнего окна: устойчиво медленные вызовы становятся новой нормой.
+        assertEquals(10_000, bulkhead.stats().baselineMicros());
+
+        for (int i = 0; i < 9; i++) {
+            bulkhead.acquire();
+            bulkhead.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(10, bulkhead.stats().limit());
+    }
+
+    @Test
+    void bulkhead_shouldHandFreedSlotToOldestWaiter() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("test", BulkheadOptions.of(1, 2, Duration.ofSeconds(5)));
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        bulkhead.acquire();
+        Future<?> waiter = executor.submit(() -> {
+            bulkhead.acquire();
+            order.add("waiter");
+            bulkhead.release(0);
+        });
+        while (bulkhead.stats().queued() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // Место свободно, но разбуженный ожидающий ещё не занял его: новый вызов встаёт за ним.
+        bulkhead.release(0);
+        bulkhead.acquire();
+        order.add("newcomer");
+        bulkhead.release(0);
+
+        waiter.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("waiter", "newcomer"), order);
+    }
+
+    private static Map<OperationClass, BulkheadOptions> options(int limit, int queueSize, Duration maxWait) {
+        Map<OperationClass, BulkheadOptions> options = new EnumMap<>(OperationClass.class);
+        for (OperationClass operationClass : OperationClass.values()) {
+            options.put(operationClass, BulkheadOptions.of(limit, queueSize, maxWait));
+        }
+        return options;
+    }
+}
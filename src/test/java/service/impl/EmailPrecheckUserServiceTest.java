@@ -0,0 +1,118 @@
+package service.impl;
+
+import dao.BulkInsertResult;
+import exceptions.dao.UserCreationException;
+import model.User;
+import model.UserSummary;
+import model.UserUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import service.EmailFilterOptions;
+import service.UserService;
+import util.cache.BloomFilter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EmailPrecheckUserServiceTest {
+
+    private UserService userService;
+    private EmailPrecheckUserService precheck;
+
+    @BeforeEach
+    void setUp() {
+        userService = Mockito.mock(UserService.class);
+        when(userService.streamUserSummaries()).thenAnswer(invocation -> Stream.of(
+                new UserSummary(1L, "Иван", "ivan@mail.ru"),
+                new UserSummary(2L, "Катя", "katya@mail.ru")));
+        when(userService.getUserByEmail(anyString())).thenReturn(Optional.empty());
+        when(userService.getUserByEmail("ivan@mail.ru")).thenReturn(Optional.of(new User("Иван", "ivan@mail.ru", 30)));
+        precheck = new EmailPrecheckUserService(userService, EmailFilterOptions.defaults().withExpectedEmails(1000));
+    }
+
+    @Test
+    void addUser_shouldSkipLookupForDefinitelyNewEmail() {
+        precheck.warmUp();
+        precheck.addUser(new User("Петр", "petr@mail.ru", 40));
+
+        verify(userService).addUser(any(User.class));
+        verify(userService, never()).getUserByEmail(anyString());
+        assertEquals(1, precheck.getStats().definitelyNew());
+    }
+
+    @Test
+    void addUser_shouldRejectDuplicateWithoutInsert() {
+        precheck.warmUp();
+        User duplicate = new User("Иван", " IVAN@mail.ru ", 31);
+
+        assertThrows(UserCreationException.class, () -> precheck.addUser(duplicate));
+        verify(userService, never()).addUser(any(User.class));
+        assertEquals(1, precheck.getStats().duplicatesRejected());
+    }
+
+    @Test
+    void addUser_shouldCheckDatabaseBeforeWarmUp() {
+        precheck.addUser(new User("Петр", "petr@mail.ru", 40));
+
+        verify(userService).getUserByEmail("petr@mail.ru");
+        verify(userService).addUser(any(User.class));
+        assertFalse(precheck.getStats().ready());
+    }
+
+    @Test
+    void writes_shouldAddNewEmailsToFilter() {
+        precheck.warmUp();
+        precheck.addUser(new User("Петр", "petr@mail.ru", 40));
+        precheck.updateUserFields(2L, UserUpdate.email("Kate@Mail.ru"));
+
+        precheck.addUser(new User("Петр", "petr@mail.ru", 40));
+        precheck.addUser(new User("Катя", "kate@mail.ru", 25));
+        verify(userService).getUserByEmail("petr@mail.ru");
+        verify(userService).getUserByEmail("kate@mail.ru");
+        assertEquals(2, precheck.getStats().falsePositives());
+    }
+
+    @Test
+    void addUsers_shouldReportDuplicatesAsRejected() {
+        when(userService.addUsers(anyCollection())).thenAnswer(invocation ->
+                new BulkInsertResult(invocation.<List<User>>getArgument(0).size(), List.of()));
+        precheck.warmUp();
+        User duplicate = new User("Иван", "ivan@mail.ru", 30);
+
+        BulkInsertResult result = precheck.addUsers(List.of(new User("Петр", "petr@mail.ru", 40), duplicate));
+
+        assertEquals(1, result.inserted());
+        assertEquals(1, result.rejected().size());
+        assertSame(duplicate, result.rejected().get(0).user());
+        verify(userService).addUsers(argThat(users -> users.size() == 1));
+    }
+
+    @Test
+    void bloomFilter_shouldStayNearTargetFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01, 1024 * 1024);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("user" + i + "@mail.ru");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@mail.ru"));
+            if (filter.mightContain("other" + i + "@mail.ru")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 200, "ложных срабатываний: " + falsePositives);
+        assertEquals(0.01, filter.estimatedFalsePositiveRate(), 0.005);
+        assertTrue(filter.memoryBytes() <= 12_000, "байт: " + filter.memoryBytes());
+
+        BloomFilter capped = new BloomFilter(10_000, 0.01, 4096);
+        assertEquals(4096, capped.memoryBytes());
+    }
+}
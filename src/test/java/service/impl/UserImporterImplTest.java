@@ -0,0 +1,149 @@
+package service.impl;
+
+import dao.BulkInsertResult;
+import exceptions.app.UserImportException;
+import exceptions.dao.UserCreationException;
+import model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import service.ImportOptions;
+import service.ImportReport;
+import service.UserService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class UserImporterImplTest {
+
+    @TempDir
+    Path dir;
+
+    private UserService userService;
+    private List<User> inserted;
+    private UserImporterImpl importer;
+    private final ImportOptions options = new ImportOptions(2, 2, 2, false, Duration.ZERO);
+
+    @BeforeEach
+    void setUp() {
+        userService = Mockito.mock(UserService.class);
+        inserted = Collections.synchronizedList(new ArrayList<>());
+        when(userService.addUsers(anyCollection())).thenAnswer(invocation -> {
+            Collection<User> users = invocation.getArgument(0);
+            List<BulkInsertResult.Rejected> rejected = new ArrayList<>();
+            for (User user : users) {
+                try {
+                    UserValidator.validate(user);
+                    inserted.add(user);
+                } catch (IllegalArgumentException e) {
+                    rejected.add(new BulkInsertResult.Rejected(user, e.getMessage()));
+                }
+            }
+            return new BulkInsertResult(users.size() - rejected.size(), rejected);
+        });
+        importer = new UserImporterImpl(userService);
+    }
+
+    @Test
+    void importFile_shouldInsertCsvRowsInBatchesAndRejectInvalidOnes() throws IOException {
+        Path file = Files.writeString(dir.resolve("users.csv"), """
+                email,name,age
+                ivan@test.com,Иван,30
+                "petr@test.com","Петров, Пётр",25
+                anna@test.com,,20
+                olga@test.com,Ольга,abc
+                maria@test.com,Мария,41
+                """);
+
+        ImportReport report = importer.importFile(file, options);
+
+        assertEquals(5, report.read());
+        assertEquals(3, report.inserted());
+        assertEquals(2, report.rejected());
+        assertEquals(3, inserted.size());
+        assertTrue(inserted.stream().anyMatch(u -> "Петров, Пётр".equals(u.getName())));
+        List<String> rejects = Files.readAllLines(report.rejectsFile());
+        assertEquals(2, rejects.size());
+        assertTrue(rejects.stream().anyMatch(r -> r.startsWith("4\tИмя не может быть пустым")));
+        assertTrue(rejects.stream().anyMatch(r -> r.startsWith("5\t")));
+        assertFalse(Files.exists(dir.resolve("users.csv.checkpoint")));
+    }
+
+    @Test
+    void importFile_shouldParseNdjson() throws IOException {
+        Path file = Files.writeString(dir.resolve("users.ndjson"), """
+                {"name": "Иван", "email": "Ivan@Test.com", "age": 30}
+                {"name":"Q\\"uote","email":"q@test.com","age":"22","extra":null}
+                {"name": "Сломанный", "email":
+                """);
+
+        ImportReport report = importer.importFile(file, options);
+
+        assertEquals(2, report.inserted());
+        assertEquals(1, report.rejected());
+        assertTrue(inserted.stream().anyMatch(u -> "ivan@test.com".equals(u.getEmail())));
+        assertTrue(inserted.stream().anyMatch(u -> "Q\"uote".equals(u.getName())));
+    }
+
+    @Test
+    void importFile_shouldResumeFromCheckpointAfterFailure() throws IOException {
+        StringBuilder csv = new StringBuilder("name,email,age\n");
+        for (int i = 1; i <= 6; i++) {
+            csv.append("user").append(i).append(",user").append(i).append("@test.com,30\n");
+        }
+        Path file = Files.writeString(dir.resolve("users.csv"), csv);
+        AtomicInteger calls = new AtomicInteger();
+        when(userService.addUsers(anyCollection())).thenAnswer(invocation -> {
+            Collection<User> users = invocation.getArgument(0);
+            if (calls.incrementAndGet() == 2) {
+                throw new UserCreationException("База недоступна", null);
+            }
+            inserted.addAll(users);
+            return new BulkInsertResult(users.size(), List.of());
+        });
+        ImportOptions sequential = new ImportOptions(2, 1, 1, false, Duration.ZERO);
+
+        assertThrows(UserImportException.class, () -> importer.importFile(file, sequential));
+        assertEquals("3", Files.readString(dir.resolve("users.csv.checkpoint")));
+
+        ImportReport report = importer.importFile(file, sequential.withResume(true));
+
+        assertEquals(2, report.skipped());
+        assertEquals(4, report.inserted());
+        assertEquals(6, inserted.size());
+        assertFalse(Files.exists(dir.resolve("users.csv.checkpoint")));
+    }
+
+    @Test
+    void importFile_shouldRecordRowsRejectedByDatabase() throws IOException {
+        Path file = Files.writeString(dir.resolve("users.csv"), "name,email,age\nИван,ivan@test.com,30\n");
+        when(userService.addUsers(anyCollection())).thenAnswer(invocation -> {
+            Collection<User> users = invocation.getArgument(0);
+            User user = users.iterator().next();
+            return new BulkInsertResult(0, List.of(new BulkInsertResult.Rejected(user, "duplicate key")));
+        });
+
+        ImportReport report = importer.importFile(file, options);
+
+        assertEquals(1, report.rejected());
+        assertEquals(List.of("2\tduplicate key\tИван,ivan@test.com,30"), Files.readAllLines(report.rejectsFile()));
+    }
+
+    @Test
+    void importFile_shouldRejectUnknownFormat() {
+        assertThrows(IllegalArgumentException.class, () -> importer.importFile(dir.resolve("users.xml"), options));
+        verify(userService, never()).addUsers(anyCollection());
+    }
+}
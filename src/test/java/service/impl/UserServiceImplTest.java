@@ -1,12 +1,23 @@
 package service.impl;
 
+import dao.BulkInsertResult;
+import dao.Page;
+import dao.UserChanges;
 import dao.UserDao;
+import dao.UserFilter;
+import exceptions.app.DeadlineExceededException;
+import exceptions.dao.UserConcurrentModificationException;
 import exceptions.dao.UserNotFoundException;
 import model.User;
+import model.UserSummary;
+import model.UserUpdate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import service.Deadline;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +42,44 @@ class UserServiceImplTest {
         verify(userDao, times(1)).addUser(user);
     }
 
+    @Test
+    void addUsers_shouldRejectInvalidWithoutCallingDao() {
+        User valid = createUser("Иван", "ivan@test.com", 25);
+        User invalid = createUser(" ", "blank@test.com", 30);
+        when(userDao.addUsers(List.of(valid))).thenReturn(new BulkInsertResult(1, List.of()));
+
+        BulkInsertResult result = userService.addUsers(List.of(valid, invalid));
+
+        assertEquals(1, result.inserted());
+        assertEquals(1, result.rejected().size());
+        assertSame(invalid, result.rejected().get(0).user());
+        verify(userDao, times(1)).addUsers(List.of(valid));
+    }
+
+    @Test
+    void getUserSummaryById_shouldThrowWhenMissing() {
+        when(userDao.getUserSummaryById(1L)).thenReturn(Optional.of(new UserSummary(1L, "Петр", "petr@test.com")));
+        when(userDao.getUserSummaryById(2L)).thenReturn(Optional.empty());
+        assertEquals("Петр", userService.getUserSummaryById(1L).name());
+        assertThrows(UserNotFoundException.class, () -> userService.getUserSummaryById(2L));
+    }
+
+    @Test
+    void getUserSummariesAfter_shouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserSummariesAfter(null, 0));
+        verify(userDao, never()).getUserSummariesAfter(any(), anyInt());
+    }
+
+    @Test
+    void findUsers_shouldRejectInvertedRanges() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.findUsers(UserFilter.all().withAge(40, 30), Page.of(0, 10)));
+        assertThrows(IllegalArgumentException.class, () -> userService.ageHistogram(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.signupsPerDay(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)));
+        verifyNoInteractions(userDao);
+    }
+
     @Test
     void getUserById_shouldReturnUser() {
         User user = createUser("Петр", "petr@test.com", 30);
@@ -48,6 +97,12 @@ class UserServiceImplTest {
                 () -> userService.getUserById(99L));
     }
 
+    @Test
+    void getUserByEmail_shouldRejectBlankEmail() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUserByEmail(" "));
+        verifyNoInteractions(userDao);
+    }
+
     @Test
     void getAllUsers() {
         List<User> users = List.of(createUser("Катя", "katya@test.com", 22));
@@ -57,6 +112,25 @@ class UserServiceImplTest {
         assertEquals("Катя", result.get(0).getName());
     }
 
+    @Test
+    void getUsersAfter_shouldRejectNonPositiveLimit() {
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersAfter(null, 0));
+        verifyNoInteractions(userDao);
+    }
+
+    @Test
+    void getChangesSince_shouldRejectInvalidArgumentsAndDelegate() {
+        when(userDao.changeFeedCount()).thenReturn(1);
+        assertThrows(IllegalArgumentException.class, () -> userService.getChangesSince(0, -1, 10));
+        assertThrows(IllegalArgumentException.class, () -> userService.getChangesSince(0, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> userService.getChangesSince(1, 0, 10));
+        verify(userDao, never()).getChangesSince(anyInt(), anyLong(), anyInt());
+
+        UserChanges changes = new UserChanges(List.of(), 5);
+        when(userDao.getChangesSince(0, 5, 100)).thenReturn(changes);
+        assertSame(changes, userService.getChangesSince(0, 5, 100));
+    }
+
     @Test
     void updateUser() {
         User user = createUser("Иван", "ivan@test.com", 25);
@@ -66,14 +140,84 @@ class UserServiceImplTest {
         verify(userDao, times(1)).updateUser(user);
     }
 
+    @Test
+    void updateUserWithFunction_shouldRetryOnVersionConflict() {
+        userService = new UserServiceImpl(userDao, 3, Duration.ZERO);
+        User stale = createUser("Иван", "ivan@test.com", 25);
+        stale.setId(1L);
+        stale.setVersion(1L);
+        User fresh = stale.copy();
+        fresh.setVersion(2L);
+        when(userDao.getUserById(1L)).thenReturn(Optional.of(stale), Optional.of(fresh));
+        doThrow(new UserConcurrentModificationException("конфликт", null))
+                .doNothing()
+                .when(userDao).updateUser(any(User.class));
+
+        User updated = userService.updateUser(1L, user -> {
+            user.setAge(user.getAge() + 1);
+            return user;
+        });
+
+        assertEquals(26, updated.getAge());
+        assertEquals(2L, updated.getVersion());
+        verify(userDao, times(2)).updateUser(any(User.class));
+    }
+
+    @Test
+    void updateUserWithFunction_shouldGiveUpAfterMaxAttempts() {
+        userService = new UserServiceImpl(userDao, 2, Duration.ZERO);
+        User user = createUser("Иван", "ivan@test.com", 25);
+        user.setId(1L);
+        when(userDao.getUserById(1L)).thenAnswer(invocation -> Optional.of(user.copy()));
+        doThrow(new UserConcurrentModificationException("конфликт", null)).when(userDao).updateUser(any(User.class));
+
+        assertThrows(UserConcurrentModificationException.class, () -> userService.updateUser(1L, u -> u));
+        verify(userDao, times(2)).updateUser(any(User.class));
+        assertThrows(IllegalArgumentException.class, () -> userService.updateUser(1L, u -> {
+            u.setName(" ");
+            return u;
+        }));
+    }
+
+    @Test
+    void updateUserFields_shouldDelegateChangedFields() {
+        UserUpdate changes = UserUpdate.name("Иван Петров");
+        when(userDao.updateUserFields(1L, changes)).thenReturn(1);
+        userService.updateUserFields(1L, changes);
+        verify(userDao, times(1)).updateUserFields(1L, changes);
+    }
+
+    @Test
+    void updateUserFields_shouldThrowIfNotFound() {
+        UserUpdate changes = UserUpdate.age(40);
+        when(userDao.updateUserFields(99L, changes)).thenReturn(0);
+        assertThrows(UserNotFoundException.class, () -> userService.updateUserFields(99L, changes));
+    }
+
+    @Test
+    void updateUserFields_shouldRejectInvalidAge() {
+        assertThrows(IllegalArgumentException.class, () -> userService.updateUserFields(1L, UserUpdate.age(0)));
+        verifyNoInteractions(userDao);
+    }
+
     @Test
     void deleteUserById() {
         Long id = 1L;
-        doNothing().when(userDao).deleteUserById(id);
+        when(userDao.deleteUserById(id)).thenReturn(1);
         userService.deleteUserById(id);
         verify(userDao, times(1)).deleteUserById(id);
     }
 
+    @Test
+    void expiredDeadline_shouldNotReachDao() {
+        try (Deadline.Scope ignored = Deadline.within(Duration.ZERO)) {
+            assertThrows(DeadlineExceededException.class, () -> userService.getUserById(1L));
+            assertThrows(DeadlineExceededException.class,
+                    () -> userService.addUser(createUser("Иван", "ivan@test.com", 25)));
+        }
+        verifyNoInteractions(userDao);
+    }
+
     private User createUser(String name, String email, int age) {
         return new User(name, email, age);
     }
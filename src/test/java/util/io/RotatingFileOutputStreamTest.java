@@ -0,0 +1,68 @@
+package util.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RotatingFileOutputStreamTest {
+
+    @TempDir
+    Path dir;
+
+    private static final byte[] HEADER = "h\n".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void write_shouldRotateOnLineBoundaryAndRepeatHeader() throws IOException {
+        RotatingFileOutputStream out = new RotatingFileOutputStream(dir, "users", ".csv", 10, false, HEADER, 4);
+        out.write("aaaa\nbbbbbbbb\ncc\n".getBytes(StandardCharsets.UTF_8));
+        out.close();
+
+        List<Path> files = out.files();
+        assertEquals(List.of(dir.resolve("users-00001.csv"), dir.resolve("users-00002.csv")), files);
+        assertEquals("h\naaaa\nbbbbbbbb\n", Files.readString(files.get(0)));
+        assertEquals("h\ncc\n", Files.readString(files.get(1)));
+        assertEquals(21, out.totalBytes());
+    }
+
+    @Test
+    void close_shouldNotCreateEmptyFileAfterRotation() throws IOException {
+        RotatingFileOutputStream out = new RotatingFileOutputStream(dir, "users", ".csv", 10, false, HEADER, 4);
+        out.write("aaaa\nbbbbbbbb\n".getBytes(StandardCharsets.UTF_8));
+        out.close();
+
+        assertEquals(List.of(dir.resolve("users-00001.csv")), out.files());
+        assertFalse(Files.exists(dir.resolve("users-00002.csv")));
+    }
+
+    @Test
+    void close_shouldWriteHeaderForEmptyExport() throws IOException {
+        RotatingFileOutputStream out = new RotatingFileOutputStream(dir, "users", ".csv", 0, false, HEADER, 16);
+        out.close();
+        assertEquals(List.of(dir.resolve("users.csv")), out.files());
+        assertEquals("h\n", Files.readString(dir.resolve("users.csv")));
+    }
+
+    @Test
+    void write_shouldCompressEachFile() throws IOException {
+        RotatingFileOutputStream out = new RotatingFileOutputStream(dir, "users", ".csv.gz", 0, true, HEADER, 16);
+        for (int i = 0; i < 1000; i++) {
+            out.write(("row" + i + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        out.close();
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(dir.resolve("users.csv.gz")))) {
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            assertTrue(content.startsWith("h\nrow0\n"));
+            assertTrue(content.endsWith("row999\n"));
+        }
+    }
+}
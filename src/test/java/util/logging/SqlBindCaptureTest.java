@@ -0,0 +1,49 @@
+package util.logging;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SqlBindCaptureTest {
+
+    private static final String SQL = "select u from users u where u.email = ? and u.age > ?";
+
+    @Test
+    void wrap_shouldDelegateSampledStatementAndUnwrapToTarget() throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        PreparedStatement statement = Mockito.mock(PreparedStatement.class);
+        when(connection.prepareStatement(SQL)).thenReturn(statement);
+        Connection wrapped = SqlBindCapture.wrap(connection);
+
+        assertTrue(SqlBindCapture.mark(SQL));
+        PreparedStatement sampled = wrapped.prepareStatement(SQL);
+        sampled.setString(1, "ivan@mail.ru");
+        sampled.setInt(2, 18);
+        sampled.executeQuery();
+
+        assertNotSame(statement, sampled);
+        verify(statement).setString(1, "ivan@mail.ru");
+        verify(statement).setInt(2, 18);
+        verify(statement).executeQuery();
+        assertSame(statement, wrapped.prepareStatement(SQL), "невыбранный запрос идёт в драйвер без обёртки");
+        assertSame(connection, SqlBindCapture.unwrap(wrapped));
+        assertSame(connection, SqlBindCapture.unwrap(connection));
+    }
+
+    @Test
+    void format_shouldAppendBindsInIndexOrder() {
+        Map<Integer, Object> binds = new TreeMap<>();
+        binds.put(2, 18);
+        binds.put(1, "ivan@mail.ru");
+
+        assertEquals(SQL + " -- binds {1=ivan@mail.ru, 2=18}", SqlBindCapture.format(SQL, binds));
+        assertEquals(SQL, SqlBindCapture.format(SQL, Map.of()));
+    }
+}
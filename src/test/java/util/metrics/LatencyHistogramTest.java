@@ -0,0 +1,31 @@
+package util.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentiles_shouldBeWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(50_000_000, snapshot.percentileNanos(50), 50_000_000 * 0.07);
+        assertEquals(99_000_000, snapshot.percentileNanos(99), 99_000_000 * 0.07);
+        assertEquals(100_000_000, snapshot.getMaxNanos());
+        assertTrue(snapshot.percentileNanos(100) <= snapshot.getMaxNanos());
+    }
+
+    @Test
+    void bucketBounds_shouldContainRecordedValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE / 2}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.upperBoundOf(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.upperBoundOf(index - 1) < value);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package util.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    @Test
+    void time_shouldCountCallsAndErrors() {
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationMetrics operation = registry.operation("dao.getUserById");
+        operation.time(() -> "ok");
+        assertThrows(IllegalStateException.class, () -> operation.time(() -> {
+            throw new IllegalStateException("ошибка");
+        }));
+        assertEquals(2, operation.getCount());
+        assertEquals(1, operation.getErrors());
+        assertSame(operation, registry.operation("dao.getUserById"));
+    }
+
+    @Test
+    void textSnapshot_shouldIncludeOperationsAndGauges() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.operation("service.addUser").record(1_000_000, false);
+        registry.registerGauges("pool", () -> Map.of("active", 3));
+        String snapshot = registry.textSnapshot();
+        assertTrue(snapshot.contains("service.addUser"));
+        assertTrue(snapshot.contains("pool.active 3"));
+    }
+
+    @Test
+    void registerJmx_shouldExposeCounts() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.operation("dao.addUser").record(1_000, false);
+        registry.registerJmx("users.test:type=Metrics");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("users.test:type=Metrics");
+        assertTrue(server.isRegistered(name));
+        assertTrue(server.getAttribute(name, "TextSnapshot").toString().contains("dao.addUser"));
+        server.unregisterMBean(name);
+    }
+}
@@ -0,0 +1,144 @@
+package util.pool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+
+    private final AtomicInteger opened = new AtomicInteger();
+    private ConnectionPool pool;
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void acquire_shouldReuseReleasedConnection() throws SQLException {
+        pool = new ConnectionPool(config(0, 2, 1000), this::newConnection);
+        Connection first = pool.acquire();
+        pool.release(first);
+        Connection second = pool.acquire();
+        assertSame(first, second);
+        assertEquals(1, opened.get());
+        assertEquals(1, pool.metrics().active());
+    }
+
+    @Test
+    void acquire_shouldTimeoutWhenPoolExhausted() throws SQLException {
+        pool = new ConnectionPool(config(0, 1, 50), this::newConnection);
+        pool.acquire();
+        assertThrows(SQLTransientConnectionException.class, () -> pool.acquire());
+        assertEquals(1, pool.metrics().timeouts());
+    }
+
+    @Test
+    void release_shouldDiscardClosedConnection() throws SQLException {
+        pool = new ConnectionPool(config(0, 1, 1000), this::newConnection);
+        Connection connection = pool.acquire();
+        when(connection.isClosed()).thenReturn(true);
+        pool.release(connection);
+        Connection next = pool.acquire();
+        assertNotSame(connection, next);
+        assertEquals(1, pool.metrics().total());
+    }
+
+    @Test
+    void release_shouldHandConnectionToWaiterBeforeNewcomer() throws Exception {
+        pool = new ConnectionPool(config(0, 1, 1000), this::newConnection);
+        Connection connection = pool.acquire();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Connection> waiter = executor.submit(() -> pool.acquire());
+            while (pool.metrics().waiting() == 0) {
+                Thread.onSpinWait();
+            }
+            pool.release(connection);
+            assertThrows(SQLTransientConnectionException.class, () -> pool.acquire());
+            assertSame(connection, waiter.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentClients_shouldNeverExceedMaxSize() throws Exception {
+        int maxSize = 4;
+        pool = new ConnectionPool(config(0, maxSize, 5000), this::newConnection);
+        AtomicInteger inUse = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 200; j++) {
+                    Connection connection = pool.acquire();
+                    peak.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                    inUse.decrementAndGet();
+                    pool.release(connection);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        PoolMetrics metrics = pool.metrics();
+        assertTrue(peak.get() <= maxSize);
+        assertTrue(opened.get() <= maxSize);
+        assertEquals(32 * 200, metrics.acquired());
+        assertEquals(0, metrics.active());
+        assertEquals(0, metrics.timeouts());
+    }
+
+    @Test
+    void config_shouldRejectNonPositiveHousekeepingPeriod() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> PoolConfig.from(
+                Map.of(PoolConfig.HOUSEKEEPING_PERIOD_MS, "0")));
+        assertTrue(e.getMessage().contains(PoolConfig.HOUSEKEEPING_PERIOD_MS));
+        assertThrows(IllegalArgumentException.class, () -> PoolConfig.from(
+                Map.of(PoolConfig.CONNECTION_TIMEOUT_MS, "-1")));
+    }
+
+    private Connection newConnection() throws SQLException {
+        opened.incrementAndGet();
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        return connection;
+    }
+
+    private static PoolConfig config(int min, int max, long timeoutMillis) {
+        return new PoolConfig(min, max,
+                Duration.ofMillis(timeoutMillis),
+                Duration.ofMinutes(10),
+                Duration.ofSeconds(1),
+                Duration.ZERO,
+                Duration.ofMinutes(1));
+    }
+}